@@ -27,6 +27,7 @@ import org.audiveris.omr.WellKnowns;
 import static org.audiveris.omr.classifier.Classifier.SHAPE_COUNT;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Glyph;
+import org.audiveris.omr.glyph.GlyphSignature;
 import org.audiveris.omr.glyph.Shape;
 import org.audiveris.omr.glyph.ShapeChecker;
 import org.audiveris.omr.sheet.Scale;
@@ -56,6 +57,7 @@ import static java.nio.file.StandardOpenOption.CREATE;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 
@@ -115,6 +117,9 @@ public abstract class AbstractClassifier<M extends Object>
     /** The glyph checker for additional specific checks. */
     protected ShapeChecker glyphChecker = ShapeChecker.getInstance();
 
+    /** Version of current model, incremented at each model change. */
+    protected volatile int modelVersion;
+
     //~ Methods ------------------------------------------------------------------------------------
     //----------//
     // evaluate //
@@ -144,6 +149,34 @@ public abstract class AbstractClassifier<M extends Object>
         return evaluate(glyph, null, count, minGrade, conditions, interline);
     }
 
+    //----------//
+    // evaluate //
+    //----------//
+    @Override
+    public Evaluation[][] evaluate (List<Glyph> glyphs,
+                                    SystemInfo system,
+                                    int count,
+                                    double minGrade,
+                                    EnumSet<Condition> conditions)
+    {
+        final int interline = system.getSheet().getInterline();
+
+        return evaluate(glyphs, system, count, minGrade, conditions, interline);
+    }
+
+    //----------//
+    // evaluate //
+    //----------//
+    @Override
+    public Evaluation[][] evaluate (List<Glyph> glyphs,
+                                    int interline,
+                                    int count,
+                                    double minGrade,
+                                    EnumSet<Condition> conditions)
+    {
+        return evaluate(glyphs, null, count, minGrade, conditions, interline);
+    }
+
     //---------------//
     // getDescriptor //
     //---------------//
@@ -153,6 +186,28 @@ public abstract class AbstractClassifier<M extends Object>
         return descriptor;
     }
 
+    //-----------------------//
+    // getNaturalEvaluations //
+    //-----------------------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This default implementation simply evaluates the glyphs one after the other.
+     * Subclasses are expected to override it with a true batch processing.
+     */
+    @Override
+    public Evaluation[][] getNaturalEvaluations (List<Glyph> glyphs,
+                                                 int interline)
+    {
+        final Evaluation[][] evals = new Evaluation[glyphs.size()][];
+
+        for (int i = 0; i < evals.length; i++) {
+            evals[i] = getNaturalEvaluations(glyphs.get(i), interline);
+        }
+
+        return evals;
+    }
+
     //---------------//
     // getRawDataSet //
     //---------------//
@@ -207,6 +262,37 @@ public abstract class AbstractClassifier<M extends Object>
         return weight >= constants.minWeight.getValue();
     }
 
+    //------------------//
+    // getFeatureMatrix //
+    //------------------//
+    /**
+     * Build the raw (non normalized) features matrix for a range of glyphs.
+     * Features are extracted through the descriptor thread buffer, so that the only array
+     * allocated is the matrix data.
+     *
+     * @param glyphs    the glyphs to describe
+     * @param from      index of first glyph, inclusive
+     * @param to        index of last glyph, exclusive
+     * @param interline the global sheet interline
+     * @return the features matrix, one row per glyph
+     */
+    protected INDArray getFeatureMatrix (List<Glyph> glyphs,
+                                         int from,
+                                         int to,
+                                         int interline)
+    {
+        final int length = descriptor.length();
+        final double[] buffer = descriptor.getFeatureBuffer();
+        final double[] data = new double[(to - from) * length];
+
+        for (int i = from; i < to; i++) {
+            descriptor.getFeatures(glyphs.get(i), interline, buffer);
+            System.arraycopy(buffer, 0, data, (i - from) * length, length);
+        }
+
+        return Nd4j.create(data, new int[]{to - from, length});
+    }
+
     //----------------------//
     // getSortedEvaluations //
     //----------------------//
@@ -233,6 +319,81 @@ public abstract class AbstractClassifier<M extends Object>
         }
     }
 
+    //----------------------//
+    // getSortedEvaluations //
+    //----------------------//
+    /**
+     * Run the classifier on the specified glyphs at once, and return for each glyph a
+     * sequence of all interpretations (ordered from best to worst) with no additional check.
+     *
+     * Glyphs already evaluated with the same signature are retrieved from the provided cache,
+     * if any, only the other ones are submitted to the classifier.
+     *
+     * @param glyphs    the glyphs to be examined
+     * @param interline the global sheet interline
+     * @param cache     the cache of evaluations, or null
+     * @return the ordered best evaluations, one array per glyph in glyphs order
+     */
+    protected Evaluation[][] getSortedEvaluations (List<Glyph> glyphs,
+                                                   int interline,
+                                                   EvaluationCache cache)
+    {
+        final int version = modelVersion;
+        final Evaluation[][] sorted = new Evaluation[glyphs.size()][];
+        final GlyphSignature[] signatures = new GlyphSignature[sorted.length];
+        final List<Glyph> bigs = new ArrayList<Glyph>(glyphs.size());
+
+        for (int i = 0; i < sorted.length; i++) {
+            final Glyph glyph = glyphs.get(i);
+
+            // If too small, it's just NOISE
+            if (!isBigEnough(glyph, interline)) {
+                sorted[i] = noiseEvaluations;
+            } else {
+                if (cache != null) {
+                    signatures[i] = new GlyphSignature(glyph, interline);
+                    sorted[i] = cache.get(getName(), version, signatures[i], interline);
+                }
+
+                if (sorted[i] == null) {
+                    bigs.add(glyph);
+                }
+            }
+        }
+
+        if (!bigs.isEmpty()) {
+            final Evaluation[][] naturals = getNaturalEvaluations(bigs, interline);
+            int ib = 0;
+
+            for (int i = 0; i < sorted.length; i++) {
+                if (sorted[i] == null) {
+                    final Evaluation[] evals = naturals[ib++];
+                    // Order the evals from best to worst
+                    Arrays.sort(evals);
+                    sorted[i] = evals;
+
+                    if (cache != null) {
+                        cache.put(getName(), version, signatures[i], interline, evals);
+                    }
+                }
+            }
+        }
+
+        return sorted;
+    }
+
+    //--------------//
+    // modelChanged //
+    //--------------//
+    /**
+     * Notify that current model has changed (reset or trained), which makes obsolete all
+     * evaluations computed with the previous model.
+     */
+    protected void modelChanged ()
+    {
+        modelVersion++;
+    }
+
     //--------------//
     // isCompatible //
     //--------------//
@@ -481,9 +642,62 @@ public abstract class AbstractClassifier<M extends Object>
                                    double minGrade,
                                    EnumSet<Classifier.Condition> conditions,
                                    int interline)
+    {
+        final Evaluation[] evals;
+
+        if (system != null) {
+            final EvaluationCache cache = system.getSheet().getEvaluationCache();
+            evals = getSortedEvaluations(Collections.singletonList(glyph), interline, cache)[0];
+        } else {
+            evals = getSortedEvaluations(glyph, interline);
+        }
+
+        return select(glyph, evals, system, count, minGrade, conditions);
+    }
+
+    //----------//
+    // evaluate //
+    //----------//
+    private Evaluation[][] evaluate (List<Glyph> glyphs,
+                                     SystemInfo system,
+                                     int count,
+                                     double minGrade,
+                                     EnumSet<Classifier.Condition> conditions,
+                                     int interline)
+    {
+        final EvaluationCache cache = (system != null) ? system.getSheet().getEvaluationCache()
+                : null;
+        final Evaluation[][] sorted = getSortedEvaluations(glyphs, interline, cache);
+
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = select(glyphs.get(i), sorted[i], system, count, minGrade, conditions);
+        }
+
+        return sorted;
+    }
+
+    //--------//
+    // select //
+    //--------//
+    /**
+     * Select the acceptable evaluations among the sorted ones.
+     *
+     * @param glyph      the evaluated glyph
+     * @param evals      the glyph evaluations, ordered from best to worst
+     * @param system     the containing system, if any
+     * @param count      the desired maximum sequence length
+     * @param minGrade   the minimum evaluation grade to be acceptable
+     * @param conditions optional conditions, perhaps null or empty
+     * @return the acceptable evaluations, perhaps empty but not null
+     */
+    private Evaluation[] select (Glyph glyph,
+                                 Evaluation[] evals,
+                                 SystemInfo system,
+                                 int count,
+                                 double minGrade,
+                                 EnumSet<Classifier.Condition> conditions)
     {
         List<Evaluation> bests = new ArrayList<Evaluation>();
-        Evaluation[] evals = getSortedEvaluations(glyph, interline);
 
         EvalsLoop:
         for (Evaluation eval : evals) {
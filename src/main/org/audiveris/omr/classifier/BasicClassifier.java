@@ -163,22 +163,48 @@ public class BasicClassifier
     public Evaluation[] getNaturalEvaluations (Glyph glyph,
                                                int interline)
     {
-        double[] ins = descriptor.getFeatures(glyph, interline);
-        final INDArray features = Nd4j.create(ins);
-        normalize(features);
+        return getNaturalEvaluations(Collections.singletonList(glyph), interline)[0];
+    }
 
-        Shape[] values = Shape.values();
-        Evaluation[] evals = new Evaluation[SHAPE_COUNT];
+    //-----------------------//
+    // getNaturalEvaluations //
+    //-----------------------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Glyphs features are gathered and normalized as one matrix, then each row is run through
+     * the network, using one hidden buffer for the whole batch.
+     */
+    @Override
+    public Evaluation[][] getNaturalEvaluations (List<Glyph> glyphs,
+                                                 int interline)
+    {
+        final Evaluation[][] evals = new Evaluation[glyphs.size()][];
 
-        for (int i = 0; i < ins.length; i++) {
-            ins[i] = features.getDouble(i);
+        if (evals.length == 0) {
+            return evals;
         }
 
-        double[] outs = new double[SHAPE_COUNT];
-        model.run(ins, null, outs);
+        final INDArray features = getFeatureMatrix(glyphs, 0, evals.length, interline);
+        normalize(features);
+
+        final Shape[] values = Shape.values();
+        final double[] ins = new double[features.columns()];
+        final double[] hiddens = new double[model.getHiddenSize()];
+
+        for (int i = 0; i < evals.length; i++) {
+            for (int j = 0; j < ins.length; j++) {
+                ins[j] = features.getDouble(i, j);
+            }
+
+            final double[] outs = model.run(ins, hiddens, new double[SHAPE_COUNT]);
+            final Evaluation[] glyphEvals = new Evaluation[SHAPE_COUNT];
+
+            for (int s = 0; s < SHAPE_COUNT; s++) {
+                glyphEvals[s] = new Evaluation(values[s], outs[s]);
+            }
 
-        for (int s = 0; s < SHAPE_COUNT; s++) {
-            evals[s] = new Evaluation(values[s], outs[s]);
+            evals[i] = glyphEvals;
         }
 
         return evals;
@@ -197,6 +223,7 @@ public class BasicClassifier
     public void reset ()
     {
         model = createNetwork();
+        modelChanged();
     }
 
     //--------------//
@@ -279,6 +306,7 @@ public class BasicClassifier
 
         // Train
         model.train(inputs, desiredOutputs, listener, listener.getIterationPeriod());
+        modelChanged();
 
         // Store
         store(FILE_NAME);
@@ -28,6 +28,7 @@ import org.audiveris.omr.glyph.Glyph;
 import org.audiveris.omr.glyph.Shape;
 import org.audiveris.omr.glyph.ShapeSet;
 import org.audiveris.omr.math.Population;
+import org.audiveris.omr.util.OmrExecutors;
 
 import org.deeplearning4j.nn.api.OptimizationAlgorithm;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
@@ -59,6 +60,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Class {@code DeepClassifier} is a shape classifier implemented by a deep
@@ -89,6 +91,9 @@ public class DeepClassifier
     /** Boolean to trigger stopping. */
     protected volatile boolean stopping = false;
 
+    /** Idle replicas of current model, available for inference. */
+    private final ConcurrentLinkedQueue<Replica> replicas = new ConcurrentLinkedQueue<Replica>();
+
     //~ Constructors -------------------------------------------------------------------------------
     private DeepClassifier ()
     {
@@ -181,24 +186,45 @@ public class DeepClassifier
     public Evaluation[] getNaturalEvaluations (Glyph glyph,
                                                int interline)
     {
-        final double[] doubles = descriptor.getFeatures(glyph, interline);
-        final INDArray features = Nd4j.create(doubles);
-        normalize(features);
+        return getNaturalEvaluations(Collections.singletonList(glyph), interline)[0];
+    }
 
-        final INDArray preOutput;
+    //-----------------------//
+    // getNaturalEvaluations //
+    //-----------------------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Glyphs features are gathered into one matrix (one row per glyph) so that each chunk of
+     * at most {@code batchSize} glyphs is processed by a single forward pass.
+     * The forward pass is run on a model replica, so that concurrent callers don't contend.
+     */
+    @Override
+    public Evaluation[][] getNaturalEvaluations (List<Glyph> glyphs,
+                                                 int interline)
+    {
+        final Evaluation[][] evals = new Evaluation[glyphs.size()][];
+        final int batchSize = Math.max(1, constants.batchSize.getValue());
+        final Shape[] values = Shape.values();
 
-        synchronized (this) {
-            INDArray output = model.output(features, false);
-            BaseLayer outputLayer = (BaseLayer) model.getOutputLayer();
-            preOutput = outputLayer.preOutput(false);
-        }
+        for (int start = 0; start < evals.length; start += batchSize) {
+            final int stop = Math.min(evals.length, start + batchSize);
+            final INDArray features = getFeatureMatrix(glyphs, start, stop, interline);
+            normalize(features);
+
+            final INDArray preOutput = preOutput(features);
 
-        Evaluation[] evals = new Evaluation[SHAPE_COUNT];
-        Shape[] values = Shape.values();
+            for (int i = start; i < stop; i++) {
+                final Evaluation[] glyphEvals = new Evaluation[SHAPE_COUNT];
+
+                for (int s = 0; s < SHAPE_COUNT; s++) {
+                    // Rather than normalized output
+                    double grade = sigmoid(preOutput.getDouble(i - start, s));
+                    glyphEvals[s] = new Evaluation(values[s], grade);
+                }
 
-        for (int s = 0; s < SHAPE_COUNT; s++) {
-            double grade = sigmoid(preOutput.getDouble(s)); // Rather than normalized output
-            evals[s] = new Evaluation(values[s], grade);
+                evals[i] = glyphEvals;
+            }
         }
 
         return evals;
@@ -244,6 +270,7 @@ public class DeepClassifier
         Collection<IterationListener> listeners = model.getListeners();
         model = createNetwork();
         model.setListeners(listeners);
+        modelChanged();
     }
 
     //--------------//
@@ -324,6 +351,7 @@ public class DeepClassifier
             epochStarted(epoch);
 
             model.fit(dataSet);
+            modelChanged();
 
             // Evaluate
             logger.info("Epoch:{} evaluating on training set...", epoch);
@@ -412,6 +440,87 @@ public class DeepClassifier
         ModelSystemSerializer.writeModel(model, root, false);
     }
 
+    //----------------//
+    // acquireReplica //
+    //----------------//
+    /**
+     * Pick up an idle replica of current model, or clone a new one.
+     *
+     * @return a replica for exclusive use by the caller
+     */
+    private Replica acquireReplica ()
+    {
+        final Replica replica = replicas.poll();
+
+        if (replica != null) {
+            return replica;
+        }
+
+        synchronized (this) {
+            logger.debug("Cloning model replica #{}", modelVersion);
+
+            return new Replica(model.clone(), modelVersion);
+        }
+    }
+
+    //--------------//
+    // modelChanged //
+    //--------------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All replicas are discarded.
+     */
+    @Override
+    protected synchronized void modelChanged ()
+    {
+        super.modelChanged();
+        replicas.clear();
+    }
+
+    //-----------//
+    // preOutput //
+    //-----------//
+    /**
+     * Run a forward pass on the provided features and report output layer values before
+     * their normalization.
+     *
+     * @param features the normalized features, one row per glyph
+     * @return the output values, one row per glyph
+     */
+    private INDArray preOutput (INDArray features)
+    {
+        final Replica replica = acquireReplica();
+
+        try {
+            replica.network.output(features, false);
+
+            final BaseLayer outputLayer = (BaseLayer) replica.network.getOutputLayer();
+
+            return outputLayer.preOutput(false);
+        } finally {
+            releaseReplica(replica);
+        }
+    }
+
+    //----------------//
+    // releaseReplica //
+    //----------------//
+    /**
+     * Give back a replica to the pool, unless it is obsolete or the pool is full.
+     *
+     * @param replica the replica no longer used by the caller
+     */
+    private void releaseReplica (Replica replica)
+    {
+        final int max = constants.maxReplicas.getValue();
+        final int limit = (max > 0) ? max : OmrExecutors.getNumberOfCpus();
+
+        if ((replica.version == modelVersion) && (replicas.size() < limit)) {
+            replicas.offer(replica);
+        }
+    }
+
     //---------//
     // sigmoid //
     //---------//
@@ -532,5 +641,42 @@ public class DeepClassifier
                 "Iterations",
                 2,
                 "Number of iterations on each minibatch");
+
+        private final Constant.Integer batchSize = new Constant.Integer(
+                "Glyphs",
+                256,
+                "Maximum number of glyphs evaluated by a single forward pass");
+
+        private final Constant.Integer maxReplicas = new Constant.Integer(
+                "Replicas",
+                0,
+                "Maximum number of idle model replicas kept for inference (0 for CPU count)");
+    }
+
+    //---------//
+    // Replica //
+    //---------//
+    /**
+     * A copy of the model, used by one inference at a time.
+     * A MultiLayerNetwork keeps layer inputs and activations, hence it cannot run
+     * concurrent forward passes.
+     */
+    private static class Replica
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        /** The model copy. */
+        final MultiLayerNetwork network;
+
+        /** Version of the model this replica was cloned from. */
+        final int version;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        Replica (MultiLayerNetwork network,
+                 int version)
+        {
+            this.network = network;
+            this.version = version;
+        }
     }
 }
@@ -0,0 +1,320 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                 E v a l u a t i o n C a c h e                                  //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.classifier;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.glyph.GlyphSignature;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class {@code EvaluationCache} is a bounded cache of classifier evaluations, meant to
+ * avoid running a classifier again on a glyph physically identical to a glyph already
+ * evaluated.
+ * <p>
+ * An entry is keyed by classifier name and model version, interline value and
+ * {@link GlyphSignature}, and holds the evaluations sorted from best to worst, before any
+ * check.
+ * Since evaluations are mutable (checks may modify them), only copies are exchanged with the
+ * cache.
+ * <p>
+ * The least recently used entries are evicted when the cache is full.
+ * Hit and miss counters are kept for monitoring.
+ * <p>
+ * All methods are synchronized.
+ *
+ * @author Hervé Bitteur
+ */
+public class EvaluationCache
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Constants constants = new Constants();
+
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** Maximum number of entries. */
+    private final int maxEntries;
+
+    /** Entries, in access order. */
+    private final Map<Key, Evaluation[]> map;
+
+    /** Number of successful lookups. */
+    private int hits;
+
+    /** Number of unsuccessful lookups. */
+    private int misses;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code EvaluationCache} object, with default size.
+     */
+    public EvaluationCache ()
+    {
+        this(constants.maxEntries.getValue());
+    }
+
+    /**
+     * Creates a new {@code EvaluationCache} object.
+     *
+     * @param maxEntries maximum number of entries
+     */
+    public EvaluationCache (final int maxEntries)
+    {
+        this.maxEntries = maxEntries;
+
+        map = new LinkedHashMap<Key, Evaluation[]>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry (Map.Entry<Key, Evaluation[]> eldest)
+            {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //-------//
+    // clear //
+    //-------//
+    /**
+     * Remove all entries and reset counters.
+     */
+    public synchronized void clear ()
+    {
+        map.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    //-----//
+    // get //
+    //-----//
+    /**
+     * Retrieve a copy of the cached evaluations, if any, for a glyph signature.
+     *
+     * @param classifier   name of the classifier
+     * @param modelVersion version of the classifier model
+     * @param signature    glyph signature
+     * @param interline    interline used for glyph evaluation
+     * @return a copy of cached evaluations, or null if not found
+     */
+    public synchronized Evaluation[] get (String classifier,
+                                          int modelVersion,
+                                          GlyphSignature signature,
+                                          int interline)
+    {
+        final Evaluation[] evals = map.get(new Key(classifier, modelVersion, signature, interline));
+
+        if (evals == null) {
+            misses++;
+
+            return null;
+        }
+
+        hits++;
+
+        return copy(evals);
+    }
+
+    //-------------//
+    // getHitCount //
+    //-------------//
+    /**
+     * Report the number of successful lookups.
+     *
+     * @return the hit count
+     */
+    public synchronized int getHitCount ()
+    {
+        return hits;
+    }
+
+    //------------//
+    // getHitRate //
+    //------------//
+    /**
+     * Report the ratio of successful lookups.
+     *
+     * @return the hit rate, in [0..1] range
+     */
+    public synchronized double getHitRate ()
+    {
+        final int total = hits + misses;
+
+        return (total == 0) ? 0 : ((double) hits / total);
+    }
+
+    //--------------//
+    // getMissCount //
+    //--------------//
+    /**
+     * Report the number of unsuccessful lookups.
+     *
+     * @return the miss count
+     */
+    public synchronized int getMissCount ()
+    {
+        return misses;
+    }
+
+    //-----//
+    // put //
+    //-----//
+    /**
+     * Record a copy of the evaluations for a glyph signature.
+     *
+     * @param classifier   name of the classifier
+     * @param modelVersion version of the classifier model
+     * @param signature    glyph signature
+     * @param interline    interline used for glyph evaluation
+     * @param evals        the sorted evaluations
+     */
+    public synchronized void put (String classifier,
+                                  int modelVersion,
+                                  GlyphSignature signature,
+                                  int interline,
+                                  Evaluation[] evals)
+    {
+        map.put(new Key(classifier, modelVersion, signature, interline), copy(evals));
+    }
+
+    //------//
+    // size //
+    //------//
+    /**
+     * Report the current number of entries.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size ()
+    {
+        return map.size();
+    }
+
+    //----------//
+    // toString //
+    //----------//
+    @Override
+    public synchronized String toString ()
+    {
+        StringBuilder sb = new StringBuilder(getClass().getSimpleName());
+        sb.append("{");
+        sb.append("entries:").append(map.size()).append("/").append(maxEntries);
+        sb.append(" hits:").append(hits);
+        sb.append(" misses:").append(misses);
+        sb.append(String.format(" rate:%.2f", getHitRate()));
+        sb.append("}");
+
+        return sb.toString();
+    }
+
+    //------//
+    // copy //
+    //------//
+    private static Evaluation[] copy (Evaluation[] evals)
+    {
+        final Evaluation[] copies = new Evaluation[evals.length];
+
+        for (int i = 0; i < evals.length; i++) {
+            final Evaluation eval = evals[i];
+            copies[i] = new Evaluation(eval.shape, eval.grade);
+            copies[i].failure = eval.failure;
+        }
+
+        return copies;
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Integer maxEntries = new Constant.Integer(
+                "Entries",
+                20000,
+                "Maximum number of glyph evaluations cached per sheet and classifier");
+    }
+
+    //-----//
+    // Key //
+    //-----//
+    private static class Key
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        final String classifier;
+
+        final int modelVersion;
+
+        final GlyphSignature signature;
+
+        final int interline;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        Key (String classifier,
+             int modelVersion,
+             GlyphSignature signature,
+             int interline)
+        {
+            this.classifier = classifier;
+            this.modelVersion = modelVersion;
+            this.signature = signature;
+            this.interline = interline;
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        @Override
+        public boolean equals (Object obj)
+        {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            final Key that = (Key) obj;
+
+            return (interline == that.interline) && (modelVersion == that.modelVersion)
+                   && classifier.equals(that.classifier) && signature.equals(that.signature);
+        }
+
+        @Override
+        public int hashCode ()
+        {
+            int hash = 7;
+            hash = (41 * hash) + classifier.hashCode();
+            hash = (41 * hash) + modelVersion;
+            hash = (41 * hash) + interline;
+            hash = (41 * hash) + signature.hashCode();
+
+            return hash;
+        }
+    }
+}
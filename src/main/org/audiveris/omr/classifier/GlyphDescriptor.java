@@ -49,6 +49,16 @@ public abstract class GlyphDescriptor
     /** Descriptor name. */
     private final String name;
 
+    /** Per-thread features buffer. */
+    private final ThreadLocal<double[]> buffers = new ThreadLocal<double[]>()
+    {
+        @Override
+        protected double[] initialValue ()
+        {
+            return new double[length()];
+        }
+    };
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Creates a new {@code GlyphDescriptor} object.
@@ -126,6 +136,39 @@ public abstract class GlyphDescriptor
     public abstract double[] getFeatures (Glyph glyph,
                                           int interline);
 
+    /**
+     * Gather the various features meant to describe a glyph or a shape sample, into a
+     * provided buffer.
+     * <p>
+     * This default implementation copies the result of {@link #getFeatures(Glyph, int)}.
+     * Subclasses are expected to override it, so that no array gets allocated.
+     *
+     * @param glyph     the glyph (or sample) to describe
+     * @param interline the related staff interline
+     * @param features  the buffer to fill, of size length() at least
+     * @return the provided buffer
+     */
+    public double[] getFeatures (Glyph glyph,
+                                 int interline,
+                                 double[] features)
+    {
+        System.arraycopy(getFeatures(glyph, interline), 0, features, 0, length());
+
+        return features;
+    }
+
+    /**
+     * Report the features buffer dedicated to the current thread.
+     * <p>
+     * Its content is overwritten by the next use on the same thread, it must not be kept.
+     *
+     * @return the thread features buffer, of size length()
+     */
+    public double[] getFeatureBuffer ()
+    {
+        return buffers.get();
+    }
+
     /**
      * Report a name for this descriptor
      *
@@ -41,6 +41,16 @@ public class ImgGlyphDescriptor
 
     private static final Logger logger = LoggerFactory.getLogger(ImgGlyphDescriptor.class);
 
+    /** Per-thread target buffer. */
+    private static final ThreadLocal<ByteProcessor> targets = new ThreadLocal<ByteProcessor>()
+    {
+        @Override
+        protected ByteProcessor initialValue ()
+        {
+            return new ByteProcessor(ScaledBuffer.WIDTH, ScaledBuffer.HEIGHT);
+        }
+    };
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Creates a new {@code ImgGlyphDescriptor} object.
@@ -61,17 +71,20 @@ public class ImgGlyphDescriptor
     public double[] getFeatures (Glyph glyph,
                                  int interline)
     {
-        final ByteProcessor buffer = ScaledBuffer.getBuffer(glyph, interline);
-        buffer.invert(); // 0 for background, 255 for foreground
+        return getFeatures(glyph, interline, new double[length()]);
+    }
 
-        // Layout: row by row
-        final double[] doubles = new double[length()];
-        int i = 0;
+    @Override
+    public double[] getFeatures (Glyph glyph,
+                                 int interline,
+                                 double[] doubles)
+    {
+        final ByteProcessor buffer = ScaledBuffer.getBuffer(glyph, interline, targets.get());
+        final byte[] pixels = (byte[]) buffer.getPixels();
 
-        for (int y = 0; y < ScaledBuffer.HEIGHT; y++) {
-            for (int x = 0; x < ScaledBuffer.WIDTH; x++) {
-                doubles[i++] = buffer.get(x, y);
-            }
+        // Layout: row by row, using 0 for background, 255 for foreground
+        for (int i = 0, iBreak = length(); i < iBreak; i++) {
+            doubles[i] = 255 - (pixels[i] & 0xFF);
         }
 
         return doubles;
@@ -65,7 +65,14 @@ public class MixGlyphDescriptor
     public double[] getFeatures (Glyph glyph,
                                  int interline)
     {
-        double[] ins = new double[LENGTH];
+        return getFeatures(glyph, interline, new double[LENGTH]);
+    }
+
+    @Override
+    public double[] getFeatures (Glyph glyph,
+                                 int interline,
+                                 double[] ins)
+    {
         ARTMoments arts = glyph.getARTMoments();
         int i = 0;
 
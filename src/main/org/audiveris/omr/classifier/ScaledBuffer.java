@@ -60,6 +60,22 @@ public class ScaledBuffer
      */
     public static ByteProcessor getBuffer (Glyph glyph,
                                            int interline)
+    {
+        return getBuffer(glyph, interline, new ByteProcessor(WIDTH, HEIGHT));
+    }
+
+    /**
+     * Compute the scaled buffer for the provided glyph, using related staff interline
+     * value, into the provided target buffer.
+     *
+     * @param glyph     the source glyph
+     * @param interline the related staff interline
+     * @param buffer    the WIDTH*HEIGHT target buffer, to be overwritten
+     * @return the target buffer using 0 for black (foreground) and 255 for white (background)
+     */
+    public static ByteProcessor getBuffer (Glyph glyph,
+                                           int interline,
+                                           ByteProcessor buffer)
     {
         final RunTable runTable = glyph.getRunTable();
         final ByteProcessor glyphBuffer = runTable.getBuffer();
@@ -81,7 +97,6 @@ public class ScaledBuffer
         final int targetDx = (int) Math.rint(dx * scale); // Scaled x shift
         final int targetDy = (int) Math.rint(dy * scale); // Scaled y shift
 
-        final ByteProcessor buffer = new ByteProcessor(WIDTH, HEIGHT); // Same dim for any symbol
         ByteUtil.raz(buffer); // Correct
         ///ByteUtil.fill(targetBuffer, 100); // Not correct, just meant to visualize limits...
 
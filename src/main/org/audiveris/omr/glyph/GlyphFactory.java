@@ -24,7 +24,6 @@ package org.audiveris.omr.glyph;
 import ij.process.ByteProcessor;
 
 import org.audiveris.omr.glyph.Symbol.Group;
-import org.audiveris.omr.run.MarkedRun;
 import static org.audiveris.omr.run.Orientation.VERTICAL;
 import org.audiveris.omr.run.Run;
 import org.audiveris.omr.run.RunTable;
@@ -37,12 +36,10 @@ import org.slf4j.LoggerFactory;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
 /**
  * Class {@code GlyphFactory} builds a collection of glyphs out of a provided {@link
@@ -53,6 +50,10 @@ import java.util.Map.Entry;
  * <p>
  * Comments refer to 'sequences', which are synonymous of columns for vertical runs, and of rows
  * for horizontal runs.
+ * <p>
+ * All runs are copied into flat arrays, and the connectivity between run labels is recorded in an
+ * array-based union-find structure, with path compression.
+ * Each label is linked to a smaller one, so that the root of any glyph is its smallest label.
  *
  * @author Hervé Bitteur
  */
@@ -75,17 +76,26 @@ public class GlyphFactory
     /** Global list of all glyphs created. */
     private final List<Glyph> created = new ArrayList<Glyph>();
 
-    /** Global id to assign glyph marks. */
+    /** Global id to assign glyph labels. */
     private int globalMark;
 
-    /** Specific run table implementation, meant for marking runs. */
-    private final List<List<MarkedRun>> markedTable;
+    /** Number of runs. */
+    private int runCount;
+
+    /** Start of each run. */
+    private int[] starts;
+
+    /** Length of each run. */
+    private int[] lengths;
 
-    /** Merges (child => parent). (numerical invariant: child > parent) */
-    private final Map<Integer, Integer> merges = new HashMap<Integer, Integer>();
+    /** Label of each run. */
+    private int[] marks;
 
-    /** Most efficient way to use merging information. */
-    private int[] lut;
+    /** Index of first run for each sequence, plus a last cell for the runs count. */
+    private final int[] seqFirst;
+
+    /** Union-find parent of each label. (numerical invariant: child >= parent) */
+    private int[] parents;
 
     //~ Constructors -------------------------------------------------------------------------------
     private GlyphFactory (RunTable runTable,
@@ -96,12 +106,12 @@ public class GlyphFactory
         this.offset = (offset != null) ? offset : new Point(0, 0);
         this.group = group;
 
-        // Allocate & initialize markedTable
-        markedTable = new ArrayList<List<MarkedRun>>(runTable.getSize());
-
-        for (int iseq = 0, size = runTable.getSize(); iseq < size; iseq++) {
-            markedTable.add(new ArrayList<MarkedRun>());
-        }
+        final int total = runTable.getTotalRunCount();
+        starts = new int[total];
+        lengths = new int[total];
+        marks = new int[total];
+        seqFirst = new int[runTable.getSize() + 1];
+        parents = new int[Math.max(16, total + 1)]; // Cell #0 is not used
     }
 
     //~ Methods ------------------------------------------------------------------------------------
@@ -164,69 +174,80 @@ public class GlyphFactory
     }
 
     /**
-     * Build all the ancestor glyphs from the markedTable.
+     * Build all the ancestor glyphs, in the order of their root label.
      */
     private void buildAllGlyphs ()
     {
-        logger.debug("glyphs: {}", globalMark - merges.size());
+        // Resolve each label to its root, and assign a glyph index to each root
+        final int[] glyphOf = new int[globalMark + 1];
+        int glyphCount = 0;
 
-        // Allocate & initialize glyph bufs
-        final List<List<Sequence>> bufs = new ArrayList<List<Sequence>>(lut.length);
-
-        for (int i = 0, len = lut.length; i < len; i++) {
-            if ((i > 0) && (lut[i] == i)) {
-                bufs.add(new ArrayList<Sequence>());
-            } else {
-                bufs.add(null);
-            }
+        for (int mark = 1; mark <= globalMark; mark++) {
+            final int root = find(mark);
+            glyphOf[mark] = (root == mark) ? glyphCount++ : glyphOf[root];
         }
 
-        // Dispatch each run to its proper glyph buffer
-        for (int iSeq = 0, size = runTable.getSize(); iSeq < size; iSeq++) {
-            final List<MarkedRun> seq = markedTable.get(iSeq);
+        logger.debug("glyphs: {}", glyphCount);
 
-            for (MarkedRun run : seq) {
-                final int ancestor = lut[run.getMark()];
-                final List<Sequence> buf = bufs.get(ancestor);
+        // Count runs per glyph (counting sort), keeping runs in table order within a glyph
+        final int[] glyphFirst = new int[glyphCount + 1];
 
-                if (buf.isEmpty() || (buf.get(buf.size() - 1).iSeq != iSeq)) {
-                    buf.add(new Sequence(iSeq));
-                }
+        for (int i = 0; i < runCount; i++) {
+            glyphFirst[glyphOf[marks[i]] + 1]++;
+        }
 
-                final Sequence bufSeq = buf.get(buf.size() - 1);
-                bufSeq.runs.add(run);
-            }
+        for (int g = 0; g < glyphCount; g++) {
+            glyphFirst[g + 1] += glyphFirst[g];
         }
 
-        // Each allocated buf corresponds to one separated glyph
-        for (int i = 1, len = lut.length; i < len; i++) {
-            final List<Sequence> buf = bufs.get(i);
+        final int[] cursors = Arrays.copyOf(glyphFirst, glyphCount);
+        final int[] order = new int[runCount];
+        final int[] runSeq = new int[runCount];
 
-            if (buf != null) {
-                buildGlyph(i, buf);
+        for (int iSeq = 0, size = runTable.getSize(); iSeq < size; iSeq++) {
+            for (int i = seqFirst[iSeq], iBreak = seqFirst[iSeq + 1]; i < iBreak; i++) {
+                order[cursors[glyphOf[marks[i]]]++] = i;
+                runSeq[i] = iSeq;
             }
         }
+
+        // Scratch buffers for one glyph sequence
+        final int[] seqStarts = new int[Math.max(1, runCount)];
+        final int[] seqLengths = new int[Math.max(1, runCount)];
+
+        for (int g = 0; g < glyphCount; g++) {
+            buildGlyph(order, glyphFirst[g], glyphFirst[g + 1], runSeq, seqStarts, seqLengths);
+        }
     }
 
     /**
-     * Build the glyph for provided ancestor mark.
+     * Build the glyph composed of the provided runs.
      *
-     * @param mark the mark value for this ancestor glyph
-     * @param buf  its populated sequences of runs
+     * @param order      run indices, sorted by glyph then in table order
+     * @param from       index in order of first glyph run
+     * @param to         index in order past last glyph run
+     * @param runSeq     sequence index of each run
+     * @param seqStarts  scratch buffer for run starts
+     * @param seqLengths scratch buffer for run lengths
      */
-    private void buildGlyph (int mark,
-                             List<Sequence> buf)
+    private void buildGlyph (int[] order,
+                             int from,
+                             int to,
+                             int[] runSeq,
+                             int[] seqStarts,
+                             int[] seqLengths)
     {
-        // Determine glyph bounds within buf
-        final int iSeqMin = buf.get(0).iSeq;
-        final int iSeqMax = buf.get(buf.size() - 1).iSeq;
+        // Determine glyph bounds
+        final int iSeqMin = runSeq[order[from]];
+        final int iSeqMax = runSeq[order[to - 1]];
 
         int startMin = Integer.MAX_VALUE;
         int stopMax = 0;
 
-        for (Sequence seq : buf) {
-            startMin = Math.min(startMin, seq.runs.get(0).getStart());
-            stopMax = Math.max(stopMax, seq.runs.get(seq.runs.size() - 1).getStop());
+        for (int k = from; k < to; k++) {
+            final int i = order[k];
+            startMin = Math.min(startMin, starts[i]);
+            stopMax = Math.max(stopMax, (starts[i] + lengths[i]) - 1);
         }
 
         final int dx = (runTable.getOrientation() == VERTICAL) ? iSeqMin : startMin;
@@ -239,13 +260,21 @@ public class GlyphFactory
         // Allocate table with proper dimension
         RunTable table = new RunTable(runTable.getOrientation(), width, height);
 
-        // Populate table with RLE sequences
-        for (Sequence seq : buf) {
-            for (MarkedRun run : seq.runs) {
-                run.setStart(run.getStart() - startMin);
+        // Populate table with RLE sequences, one sequence at a time
+        int k = from;
+
+        while (k < to) {
+            final int iSeq = runSeq[order[k]];
+            int count = 0;
+
+            for (; (k < to) && (runSeq[order[k]] == iSeq); k++) {
+                final int i = order[k];
+                seqStarts[count] = starts[i] - startMin;
+                seqLengths[count] = lengths[i];
+                count++;
             }
 
-            table.setSequence(seq.iSeq - iSeqMin, seq.runs);
+            table.setSequence(iSeq - iSeqMin, seqStarts, seqLengths, count);
         }
 
         // Store created glyph
@@ -255,175 +284,129 @@ public class GlyphFactory
     }
 
     /**
-     * Build a LUT to provide, for any run mark, the mark of its containing ancestor.
+     * Report the root label of the provided label, compressing the path on the way.
+     *
+     * @param mark the provided label
+     * @return the root label (the smallest label of the glyph so far)
      */
-    private void createLut ()
+    private int find (int mark)
     {
-        lut = new int[1 + globalMark]; // Cell #0 is not used
+        int root = mark;
 
-        for (int i = 0; i <= globalMark; i++) {
-            lut[i] = i;
+        while (parents[root] != root) {
+            root = parents[root];
         }
 
-        // Make any redirected child point directly to its ultimate ancestor
-        for (Entry<Integer, Integer> entry : merges.entrySet()) {
-            int child = entry.getKey();
-            Integer parent = entry.getValue();
-            Integer ancestor;
+        // Path compression
+        while (parents[mark] != root) {
+            final int next = parents[mark];
+            parents[mark] = root;
+            mark = next;
+        }
+
+        return root;
+    }
 
-            do { // Walk down the merges path
-                ancestor = parent;
-                parent = merges.get(parent);
-            } while (parent != null);
+    /**
+     * Remember that runs labeled with 'one' or 'two' values belong to the same glyph.
+     * The larger root gets linked to the smaller one.
+     *
+     * @param one a label value
+     * @param two another label value
+     */
+    private void merge (int one,
+                       int two)
+    {
+        final int r1 = find(one);
+        final int r2 = find(two);
 
-            lut[child] = ancestor;
+        if (r1 < r2) {
+            parents[r2] = r1;
+        } else if (r2 < r1) {
+            parents[r1] = r2;
         }
     }
 
     /**
-     * Remember that runs marked with 'max' or 'min' values belong to the same glyph.
-     * This equivalence is recorded only in the max => min direction.
+     * Allocate a new label.
      *
-     * @param max the larger mark value
-     * @param min the smaller mark value
+     * @return the new label
      */
-    private void merge (int max,
-                        int min)
+    private int newMark ()
     {
-        Integer old = merges.get(max);
-
-        if (old == null) {
-            merges.put(max, min); // Target is max=>min
-        } else if (min > old) { // Target is max=>min---old
-            merge(min, old);
-            merges.put(max, min);
-        } else if (old != min) {
-            merge(old, min); // Target is max=>old---min
+        if (++globalMark == parents.length) {
+            parents = Arrays.copyOf(parents, 2 * parents.length);
         }
+
+        parents[globalMark] = globalMark;
+
+        return globalMark;
     }
 
     /**
      * Retrieve all glyphs from the provided table of runs.
      *
-     * @param runTable the table of runs
      * @return the list of created glyphs
      */
     private List<Glyph> process ()
     {
-        //        StopWatch watch = new StopWatch("GlyphFactory");
-        //
-        //        try {
-        //            watch.start("scan");
         scanTable();
-        //
-        //            watch.start("lut");
-        createLut();
-        //
-        //            watch.start("glyphs");
         buildAllGlyphs();
 
         return created;
-
-        //        } finally {
-        //            watch.print();
-        //        }
     }
 
     /**
-     * Populate the 'markedTable', a temporary representation of runs with their
-     * connectivity recorded in 'merges'.
+     * Populate the flat run arrays, with their connectivity recorded in union-find structure.
      * <p>
      * Browse the sequences of the input run table, detect run overlap from one sequence to the
-     * next, and flag each run with proper glyph mark.
+     * next, and flag each run with proper glyph label.
      */
     private void scanTable ()
     {
         // Scan each pair of consecutive sequences
         for (int iSeq = 0, size = runTable.getSize(); iSeq < size; iSeq++) {
-            final List<MarkedRun> prevSeq = (iSeq > 0) ? markedTable.get(iSeq - 1) : null;
-            final List<MarkedRun> nextSeq = markedTable.get(iSeq);
-            final int maxPIdx = (iSeq > 0) ? (prevSeq.size() - 1) : (-1);
-            int pIdxActive = 0; // Active run index in prev sequence
+            final int pBreak = runCount; // Past last run of prev sequence
+            int pIdxActive = (iSeq > 0) ? seqFirst[iSeq - 1] : 0; // Active run in prev sequence
+            seqFirst[iSeq] = runCount;
 
             for (Iterator<Run> it = runTable.iterator(iSeq); it.hasNext();) {
-                // Allocate the MarkedRun that corresponds to current Run
+                // Record the current run
                 final Run run = it.next();
                 final int nextStart = run.getStart();
                 final int nextStop = run.getStop();
-                final MarkedRun nextRun = new MarkedRun(nextStart, run.getLength(), 0);
-                nextSeq.add(nextRun);
+                final int n = runCount++;
+                starts[n] = nextStart;
+                lengths[n] = run.getLength();
+
+                int nextMark = 0;
 
-                // Browse marked runs from previous sequence
-                for (int pIdx = pIdxActive; pIdx <= maxPIdx; pIdx++) {
-                    final MarkedRun prevRun = prevSeq.get(pIdx);
+                // Browse runs from previous sequence
+                for (int pIdx = pIdxActive; pIdx < pBreak; pIdx++) {
+                    final int prevStart = starts[pIdx];
 
-                    if (prevRun.getStart() > nextStop) {
+                    if (prevStart > nextStop) {
                         break;
                     }
 
-                    if (prevRun.getStop() >= nextStart) {
-                        final int prevMark = prevRun.getMark();
-                        final int nextMark = nextRun.getMark();
+                    if (((prevStart + lengths[pIdx]) - 1) >= nextStart) {
+                        final int prevMark = marks[pIdx];
 
                         if (nextMark == 0) {
-                            nextRun.setMark(prevMark);
-                        } else {
-                            final int min = Math.min(prevMark, nextMark);
-                            final int max = Math.max(prevMark, nextMark);
-
-                            if (min != max) {
-                                merge(max, min); // Record equivalence between these 2 marks
-                            }
+                            nextMark = prevMark;
+                        } else if (prevMark != nextMark) {
+                            merge(prevMark, nextMark); // Record equivalence between these 2 labels
                         }
 
                         pIdxActive = pIdx;
                     }
                 }
 
-                // No overlap found, hence use a new mark
-                if (nextRun.getMark() == 0) {
-                    nextRun.setMark(++globalMark);
-                }
+                // No overlap found, hence use a new label
+                marks[n] = (nextMark != 0) ? nextMark : newMark();
             }
         }
-    }
-
-    //~ Inner Classes ------------------------------------------------------------------------------
-    //----------//
-    // Sequence //
-    //----------//
-    /**
-     * A sequence of marked runs, that all belong to the same glyph, together with the
-     * sequence index in runTable.
-     */
-    private static class Sequence
-    {
-        //~ Instance fields ------------------------------------------------------------------------
 
-        final int iSeq; // Index in runTable
-
-        final List<MarkedRun> runs = new ArrayList<MarkedRun>(); // Sequence of glyph marked runs
-
-        //~ Constructors ---------------------------------------------------------------------------
-        public Sequence (int iSeq)
-        {
-            this.iSeq = iSeq;
-        }
+        seqFirst[runTable.getSize()] = runCount;
     }
 }
-//
-//        private void dumpTable (String title)
-//        {
-//            System.out.println(title);
-//
-//            for (int iSeq = 0, size = markedTable.size(); iSeq < size; iSeq++) {
-//                System.out.println("iSeq = " + iSeq);
-//
-//                List<MarkedRun> seq = markedTable.get(iSeq);
-//
-//                for (MarkedRun run : seq) {
-//                    System.out.println("   run = " + run);
-//                }
-//            }
-//        }
-//
@@ -26,6 +26,7 @@ import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Symbol.Group;
 import org.audiveris.omr.glyph.ui.GlyphService;
+import org.audiveris.omr.math.GeoGrid;
 import org.audiveris.omr.sheet.Sheet;
 import org.audiveris.omr.ui.selection.EntityListEvent;
 import org.audiveris.omr.ui.selection.EntityService;
@@ -44,6 +45,7 @@ import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -60,6 +62,10 @@ import javax.xml.bind.annotation.XmlRootElement;
 /**
  * Class {@code GlyphIndex} implements an index of (weak references to) Glyph instances.
  * <p>
+ * Besides the index by ID, a sheet-wide spatial index (keyed by glyph ID) is maintained to speed up
+ * rectangle and point lookups. Since glyphs are only weakly referenced, spatial entries whose glyph
+ * has been reclaimed are purged when encountered.
+ * <p>
  * TODO: investigate whether the notion of Group could be dropped.
  *
  * @author Hervé Bitteur
@@ -94,6 +100,14 @@ public class GlyphIndex
     /** Collection of original glyph instances, non sorted. */
     private final ConcurrentHashMap<WeakGlyph, WeakGlyph> originals = new ConcurrentHashMap<WeakGlyph, WeakGlyph>();
 
+    /** Spatial index of glyph IDs, based on glyph bounds. */
+    private final GeoGrid<Integer> grid = new GeoGrid<Integer>(
+            constants.gridCellSize.getValue(),
+            constants.gridMaxCells.getValue());
+
+    /** Number of registrations since last purge of spatial index. */
+    private int registrationsSincePurge;
+
     /** Selection service, if any. */
     private EntityService<Glyph> glyphService;
 
@@ -149,7 +163,7 @@ public class GlyphIndex
      * in a provided rectangle.
      *
      * @param rect  the coordinates rectangle
-     * @param group the containing glyph group
+     * @param group the containing glyph group, or null for any group
      * @return the list of glyph instances found, perhaps empty but not null
      */
     public Set<Glyph> containedGlyphs (Rectangle rect,
@@ -157,10 +171,30 @@ public class GlyphIndex
     {
         Set<Glyph> set = new LinkedHashSet<Glyph>();
 
-        for (Iterator<Glyph> it = iterator(); it.hasNext();) {
-            Glyph glyph = it.next();
+        for (Glyph glyph : glyphsNear(rect)) {
+            if (((group == null) || glyph.hasGroup(group)) && rect.contains(glyph.getBounds())) {
+                set.add(glyph);
+            }
+        }
+
+        return set;
+    }
+
+    //------------------//
+    // containingGlyphs //
+    //------------------//
+    /**
+     * Look up for <b>all</b> glyph instances that contain the provided point.
+     *
+     * @param point the provided point
+     * @return the glyph instances found, perhaps empty but not null
+     */
+    public Set<Glyph> containingGlyphs (Point point)
+    {
+        Set<Glyph> set = new LinkedHashSet<Glyph>();
 
-            if (glyph.hasGroup(group) && rect.contains(glyph.getBounds())) {
+        for (Glyph glyph : glyphsNear(new Rectangle(point.x, point.y, 1, 1))) {
+            if (glyph.contains(point)) {
                 set.add(glyph);
             }
         }
@@ -274,7 +308,7 @@ public class GlyphIndex
      * intersected by the provided rectangle.
      *
      * @param rect  the coordinates rectangle
-     * @param group the containing glyph group
+     * @param group the containing glyph group, or null for any group
      * @return the glyph instances found, which may be an empty list
      */
     public Set<Glyph> intersectedGlyphs (Rectangle rect,
@@ -282,10 +316,8 @@ public class GlyphIndex
     {
         Set<Glyph> set = new LinkedHashSet<Glyph>();
 
-        for (Iterator<Glyph> it = iterator(); it.hasNext();) {
-            Glyph glyph = it.next();
-
-            if (glyph.hasGroup(group) && rect.intersects(glyph.getBounds())) {
+        for (Glyph glyph : glyphsNear(rect)) {
+            if (((group == null) || glyph.hasGroup(group)) && rect.intersects(glyph.getBounds())) {
                 set.add(glyph);
             }
         }
@@ -322,9 +354,7 @@ public class GlyphIndex
      */
     public Glyph lookupVirtualGlyph (Point point)
     {
-        for (Iterator<Glyph> it = iterator(); it.hasNext();) {
-            Glyph glyph = it.next();
-
+        for (Glyph glyph : glyphsNear(new Rectangle(point.x, point.y, 1, 1))) {
             if (glyph.hasGroup(Group.DROP) && glyph.getBounds().contains(point)) {
                 return glyph;
             }
@@ -413,6 +443,7 @@ public class GlyphIndex
 
         // Remove from global index
         weakIndex.remove(weak);
+        grid.remove(glyph.getId());
     }
 
     //-------//
@@ -423,6 +454,7 @@ public class GlyphIndex
     {
         weakIndex.reset();
         originals.clear();
+        grid.clear();
     }
 
     //-------------//
@@ -434,6 +466,7 @@ public class GlyphIndex
             WeakGlyph weak = new WeakGlyph(glyph);
             weakIndex.insert(weak);
             originals.putIfAbsent(weak, weak);
+            grid.insert(glyph.getId(), glyph.getBounds());
         }
     }
 
@@ -456,6 +489,57 @@ public class GlyphIndex
         weakIndex.setLastId(lastId);
     }
 
+    //------------//
+    // glyphsNear //
+    //------------//
+    /**
+     * Report the live glyphs whose bounds may intersect the provided rectangle, sorted by
+     * ID as a browsing of the whole index would do.
+     * Spatial entries of reclaimed glyphs are purged on the fly.
+     *
+     * @param rect the lookup rectangle
+     * @return the candidate glyphs
+     */
+    private List<Glyph> glyphsNear (Rectangle rect)
+    {
+        final List<Integer> ids = grid.candidates(rect);
+        Collections.sort(ids);
+
+        final List<Glyph> glyphs = new ArrayList<Glyph>(ids.size());
+
+        for (Integer id : ids) {
+            final WeakGlyph weak = weakIndex.getEntity(id);
+            final Glyph glyph = (weak != null) ? weak.get() : null;
+
+            if (glyph != null) {
+                glyphs.add(glyph);
+            } else {
+                grid.remove(id);
+            }
+        }
+
+        return glyphs;
+    }
+
+    //-----------//
+    // purgeGrid //
+    //-----------//
+    /**
+     * Remove from spatial index the entries of all reclaimed glyphs.
+     */
+    private void purgeGrid ()
+    {
+        registrationsSincePurge = 0;
+
+        for (Integer id : grid.items()) {
+            final WeakGlyph weak = weakIndex.getEntity(id);
+
+            if ((weak == null) || (weak.get() == null)) {
+                grid.remove(id);
+            }
+        }
+    }
+
     //-----------------//
     // privateRegister //
     //-----------------//
@@ -475,6 +559,11 @@ public class GlyphIndex
 
             // Register in index
             id = weakIndex.register(weak);
+            grid.insert(id, glyph.getBounds());
+
+            if (++registrationsSincePurge >= constants.gridPurgePeriod.getValue()) {
+                purgeGrid();
+            }
 
             glyph.setIndex(this);
         }
@@ -494,6 +583,21 @@ public class GlyphIndex
         private final Constant.String vipGlyphs = new Constant.String(
                 "",
                 "(Debug) Comma-separated values of VIP glyphs IDs");
+
+        private final Constant.Integer gridCellSize = new Constant.Integer(
+                "pixels",
+                64,
+                "Cell side of spatial index on glyphs");
+
+        private final Constant.Integer gridMaxCells = new Constant.Integer(
+                "cells",
+                256,
+                "Maximum number of index cells for one glyph");
+
+        private final Constant.Integer gridPurgePeriod = new Constant.Integer(
+                "glyphs",
+                10000,
+                "Number of glyph registrations between purges of spatial index");
     }
 
     //----------------//
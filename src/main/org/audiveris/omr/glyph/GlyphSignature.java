@@ -23,6 +23,8 @@ package org.audiveris.omr.glyph;
 
 import org.audiveris.omr.moments.GeometricMoments;
 
+import java.util.Arrays;
+
 /**
  * Class {@code GlyphSignature} is used to implement a map of glyphs,
  * based only on their physical properties.
@@ -129,6 +131,10 @@ public class GlyphSignature
         int hash = 7;
         hash = (41 * hash) + this.weight;
 
+        if (moments != null) {
+            hash = (41 * hash) + Arrays.hashCode(moments.getValues());
+        }
+
         return hash;
     }
 
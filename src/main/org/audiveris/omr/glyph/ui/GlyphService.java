@@ -23,6 +23,7 @@ package org.audiveris.omr.glyph.ui;
 
 import org.audiveris.omr.glyph.Glyph;
 import org.audiveris.omr.glyph.GlyphFactory;
+import org.audiveris.omr.glyph.GlyphIndex;
 import org.audiveris.omr.glyph.Glyphs;
 import org.audiveris.omr.ui.ViewParameters;
 import org.audiveris.omr.ui.selection.EntityListEvent;
@@ -34,12 +35,12 @@ import org.audiveris.omr.ui.selection.SelectionHint;
 import static org.audiveris.omr.ui.selection.SelectionHint.*;
 import org.audiveris.omr.ui.selection.SelectionService;
 import org.audiveris.omr.ui.selection.UserEvent;
-import org.audiveris.omr.util.Entities;
 import org.audiveris.omr.util.EntityIndex;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -104,6 +105,32 @@ public class GlyphService
         }
     }
 
+    //-----------------//
+    // lookupContained //
+    //-----------------//
+    @Override
+    protected Set<Glyph> lookupContained (Rectangle rect)
+    {
+        if (index instanceof GlyphIndex) {
+            return ((GlyphIndex) index).containedGlyphs(rect, null);
+        }
+
+        return super.lookupContained(rect);
+    }
+
+    //------------------//
+    // lookupContaining //
+    //------------------//
+    @Override
+    protected Set<Glyph> lookupContaining (Point point)
+    {
+        if (index instanceof GlyphIndex) {
+            return ((GlyphIndex) index).containingGlyphs(point);
+        }
+
+        return super.lookupContaining(point);
+    }
+
     //-------------//
     // handleEvent //
     //-------------//
@@ -135,12 +162,12 @@ public class GlyphService
 
         if ((rect.width > 0) && (rect.height > 0)) {
             // Non-degenerated rectangle: look for contained entities
-            found = Entities.containedEntities(index.iterator(), rect);
+            found = lookupContained(rect);
             publish(
                     new EntityListEvent<Glyph>(this, hint, movement, new ArrayList<Glyph>(found)));
         } else {
             // Just a point: look for smallest containing entity
-            found = Entities.containingEntities(index.iterator(), rect.getLocation());
+            found = lookupContaining(rect.getLocation());
 
             // Specific behavior for displayed glyph
             ArrayList<Glyph> list = new ArrayList<Glyph>(found);
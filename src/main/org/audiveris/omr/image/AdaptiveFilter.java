@@ -159,22 +159,27 @@ public abstract class AdaptiveFilter
     //---------------//
     // filteredImage //
     //---------------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The image is processed as horizontal bands, perhaps in parallel (see {@link #filterBand}).
+     */
     @Override
     public ByteProcessor filteredImage ()
     {
-        ByteProcessor ip = new ByteProcessor(source.getWidth(), source.getHeight());
-
-        for (int x = 0, w = ip.getWidth(); x < w; x++) {
-            for (int y = 0, h = ip.getHeight(); y < h; y++) {
-                if (isFore(x, y)) {
-                    ip.set(x, y, FOREGROUND);
-                } else {
-                    ip.set(x, y, BACKGROUND);
-                }
+        return FilterBands.filteredImage(
+                source.getWidth(),
+                source.getHeight(),
+                new FilterBands.Band()
+        {
+            @Override
+            public void process (ByteProcessor target,
+                                 int yStart,
+                                 int yStop)
+            {
+                filterBand(target, yStart, yStop);
             }
-        }
-
-        return ip;
+        });
     }
 
     //------------//
@@ -234,6 +239,34 @@ public abstract class AdaptiveFilter
         return isFore;
     }
 
+    //------------//
+    // filterBand //
+    //------------//
+    /**
+     * Populate rows [yStart, yStop) of target image.
+     * <p>
+     * This default implementation reads this filter tiles directly, hence it can be called
+     * concurrently on different bands only if these tiles are thread-safe.
+     *
+     * @param target the image to populate
+     * @param yStart first row of the band
+     * @param yStop  row just past the band
+     */
+    protected void filterBand (ByteProcessor target,
+                               int yStart,
+                               int yStop)
+    {
+        for (int x = 0, w = target.getWidth(); x < w; x++) {
+            for (int y = yStart; y < yStop; y++) {
+                if (isFore(x, y)) {
+                    target.set(x, y, FOREGROUND);
+                } else {
+                    target.set(x, y, BACKGROUND);
+                }
+            }
+        }
+    }
+
     //------------------//
     // getAdaptiveClass //
     //------------------//
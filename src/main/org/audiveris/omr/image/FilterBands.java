@@ -0,0 +1,208 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                     F i l t e r B a n d s                                      //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Class {@code FilterBands} drives the binarization of a whole image as a sequence of
+ * horizontal bands, processed in parallel on the high-priority pool when possible.
+ * <p>
+ * Each band writes only its own rows of the target image, so the result does not depend on the
+ * number of bands. A filter that needs pixel context beyond its band (such as an adaptive window)
+ * is responsible for reading the rows around the band.
+ *
+ * @author Hervé Bitteur
+ */
+class FilterBands
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(FilterBands.class);
+
+    //~ Constructors -------------------------------------------------------------------------------
+    private FilterBands ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //---------------//
+    // filteredImage //
+    //---------------//
+    /**
+     * Build the filtered image, band after band or all bands in parallel.
+     *
+     * @param width  image width
+     * @param height image height
+     * @param band   the processing of one band
+     * @return the filtered image
+     */
+    static ByteProcessor filteredImage (int width,
+                                        int height,
+                                        final Band band)
+    {
+        final ByteProcessor ip = new ByteProcessor(width, height);
+        final int count = getBandCount(height);
+
+        if (count <= 1) {
+            band.process(ip, 0, height);
+
+            return ip;
+        }
+
+        logger.debug("Filtering {}x{} image in {} bands", width, height, count);
+
+        final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+
+        for (int i = 0; i < count; i++) {
+            final int yStart = (int) (((long) height * i) / count);
+            final int yStop = (int) (((long) height * (i + 1)) / count);
+            tasks.add(
+                    new Callable<Void>()
+            {
+                @Override
+                public Void call ()
+                        throws Exception
+                {
+                    band.process(ip, yStart, yStop);
+
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Void> future : OmrExecutors.getHighExecutor().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Filtering interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Error filtering band", ex.getCause());
+        }
+
+        return ip;
+    }
+
+    //-------------//
+    // extractRows //
+    //-------------//
+    /**
+     * Copy rows [yMin, yMax) of source image into a new image.
+     * <p>
+     * Source is only read, so that several bands can be extracted concurrently.
+     *
+     * @param source the source image
+     * @param yMin   first row to copy
+     * @param yMax   row just past the last row to copy
+     * @return the new image, with row yMin of source as its row 0
+     */
+    static ByteProcessor extractRows (ByteProcessor source,
+                                      int yMin,
+                                      int yMax)
+    {
+        final int width = source.getWidth();
+        final byte[] pixels = new byte[width * (yMax - yMin)];
+        System.arraycopy(source.getPixels(), width * yMin, pixels, 0, pixels.length);
+
+        return new ByteProcessor(width, yMax - yMin, pixels, null);
+    }
+
+    //--------------//
+    // getBandCount //
+    //--------------//
+    /**
+     * Report how many bands an image of provided height should be split into.
+     *
+     * @param height image height
+     * @return the number of bands, 1 for sequential processing
+     */
+    private static int getBandCount (int height)
+    {
+        if (!constants.parallelBands.isSet() || !OmrExecutors.defaultParallelism.getTarget()) {
+            return 1;
+        }
+
+        final int minHeight = Math.max(1, constants.minBandHeight.getValue());
+
+        return Math.max(1, Math.min(OmrExecutors.getNumberOfCpus(), height / minHeight));
+    }
+
+    //~ Inner Interfaces ---------------------------------------------------------------------------
+    //------//
+    // Band //
+    //------//
+    /**
+     * Filtering of one horizontal band.
+     */
+    interface Band
+    {
+        //~ Methods --------------------------------------------------------------------------------
+
+        /**
+         * Write the filtered pixels of rows [yStart, yStop) into target image.
+         * This must write nothing outside these rows.
+         *
+         * @param target the image to populate
+         * @param yStart first row of the band
+         * @param yStop  row just past the band
+         */
+        void process (ByteProcessor target,
+                      int yStart,
+                      int yStop);
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Boolean parallelBands = new Constant.Boolean(
+                true,
+                "Should binarization process image bands in parallel?");
+
+        private final Constant.Integer minBandHeight = new Constant.Integer(
+                "Pixels",
+                256,
+                "Minimum height of a band for parallel binarization");
+    }
+}
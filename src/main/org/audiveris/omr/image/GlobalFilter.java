@@ -68,19 +68,27 @@ public class GlobalFilter
     @Override
     public ByteProcessor filteredImage ()
     {
-        ByteProcessor ip = new ByteProcessor(source.getWidth(), source.getHeight());
-
-        for (int y = 0, h = ip.getHeight(); y < h; y++) {
-            for (int x = 0, w = ip.getWidth(); x < w; x++) {
-                if (isFore(x, y)) {
-                    ip.set(x, y, FOREGROUND);
-                } else {
-                    ip.set(x, y, BACKGROUND);
+        return FilterBands.filteredImage(
+                source.getWidth(),
+                source.getHeight(),
+                new FilterBands.Band()
+        {
+            @Override
+            public void process (ByteProcessor target,
+                                 int yStart,
+                                 int yStop)
+            {
+                for (int y = yStart; y < yStop; y++) {
+                    for (int x = 0, w = target.getWidth(); x < w; x++) {
+                        if (isFore(x, y)) {
+                            target.set(x, y, FOREGROUND);
+                        } else {
+                            target.set(x, y, BACKGROUND);
+                        }
+                    }
                 }
             }
-        }
-
-        return ip;
+        });
     }
 
     //------------//
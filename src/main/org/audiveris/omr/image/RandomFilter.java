@@ -35,6 +35,8 @@ import org.slf4j.LoggerFactory;
  * This implementation is ThreadSafe and provides fast random access to any location in constant
  * time. The drawback is that each of the two underlying tables of integrals needs 8 bytes per image
  * pixel.
+ * <p>
+ * Thanks to thread safety, the bands of {@link #filteredImage()} directly share the same tables.
  *
  * @author ryo/twitter &#64;xiaot_Tag
  * @author Hervé Bitteur
@@ -37,10 +37,14 @@ import java.awt.Color;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -119,7 +123,96 @@ public class ShapeDescriptor
         template = createTemplate(shape, interline);
     }
 
+    /**
+     * Creates a new ShapeDescriptor object on an already built template.
+     *
+     * @param interline global scale value
+     * @param template  the template for the shape
+     */
+    private ShapeDescriptor (int interline,
+                             Template template)
+    {
+        this.shape = template.getShape();
+        this.interline = interline;
+        this.template = template;
+
+        width = template.getWidth();
+        height = template.getHeight();
+    }
+
     //~ Methods ------------------------------------------------------------------------------------
+    //-------------------//
+    // getBuildSignature //
+    //-------------------//
+    /**
+     * Report a signature of all parameters that impact the building of templates for the
+     * provided interline: music font and template constants.
+     * <p>
+     * Any stored descriptor built with a different signature is obsolete.
+     *
+     * @param interline global scale value
+     * @return the parameters signature
+     */
+    public static String getBuildSignature (int interline)
+    {
+        return MusicFont.FONT_NAME + ";" + MusicFont.getFont(interline).getFontName() + ";"
+               + MusicFont.NOTEHEAD_VOID_EXTENT + ";" + Template.smallRatio + ";"
+               + constants.stemDx.getValue() + ";" + constants.stemDy.getValue();
+    }
+
+    //------//
+    // read //
+    //------//
+    /**
+     * Read a descriptor, as written by {@link #write(DataOutputStream)}.
+     * <p>
+     * The costly template image processing is skipped, since key points and anchor offsets are
+     * read as they are.
+     *
+     * @param in        the input stream
+     * @param interline global scale value
+     * @return the descriptor read
+     * @throws IOException if read failed or data is not consistent
+     */
+    public static ShapeDescriptor read (DataInputStream in,
+                                        int interline)
+            throws IOException
+    {
+        try {
+            final Shape shape = Shape.valueOf(in.readUTF());
+            final int tplInterline = in.readInt();
+            final int width = in.readInt();
+            final int height = in.readInt();
+            final int keyCount = in.readInt();
+            final List<PixelDistance> keyPoints = new ArrayList<PixelDistance>(keyCount);
+
+            for (int i = 0; i < keyCount; i++) {
+                final int x = in.readShort();
+                final int y = in.readShort();
+                keyPoints.add(new PixelDistance(x, y, in.readDouble()));
+            }
+
+            final TemplateSymbol symbol = new TemplateSymbol(shape, getCode(shape));
+            final Template template = new Template(
+                    shape,
+                    tplInterline,
+                    symbol,
+                    width,
+                    height,
+                    keyPoints);
+            final int anchorCount = in.readInt();
+
+            for (int i = 0; i < anchorCount; i++) {
+                final Anchor anchor = Anchor.valueOf(in.readUTF());
+                template.setOffset(anchor, new Point(in.readInt(), in.readInt()));
+            }
+
+            return new ShapeDescriptor(interline, template);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Invalid stored template", ex);
+        }
+    }
+
     //----------//
     // evaluate //
     //----------//
@@ -140,6 +233,29 @@ public class ShapeDescriptor
         return template.evaluate(x, y, anchor, distances);
     }
 
+    //----------//
+    // evaluate //
+    //----------//
+    /**
+     * Try the relevant templates at specified location and report best distance found,
+     * giving up as soon as this distance is known to exceed maxDistance.
+     *
+     * @param x           location abscissa
+     * @param y           location ordinate
+     * @param anchor      location WRT template
+     * @param distances   table of distances
+     * @param maxDistance maximum distance of interest
+     * @return the best distance found, or Double.MAX_VALUE if greater than maxDistance
+     */
+    public double evaluate (int x,
+                            int y,
+                            Anchor anchor,
+                            DistanceTable distances,
+                            double maxDistance)
+    {
+        return template.evaluate(x, y, anchor, distances, maxDistance);
+    }
+
     //-----------//
     // getBounds //
     //-----------//
@@ -247,6 +363,43 @@ public class ShapeDescriptor
         return sb.toString();
     }
 
+    //-------//
+    // write //
+    //-------//
+    /**
+     * Write this descriptor, so that it can later be read back without template
+     * image processing.
+     *
+     * @param out the output stream
+     * @throws IOException if write failed
+     */
+    public void write (DataOutputStream out)
+            throws IOException
+    {
+        out.writeUTF(shape.name());
+        out.writeInt(template.getInterline());
+        out.writeInt(template.getWidth());
+        out.writeInt(template.getHeight());
+
+        final List<PixelDistance> keyPoints = template.getKeyPoints();
+        out.writeInt(keyPoints.size());
+
+        for (PixelDistance pix : keyPoints) {
+            out.writeShort(pix.x);
+            out.writeShort(pix.y);
+            out.writeDouble(pix.d);
+        }
+
+        final Map<Anchor, Point> offsets = template.getOffsets();
+        out.writeInt(offsets.size());
+
+        for (Map.Entry<Anchor, Point> entry : offsets.entrySet()) {
+            out.writeUTF(entry.getKey().name());
+            out.writeInt(entry.getValue().x);
+            out.writeInt(entry.getValue().y);
+        }
+    }
+
     //------------------//
     // computeDistances //
     //------------------//
@@ -88,6 +88,21 @@ public class Template
     /** Collection of key points defined for this template. */
     private final List<PixelDistance> keyPoints;
 
+    /** Key points abscissae, as used by evaluation. (foreground points first) */
+    private final int[] keyXs;
+
+    /** Key points ordinates, as used by evaluation. */
+    private final int[] keyYs;
+
+    /** Key points expected distances, as used by evaluation. (0 for foreground) */
+    private final int[] keyDists;
+
+    /** Number of foreground key points, at the beginning of evaluation arrays. */
+    private final int foreCount;
+
+    /** Bounds of all key points, relative to template upper left corner. */
+    private final Rectangle keyBounds;
+
     /** Template width. (perhaps larger than the symbol width) */
     private final int width;
 
@@ -130,6 +145,32 @@ public class Template
         this.height = height;
 
         symbolBounds = new Rectangle(symbol.getSymbolBounds(MusicFont.getFont(interline)));
+
+        // Pack key points into arrays, foreground points first
+        final int count = keyPoints.size();
+        keyXs = new int[count];
+        keyYs = new int[count];
+        keyDists = new int[count];
+
+        int fore = 0;
+        int back = count;
+        Rectangle bounds = null;
+
+        for (PixelDistance pix : keyPoints) {
+            final int i = (pix.d > 0) ? --back : fore++;
+            keyXs[i] = pix.x;
+            keyYs[i] = pix.y;
+            keyDists[i] = (int) Math.rint(pix.d);
+
+            if (bounds == null) {
+                bounds = new Rectangle(pix.x, pix.y, 1, 1);
+            } else {
+                bounds.add(new Rectangle(pix.x, pix.y, 1, 1));
+            }
+        }
+
+        foreCount = fore;
+        keyBounds = (bounds != null) ? bounds : new Rectangle();
     }
 
     //~ Methods ------------------------------------------------------------------------------------
@@ -206,6 +247,33 @@ public class Template
                             int y,
                             Anchor anchor,
                             DistanceTable distances)
+    {
+        return evaluate(x, y, anchor, distances, Double.MAX_VALUE);
+    }
+
+    //----------//
+    // evaluate //
+    //----------//
+    /**
+     * Evaluate this template at location (x,y) in provided distances table, giving up
+     * as soon as the result is known to exceed the provided maximum distance.
+     * <p>
+     * Since the sum of weights can only grow up to the weight of all key points, the partial sum
+     * of weighted squared distances gives a lower bound of the final result.
+     *
+     * @param x           location abscissa
+     * @param y           location ordinate
+     * @param anchor      the anchor kind to use for (x,y), null for upper left
+     * @param distances   the distance table to search
+     * @param maxDistance maximum distance of interest
+     * @return the quadratic average distance computed on all key positions, or Double.MAX_VALUE
+     *         if this distance is known to be greater than maxDistance
+     */
+    public double evaluate (int x,
+                            int y,
+                            Anchor anchor,
+                            DistanceTable distances,
+                            double maxDistance)
     {
         final Point ul = upperLeft(x, y, anchor);
 
@@ -213,33 +281,51 @@ public class Template
         // Compute the mean value on all distances read
         final int imgWidth = distances.getWidth();
         final int imgHeight = distances.getHeight();
+        final int normalizer = distances.getNormalizer();
         final double foreWeight = constants.foreWeight.getValue();
         final double backWeight = constants.backWeight.getValue();
+        final int count = keyXs.length;
+
+        // Total above this value means a final distance beyond maxDistance
+        final double maxRaw = maxDistance * normalizer;
+        final double maxTotal = maxRaw * maxRaw
+                                * ((foreCount * foreWeight) + ((count - foreCount) * backWeight));
+
+        // Can we skip the check of key points against image bounds?
+        final boolean interior = ((ul.x + keyBounds.x) >= 0)
+                                 && ((ul.x + keyBounds.x + keyBounds.width) <= imgWidth)
+                                 && ((ul.y + keyBounds.y) >= 0)
+                                 && ((ul.y + keyBounds.y + keyBounds.height) <= imgHeight);
         double weights = 0; // Sum of weights
         double total = 0; // Sum of weighted squared distances
 
-        for (PixelDistance pix : keyPoints) {
-            int nx = ul.x + pix.x;
-            int ny = ul.y + pix.y;
+        for (int i = 0; i < count; i++) {
+            final int nx = ul.x + keyXs[i];
+            final int ny = ul.y + keyYs[i];
 
             // Ignore tested point if located out of image
-            if ((nx >= 0) && (nx < imgWidth) && (ny >= 0) && (ny < imgHeight)) {
-                int actualDist = distances.getValue(nx, ny);
-
-                // Ignore neutralized locations in distance table
-                if (actualDist != ChamferDistance.VALUE_UNKNOWN) {
-                    // pix.d == 0 for expected foreground
-                    // pix.d > 0 for expected background (expected distance to nearest foreground)
-                    double weight = (pix.d > 0) ? backWeight : foreWeight;
-                    double dist = actualDist - pix.d;
-                    double weightedDistSquared = weight * (dist * dist);
-                    total += weightedDistSquared;
-                    weights += weight;
+            if (!interior && ((nx < 0) || (nx >= imgWidth) || (ny < 0) || (ny >= imgHeight))) {
+                continue;
+            }
+
+            final int actualDist = distances.getValue(nx, ny);
+
+            // Ignore neutralized locations in distance table
+            if (actualDist != ChamferDistance.VALUE_UNKNOWN) {
+                // keyDists[i] == 0 for expected foreground
+                // keyDists[i] > 0 for expected background (expected distance to nearest fore)
+                final double weight = (i < foreCount) ? foreWeight : backWeight;
+                final double dist = actualDist - keyDists[i];
+                total += (weight * (dist * dist));
+                weights += weight;
+
+                if (total > maxTotal) {
+                    return Double.MAX_VALUE;
                 }
             }
         }
 
-        return Math.sqrt(total / weights) / distances.getNormalizer();
+        return Math.sqrt(total / weights) / normalizer;
     }
 
     //-----------//
@@ -406,6 +492,19 @@ public class Template
         return offset;
     }
 
+    //------------//
+    // getOffsets //
+    //------------//
+    /**
+     * Report all the anchor offsets defined for this template.
+     *
+     * @return the (unmodifiable) map of offsets
+     */
+    public Map<Anchor, Point> getOffsets ()
+    {
+        return Collections.unmodifiableMap(offsets);
+    }
+
     //----------//
     // getShape //
     //----------//
@@ -502,6 +601,21 @@ public class Template
         return sb.toString();
     }
 
+    //-----------//
+    // setOffset //
+    //-----------//
+    /**
+     * Define directly the offset for an anchor, as read from a stored template.
+     *
+     * @param anchor the anchor kind
+     * @param offset translation from template upper left corner to anchor location
+     */
+    void setOffset (Anchor anchor,
+                    Point offset)
+    {
+        offsets.put(anchor, new Point(offset));
+    }
+
     //-----------//
     // upperLeft //
     //-----------//
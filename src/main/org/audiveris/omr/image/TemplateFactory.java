@@ -21,19 +21,36 @@
 // </editor-fold>
 package org.audiveris.omr.image;
 
+import org.audiveris.omr.WellKnowns;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Shape;
 import org.audiveris.omr.glyph.ShapeSet;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import java.util.EnumMap;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * Class {@code TemplateFactory} builds needed instances of {@link Template} class
  * and keeps a catalog per desired size and shape.
+ * <p>
+ * Catalogs are kept in a size-bounded cache, the least recently used catalog being discarded
+ * first.
+ * If so desired, each built catalog is also stored on disk, keyed by interline value, so that a
+ * new JVM can read it back rather than building all its templates again.
  *
  * @author Hervé Bitteur
  */
@@ -41,14 +58,22 @@ public class TemplateFactory
 {
     //~ Static fields/initializers -----------------------------------------------------------------
 
+    private static final Constants constants = new Constants();
+
     private static final Logger logger = LoggerFactory.getLogger(TemplateFactory.class);
 
     /** Singleton. */
     private static final TemplateFactory INSTANCE = new TemplateFactory();
 
+    /** Version of the format used to store catalogs on disk. */
+    private static final int STORE_VERSION = 2;
+
+    /** Folder where catalogs are stored. */
+    private static final Path STORE_FOLDER = WellKnowns.TEMP_FOLDER.resolve("templates");
+
     //~ Instance fields ----------------------------------------------------------------------------
     //
-    /** Catalog of all templates already allocated. */
+    /** Catalogs of templates already allocated, by interline, in access order. */
     private final Map<Integer, Catalog> allSizes;
 
     //~ Constructors -------------------------------------------------------------------------------
@@ -57,7 +82,14 @@ public class TemplateFactory
      */
     private TemplateFactory ()
     {
-        allSizes = new HashMap<Integer, Catalog>();
+        allSizes = new LinkedHashMap<Integer, Catalog>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry (Map.Entry<Integer, Catalog> eldest)
+            {
+                return size() > Math.max(1, constants.maxCatalogs.getValue());
+            }
+        };
     }
 
     //~ Methods ------------------------------------------------------------------------------------
@@ -74,29 +106,135 @@ public class TemplateFactory
     //------------//
     /**
      * Report the template catalog dedicated to the provided interline.
+     * <p>
+     * A missing catalog is read from disk store if possible, otherwise built (and stored).
+     * This is done outside of any lock, so that catalogs for different interline values can be
+     * prepared concurrently.
      *
      * @param interline provided interline
      * @return the catalog of all templates for the interline value
      */
     public Catalog getCatalog (int interline)
     {
-        ///interline += 1; // HORRIBLE TRICK TO BE REMOVED ASAP!!!!!!!!!!!!!!!!!!!!!!!!!
-        Catalog catalog = allSizes.get(interline);
+        synchronized (allSizes) {
+            Catalog catalog = allSizes.get(interline);
+
+            if (catalog != null) {
+                return catalog;
+            }
+        }
+
+        Catalog catalog = null;
+        boolean built = false;
+
+        if (constants.storeCatalogs.isSet()) {
+            catalog = loadCatalog(interline);
+        }
 
         if (catalog == null) {
-            synchronized (allSizes) {
-                catalog = allSizes.get(interline);
+            catalog = new Catalog(interline);
+            built = true;
+        }
 
-                if (catalog == null) {
-                    catalog = new Catalog(interline);
-                    allSizes.put(interline, catalog);
-                }
+        synchronized (allSizes) {
+            // Another thread may have been faster
+            Catalog other = allSizes.get(interline);
+
+            if (other != null) {
+                return other;
             }
+
+            allSizes.put(interline, catalog);
+        }
+
+        if (built && constants.storeCatalogs.isSet()) {
+            storeCatalog(catalog);
         }
 
         return catalog;
     }
 
+    //--------------//
+    // getStorePath //
+    //--------------//
+    private static Path getStorePath (int interline)
+    {
+        return STORE_FOLDER.resolve("catalog-" + interline + ".bin");
+    }
+
+    //-------------//
+    // loadCatalog //
+    //-------------//
+    /**
+     * Try to read the catalog for provided interline from disk store.
+     *
+     * @param interline provided interline
+     * @return the catalog read, or null if not available
+     */
+    private Catalog loadCatalog (int interline)
+    {
+        final Path path = getStorePath(interline);
+
+        if (!Files.exists(path)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path)))) {
+            final Catalog catalog = Catalog.read(in, interline);
+
+            if (catalog != null) {
+                logger.debug("Catalog loaded from {}", path);
+            } else {
+                logger.info("Obsolete catalog {} ignored", path);
+            }
+
+            return catalog;
+        } catch (IOException ex) {
+            logger.warn("Error loading catalog {} {}", path, ex.toString(), ex);
+
+            return null;
+        }
+    }
+
+    //--------------//
+    // storeCatalog //
+    //--------------//
+    /**
+     * Store the provided catalog on disk.
+     * Data is first written to a temporary file which is then moved, so that a concurrent reader
+     * never sees a partial catalog.
+     *
+     * @param catalog the catalog to store
+     */
+    private void storeCatalog (Catalog catalog)
+    {
+        final Path path = getStorePath(catalog.interline);
+        Path tmp = null;
+
+        try {
+            Files.createDirectories(STORE_FOLDER);
+            tmp = Files.createTempFile(STORE_FOLDER, "catalog-", ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                catalog.write(out);
+            }
+
+            Files.move(tmp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+            logger.debug("Catalog stored to {}", path);
+        } catch (IOException ex) {
+            logger.warn("Error storing catalog {} {}", path, ex.toString(), ex);
+
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
     //~ Inner Classes ------------------------------------------------------------------------------
     //---------//
     // Catalog //
@@ -122,7 +260,57 @@ public class TemplateFactory
             buildAllTemplates();
         }
 
+        /**
+         * Creates a catalog on already built descriptors.
+         *
+         * @param interline   the interline value
+         * @param descriptors the descriptors
+         */
+        private Catalog (int interline,
+                         Map<Shape, ShapeDescriptor> descriptors)
+        {
+            this.interline = interline;
+            this.descriptors.putAll(descriptors);
+        }
+
         //~ Methods --------------------------------------------------------------------------------
+        //------//
+        // read //
+        //------//
+        /**
+         * Read a catalog, as written by {@link #write(DataOutputStream)}.
+         *
+         * @param in        the input stream
+         * @param interline the expected interline value
+         * @return the catalog read, or null if stored data does not match current format,
+         *         interline, music font or template parameters
+         * @throws IOException if read failed
+         */
+        public static Catalog read (DataInputStream in,
+                                    int interline)
+                throws IOException
+        {
+            if ((in.readInt() != STORE_VERSION)
+                || (in.readInt() != interline)
+                || !in.readUTF().equals(ShapeDescriptor.getBuildSignature(interline))) {
+                return null;
+            }
+
+            final Map<Shape, ShapeDescriptor> map = new EnumMap<Shape, ShapeDescriptor>(
+                    Shape.class);
+
+            for (int i = 0, count = in.readInt(); i < count; i++) {
+                final ShapeDescriptor desc = ShapeDescriptor.read(in, interline);
+                map.put(desc.getShape(), desc);
+            }
+
+            if (!map.keySet().containsAll(ShapeSet.TemplateNotes)) {
+                return null;
+            }
+
+            return new Catalog(interline, map);
+        }
+
         //---------------//
         // getDescriptor //
         //---------------//
@@ -141,6 +329,28 @@ public class TemplateFactory
             return descriptor.getTemplate();
         }
 
+        //-------//
+        // write //
+        //-------//
+        /**
+         * Write this catalog, with a header to check consistency at read time.
+         *
+         * @param out the output stream
+         * @throws IOException if write failed
+         */
+        public void write (DataOutputStream out)
+                throws IOException
+        {
+            out.writeInt(STORE_VERSION);
+            out.writeInt(interline);
+            out.writeUTF(ShapeDescriptor.getBuildSignature(interline));
+            out.writeInt(descriptors.size());
+
+            for (ShapeDescriptor desc : descriptors.values()) {
+                desc.write(out);
+            }
+        }
+
         //-------------------//
         // buildAllTemplates //
         //-------------------//
@@ -151,4 +361,22 @@ public class TemplateFactory
             }
         }
     }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Integer maxCatalogs = new Constant.Integer(
+                "catalogs",
+                8,
+                "Maximum number of template catalogs kept in memory");
+
+        private final Constant.Boolean storeCatalogs = new Constant.Boolean(
+                true,
+                "Should we store template catalogs on disk for later runs?");
+    }
 }
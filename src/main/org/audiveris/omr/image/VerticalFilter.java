@@ -64,6 +64,9 @@ import org.slf4j.LoggerFactory;
  * <p>
  * Drawback: the implementation of the tile as a circular buffer makes an instance of this class
  * usable by only one thread at a time.
+ * Hence, when {@link #filteredImage()} processes several bands in parallel, each band gets its own
+ * filter instance, working on a copy of the band rows augmented by half a window above and below.
+ * Since window integrals are computed exactly, the result is identical to the sequential one.
  *
  * @author ryo/twitter &#64;xiaot_Tag
  * @author Hervé Bitteur
@@ -107,6 +110,42 @@ public class VerticalFilter
         return AdaptiveDescriptor.getDefault();
     }
 
+    //------------//
+    // filterBand //
+    //------------//
+    @Override
+    protected void filterBand (ByteProcessor target,
+                               int yStart,
+                               int yStop)
+    {
+        final int height = source.getHeight();
+
+        if ((yStart == 0) && (yStop == height)) {
+            // Whole image: use our own tiles
+            super.filterBand(target, yStart, yStop);
+
+            return;
+        }
+
+        // Band rows plus the rows that windows centered in the band can reach
+        final int yMin = Math.max(0, yStart - HALF_WINDOW_SIZE);
+        final int yMax = Math.min(height, yStop + HALF_WINDOW_SIZE);
+        final VerticalFilter bandFilter = new VerticalFilter(
+                FilterBands.extractRows(source, yMin, yMax),
+                MEAN_COEFF,
+                STD_DEV_COEFF);
+
+        for (int x = 0, w = target.getWidth(); x < w; x++) {
+            for (int y = yStart; y < yStop; y++) {
+                if (bandFilter.isFore(x, y - yMin)) {
+                    target.set(x, y, FOREGROUND);
+                } else {
+                    target.set(x, y, BACKGROUND);
+                }
+            }
+        }
+    }
+
     //~ Inner Classes ------------------------------------------------------------------------------
     //
     //--------//
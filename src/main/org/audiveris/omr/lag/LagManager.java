@@ -33,12 +33,14 @@ import org.audiveris.omr.sheet.Scale;
 import org.audiveris.omr.sheet.Sheet;
 import org.audiveris.omr.util.IntUtil;
 import org.audiveris.omr.util.Navigable;
+import org.audiveris.omr.util.OmrExecutors;
 import org.audiveris.omr.util.Predicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
@@ -63,8 +65,9 @@ public class LagManager
     @Navigable(false)
     private final Sheet sheet;
 
-    /** Map of all public lags. */
-    private final Map<String, Lag> lagMap = new TreeMap<String, Lag>();
+    /** Map of all public lags. (hLag and vLag may be built concurrently) */
+    private final Map<String, Lag> lagMap = Collections.synchronizedSortedMap(
+            new TreeMap<String, Lag>());
 
     /** Id of last long horizontal section. */
     private int lastLongHSectionId;
@@ -105,6 +108,7 @@ public class LagManager
 
         Lag lag = (hLag != null) ? hLag : new BasicLag(Lags.HLAG, HORIZONTAL);
         SectionFactory factory = new SectionFactory(lag, JunctionRatioPolicy.DEFAULT);
+        factory.setParallelBands(!OmrExecutors.isHighThread()); // Bands use high pool
         factory.createSections(horiTable, null, true);
         setLag(Lags.HLAG, lag);
         setVipSections(HORIZONTAL);
@@ -135,6 +139,7 @@ public class LagManager
         SectionFactory factory = new SectionFactory(
                 vLag,
                 new JunctionShiftPolicy(maxVerticalRunShift));
+        factory.setParallelBands(!OmrExecutors.isHighThread()); // Bands use high pool
         factory.createSections(vertTable, null, true);
         setLag(Lags.VLAG, vLag);
         setVipSections(VERTICAL);
@@ -25,10 +25,14 @@ import ij.process.ByteProcessor;
 
 import net.jcip.annotations.NotThreadSafe;
 
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.run.Orientation;
 import org.audiveris.omr.run.Run;
 import org.audiveris.omr.run.RunTable;
 import org.audiveris.omr.run.RunTableFactory;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,10 +40,17 @@ import org.slf4j.LoggerFactory;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Class {@code SectionFactory} builds a collection of sections out of provided runs.
@@ -59,6 +70,10 @@ import java.util.Set;
  * <li>Optionally, a {@link Lag} instance can be specified, so that the created sections get a
  * lag-wide unique id and are appended to current lag content.</li>
  * </ul>
+ * <p>
+ * When allowed by {@link #setParallelBands(boolean)}, a large run table is cut into bands of
+ * sequences which are swept in parallel. Junctions at band borders are then reconciled, under the
+ * same junction policy, so that resulting sections and their ids are those of a sequential sweep.
  *
  * @author Hervé Bitteur
  */
@@ -67,8 +82,28 @@ public class SectionFactory
 {
     //~ Static fields/initializers -----------------------------------------------------------------
 
+    private static final Constants constants = new Constants();
+
     private static final Logger logger = LoggerFactory.getLogger(SectionFactory.class);
 
+    /** To sort sections in their order of creation by a sequential sweep. */
+    private static final Comparator<Section> byCreation = new Comparator<Section>()
+    {
+        @Override
+        public int compare (Section s1,
+                            Section s2)
+        {
+            final int p1 = s1.getFirstPos();
+            final int p2 = s2.getFirstPos();
+
+            if (p1 != p2) {
+                return Integer.compare(p1, p2);
+            }
+
+            return Integer.compare(s1.getFirstRun().getStart(), s2.getFirstRun().getStart());
+        }
+    };
+
     //~ Instance fields ----------------------------------------------------------------------------
     /** The lag to populate, if any. */
     private final Lag lag;
@@ -79,8 +114,8 @@ public class SectionFactory
     /** Policy for detection of junctions. */
     private final JunctionPolicy junctionPolicy;
 
-    /** Processed sections. true/false */
-    private final Set<DynamicSection> processedSections = new LinkedHashSet<DynamicSection>();
+    /** Are large tables allowed to be processed as parallel bands?. */
+    private boolean parallelBands;
 
     //~ Constructors -------------------------------------------------------------------------------
     /**
@@ -173,7 +208,15 @@ public class SectionFactory
                                          boolean include)
     {
         // Build sections with runTable-based coordinates
-        List<DynamicSection> sections = new Build().buildSections(runTable, include);
+        final int bandCount = parallelBands ? getBandCount(runTable.getSize()) : 1;
+        final List<DynamicSection> sections = (bandCount > 1)
+                ? buildBandSections(runTable, bandCount)
+                : new Build(true).buildSections(runTable);
+
+        // Store the content of runs table into the lag?
+        if (include && (lag != null)) {
+            lag.addRunTable(runTable);
+        }
 
         // Translate sections to absolute coordinates if an offset was provided
         if (offset != null) {
@@ -185,6 +228,122 @@ public class SectionFactory
         return getImmutables(sections);
     }
 
+    //------------------//
+    // setParallelBands //
+    //------------------//
+    /**
+     * Allow (or not) this factory to process large run tables as parallel bands.
+     * <p>
+     * Bands are processed on the high-priority pool, hence this should not be allowed when the
+     * factory is itself used from a task of this pool.
+     *
+     * @param parallelBands true to allow parallel bands
+     */
+    public void setParallelBands (boolean parallelBands)
+    {
+        this.parallelBands = parallelBands;
+    }
+
+    //-------------------//
+    // buildBandSections //
+    //-------------------//
+    /**
+     * Build sections by sweeping bands of sequences in parallel, then reconciling the
+     * junctions at each band border.
+     *
+     * @param runTable the table of runs
+     * @param count    the number of bands
+     * @return the created sections, in their sequential order of creation
+     */
+    List<DynamicSection> buildBandSections (final RunTable runTable,
+                                            int count)
+    {
+        logger.debug("Building {} sections in {} bands", runTable.getOrientation(), count);
+
+        final int size = runTable.getSize();
+        final int[] firsts = new int[count + 1];
+
+        for (int i = 0; i <= count; i++) {
+            firsts[i] = (int) (((long) size * i) / count);
+        }
+
+        // Sweep all bands concurrently, each band ignoring what lies before it
+        final Build[] builds = new Build[count];
+        final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(count);
+
+        for (int i = 0; i < count; i++) {
+            final Build build = builds[i] = new Build(false);
+            final int first = firsts[i];
+            final int stop = firsts[i + 1];
+            tasks.add(
+                    new Callable<Void>()
+            {
+                @Override
+                public Void call ()
+                        throws Exception
+                {
+                    build.sweep(runTable, first, stop);
+
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Void> future : OmrExecutors.getHighExecutor().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            logger.warn("buildBandSections got interrupted");
+            throw new ProcessingCancellationException(ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Error building band sections", ex.getCause());
+        }
+
+        // Reconcile each band with the (reconciled) bands before it
+        final List<DynamicSection> sections = new ArrayList<DynamicSection>(builds[0].created);
+        List<DynamicSection> actives = builds[0].nextActives;
+
+        for (int i = 1; i < count; i++) {
+            actives = reconcile(runTable, builds[i], firsts[i], firsts[i + 1], actives, sections);
+        }
+
+        // Assign ids in sequential order of creation
+        Collections.sort(sections, byCreation);
+
+        int localId = 0;
+
+        for (DynamicSection dynSection : sections) {
+            if (lag != null) {
+                lag.register(dynSection);
+            } else {
+                dynSection.setId(++localId);
+            }
+        }
+
+        return sections;
+    }
+
+    //--------------//
+    // getBandCount //
+    //--------------//
+    /**
+     * Report how many bands a table of provided size should be split into.
+     *
+     * @param size number of sequences in table
+     * @return the number of bands, 1 for sequential processing
+     */
+    private static int getBandCount (int size)
+    {
+        if (!constants.parallelBands.isSet() || !OmrExecutors.defaultParallelism.getTarget()) {
+            return 1;
+        }
+
+        final int minSize = Math.max(1, constants.minBandSize.getValue());
+
+        return Math.max(1, Math.min(OmrExecutors.getNumberOfCpus(), size / minSize));
+    }
+
     //---------------//
     // getImmutables //
     //---------------//
@@ -205,20 +364,61 @@ public class SectionFactory
         return sections;
     }
 
-    //-------------//
-    // isProcessed //
-    //-------------//
-    private boolean isProcessed (DynamicSection dynSection)
+    //-----------//
+    // reconcile //
+    //-----------//
+    /**
+     * Reconcile a band, swept on its own, with the bands before it.
+     * <p>
+     * The sequential sweep is resumed at band start, from the sections active at the end of
+     * previous band, until it gets the very same active sections as the band sweep.
+     * From this sequence on, the band sweep is known to match the sequential one.
+     * If no such sequence is found, the resumed sweep simply replaces the whole band.
+     *
+     * @param runTable the table of runs
+     * @param band     the band swept on its own
+     * @param first    first sequence of the band
+     * @param stop     sequence just past the band
+     * @param actives  the sections active at the end of previous band
+     * @param sections (output) the global list of sections, to be completed
+     * @return the sections active at the end of this band
+     */
+    private List<DynamicSection> reconcile (RunTable runTable,
+                                            Build band,
+                                            int first,
+                                            int stop,
+                                            List<DynamicSection> actives,
+                                            List<DynamicSection> sections)
     {
-        return processedSections.contains(dynSection);
-    }
+        final Build resumed = new Build(false);
+        resumed.nextActives.addAll(actives);
 
-    //--------------//
-    // setProcessed //
-    //--------------//
-    private void setProcessed (DynamicSection dynSection)
-    {
-        processedSections.add(dynSection);
+        for (int col = first; col < stop; col++) {
+            resumed.processSequence(runTable, col);
+
+            if (band.matches(resumed.nextActives, first, col)) {
+                logger.debug("Band at {} reconciled at {}", first, col);
+
+                // Resumed sections ended before col, then band sections from col on
+                for (DynamicSection dynSection : resumed.created) {
+                    if (dynSection.getLastPos() < col) {
+                        sections.add(dynSection);
+                    }
+                }
+
+                for (DynamicSection dynSection : band.created) {
+                    if (dynSection.getLastPos() >= col) {
+                        sections.add(dynSection);
+                    }
+                }
+
+                return band.nextActives;
+            }
+        }
+
+        sections.addAll(resumed.created);
+
+        return resumed.nextActives;
     }
 
     //~ Inner Classes ------------------------------------------------------------------------------
@@ -239,6 +439,9 @@ public class SectionFactory
     {
         //~ Instance fields ------------------------------------------------------------------------
 
+        /** Should sections get their id at creation?. */
+        private final boolean withIds;
+
         /** Counter to set dynamicsection ids when no lag is used. */
         private int localId;
 
@@ -257,6 +460,24 @@ public class SectionFactory
          */
         private final List<DynamicSection> prevActives = new ArrayList<DynamicSection>();
 
+        /** Sections of previous sequence that cannot be continued. */
+        private final Set<DynamicSection> processedSections = Collections.newSetFromMap(
+                new IdentityHashMap<DynamicSection, Boolean>());
+
+        /** Created sections, indexed by first position and first run start. */
+        private Map<Point, DynamicSection> firstRunMap;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        /**
+         * Create a Build instance.
+         *
+         * @param withIds true to assign section ids at creation
+         */
+        public Build (boolean withIds)
+        {
+            this.withIds = withIds;
+        }
+
         //~ Methods --------------------------------------------------------------------------------
         //--------------//
         // buidSections //
@@ -265,51 +486,135 @@ public class SectionFactory
          * Build sections from the provided table of runs.
          *
          * @param runTable the table of runs
-         * @param include  if true, include the content of runTable into the lag
          * @return the list of created sections
          */
-        public List<DynamicSection> buildSections (RunTable runTable,
-                                                   boolean include)
+        public List<DynamicSection> buildSections (RunTable runTable)
         {
-            // All runs (if any) in first sequence start each their own dynamicSection
-            for (Iterator<Run> it = runTable.iterator(0); it.hasNext();) {
-                nextActives.add(createSection(0, it.next()));
+            sweep(runTable, 0, runTable.getSize());
+
+            return created;
+        }
+
+        //---------//
+        // matches //
+        //---------//
+        /**
+         * Check whether the provided active sections are the same as the sections of this
+         * build active at the provided sequence.
+         * <p>
+         * As the run which continues a section is fully determined by the runs of the previous
+         * sequence, two sections that start with the same run and have the same run at sequence
+         * 'col' have the same runs in between.
+         *
+         * @param actives the active sections of another build
+         * @param first   the first sequence swept by this build
+         * @param col     the current sequence
+         * @return true if this build has the same sections active at col
+         */
+        public boolean matches (List<DynamicSection> actives,
+                                int first,
+                                int col)
+        {
+            if (firstRunMap == null) {
+                firstRunMap = new HashMap<Point, DynamicSection>();
+
+                for (DynamicSection dynSection : created) {
+                    final Run firstRun = dynSection.getFirstRun();
+                    firstRunMap.put(
+                            new Point(dynSection.getFirstPos(), firstRun.getStart()),
+                            dynSection);
+                }
             }
 
-            // Now scan each pair of sequences, starting at 2nd sequence
-            for (int col = 1, size = runTable.getSize(); col < size; col++) {
-                // If we have runs in this sequence
-                if (!runTable.isSequenceEmpty(col)) {
-                    // Copy the former next actives sections as the new previous active sections
-                    prevActives.clear();
-                    prevActives.addAll(nextActives);
-                    nextActives.clear();
-
-                    // Process all sections of previous sequence, then prevActives
-                    // will contain only active sections (that may be continued)
-                    logger.debug("Prev sequence");
-
-                    for (DynamicSection dynSection : prevActives) {
-                        processPrevSide(dynSection, runTable, col);
-                    }
+            for (DynamicSection dynSection : actives) {
+                final int firstPos = dynSection.getFirstPos();
 
-                    // Process all runs of next sequence
-                    logger.debug("Next sequence");
+                if (firstPos < first) {
+                    return false;
+                }
 
-                    for (Iterator<Run> it = runTable.iterator(col); it.hasNext();) {
-                        processNextSide(col, it.next());
-                    }
-                } else {
-                    nextActives.clear();
+                final DynamicSection twin = firstRunMap.get(
+                        new Point(firstPos, dynSection.getFirstRun().getStart()));
+
+                if ((twin == null) || (twin.getLastPos() < col)) {
+                    return false;
+                }
+
+                final Run twinRun = twin.getRuns().get(col - firstPos);
+                final Run lastRun = dynSection.getLastRun();
+
+                if ((twinRun.getStart() != lastRun.getStart())
+                    || (twinRun.getLength() != lastRun.getLength())) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        //-----------------//
+        // processSequence //
+        //-----------------//
+        /**
+         * Process the provided sequence, with respect to the current active sections.
+         *
+         * @param runTable the table of runs
+         * @param col      the sequence to process
+         */
+        public void processSequence (RunTable runTable,
+                                     int col)
+        {
+            // If we have runs in this sequence
+            if (!runTable.isSequenceEmpty(col)) {
+                // Copy the former next actives sections as the new previous active sections
+                prevActives.clear();
+                prevActives.addAll(nextActives);
+                nextActives.clear();
+                processedSections.clear();
+
+                // Process all sections of previous sequence, then prevActives
+                // will contain only active sections (that may be continued)
+                logger.debug("Prev sequence");
+
+                for (DynamicSection dynSection : prevActives) {
+                    processPrevSide(dynSection, runTable, col);
+                }
+
+                // Process all runs of next sequence
+                logger.debug("Next sequence");
+
+                for (Iterator<Run> it = runTable.iterator(col); it.hasNext();) {
+                    processNextSide(col, it.next());
                 }
+            } else {
+                nextActives.clear();
             }
+        }
 
-            // Store the content of runs table into the lag?
-            if (include && (lag != null)) {
-                lag.addRunTable(runTable);
+        //-------//
+        // sweep //
+        //-------//
+        /**
+         * Sweep the sequences [first, stop) of the provided table, with no section
+         * coming from before first sequence.
+         *
+         * @param runTable the table of runs
+         * @param first    first sequence to process
+         * @param stop     sequence just past the last one to process
+         */
+        public void sweep (RunTable runTable,
+                           int first,
+                           int stop)
+        {
+            // All runs (if any) in first sequence start each their own dynamicSection
+            for (Iterator<Run> it = runTable.iterator(first); it.hasNext();) {
+                nextActives.add(createSection(first, it.next()));
             }
 
-            return created;
+            // Now scan each pair of sequences, starting at 2nd sequence
+            for (int col = first + 1; col < stop; col++) {
+                processSequence(runTable, col);
+            }
         }
 
         //-----------------//
@@ -343,10 +648,12 @@ public class SectionFactory
 
             final DynamicSection dynSection = new DynamicSection(orientation);
 
-            if (lag != null) {
-                lag.register(dynSection); // Section gets an id from lag
-            } else {
-                dynSection.setId(++localId); // Use a local id
+            if (withIds) {
+                if (lag != null) {
+                    lag.register(dynSection); // Section gets an id from lag
+                } else {
+                    dynSection.setId(++localId); // Use a local id
+                }
             }
 
             dynSection.setFirstPos(firstPos);
@@ -402,7 +709,7 @@ public class SectionFactory
 
                 DynamicSection prevSection = overlappingSections.get(0);
 
-                if (!isProcessed(prevSection)) {
+                if (!processedSections.contains(prevSection)) {
                     continueSection(prevSection, run);
                 } else {
                     // Create a new section, linked by a junction
@@ -479,14 +786,32 @@ public class SectionFactory
                             "Incompatible height between {} and run {}",
                             dynSection,
                             overlapRun);
-                    setProcessed(dynSection);
+                    processedSections.add(dynSection);
                 }
 
                 break;
 
             default: // Diverging, so conclude the section here
-                setProcessed(dynSection);
+                processedSections.add(dynSection);
             }
         }
     }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Boolean parallelBands = new Constant.Boolean(
+                true,
+                "Should large run tables be processed as parallel bands?");
+
+        private final Constant.Integer minBandSize = new Constant.Integer(
+                "Sequences",
+                256,
+                "Minimum number of sequences in a band for parallel sections building");
+    }
 }
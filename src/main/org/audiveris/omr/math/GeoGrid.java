@@ -0,0 +1,465 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                         G e o G r i d                                          //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.math;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class {@code GeoGrid} is a uniform grid spatial index of items, each registered with a
+ * bounding box.
+ * <p>
+ * Each item is referenced by all the square cells its box overlaps, so that a rectangle query
+ * browses only the cells overlapped by the rectangle, and its cost depends on the number of items
+ * nearby rather than on the total number of items.
+ * Items with no box, or with a box spanning too many cells, are kept aside in a "wide" list which
+ * is always browsed.
+ * <p>
+ * Lookups report <b>candidates</b>, that is a superset of the items whose registered box
+ * intersects the query rectangle, in item registration order.
+ * Callers are expected to apply their precise geometric test on the candidates.
+ * <p>
+ * All methods are synchronized.
+ *
+ * @param <E> type of items
+ *
+ * @author Hervé Bitteur
+ */
+public class GeoGrid<E>
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    /** To sort entries by registration order. */
+    private static final Comparator<Entry<?>> bySeq = new Comparator<Entry<?>>()
+    {
+        @Override
+        public int compare (Entry<?> e1,
+                            Entry<?> e2)
+        {
+            return Integer.compare(e1.seq, e2.seq);
+        }
+    };
+
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** Cell side, in pixels. */
+    private final int cellSize;
+
+    /** Maximum number of cells for one item, beyond which item is considered as wide. */
+    private final int maxCells;
+
+    /** Items per cell, cell key being built on cell column and cell row. */
+    private final Map<Long, List<Entry<E>>> cells = new HashMap<Long, List<Entry<E>>>();
+
+    /** Entry per item. */
+    private final Map<E, Entry<E>> entries = new HashMap<E, Entry<E>>();
+
+    /** Items always considered as candidates. */
+    private final List<Entry<E>> wides = new ArrayList<Entry<E>>();
+
+    /** Registration sequence. */
+    private int sequence;
+
+    /** Lookup stamp, to avoid duplicates. */
+    private int stamp;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code GeoGrid} object.
+     *
+     * @param cellSize side of each square cell, in pixels
+     * @param maxCells maximum number of cells per item
+     */
+    public GeoGrid (int cellSize,
+                    int maxCells)
+    {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Illegal grid cell size " + cellSize);
+        }
+
+        this.cellSize = cellSize;
+        this.maxCells = maxCells;
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //-------//
+    // clear //
+    //-------//
+    /**
+     * Remove all items.
+     */
+    public synchronized void clear ()
+    {
+        cells.clear();
+        entries.clear();
+        wides.clear();
+    }
+
+    //----------//
+    // contains //
+    //----------//
+    /**
+     * Report whether the provided item is registered.
+     *
+     * @param item the item to check
+     * @return true if registered
+     */
+    public synchronized boolean contains (E item)
+    {
+        return entries.containsKey(item);
+    }
+
+    //------------//
+    // candidates //
+    //------------//
+    /**
+     * Report the candidate items whose box may intersect the provided rectangle.
+     *
+     * @param rect the query rectangle
+     * @return the candidates, in registration order
+     */
+    public synchronized List<E> candidates (Rectangle rect)
+    {
+        final int x1 = rect.x;
+        final int y1 = rect.y;
+        final int x2 = (rect.x + Math.max(1, rect.width)) - 1;
+        final int y2 = (rect.y + Math.max(1, rect.height)) - 1;
+        final List<Entry<E>> found = new ArrayList<Entry<E>>();
+        stamp++;
+
+        if (cellCount(x1, y1, x2, y2) <= cells.size()) {
+            for (int cy = col(y1), cyMax = col(y2); cy <= cyMax; cy++) {
+                for (int cx = col(x1), cxMax = col(x2); cx <= cxMax; cx++) {
+                    List<Entry<E>> list = cells.get(key(cx, cy));
+
+                    if (list != null) {
+                        collect(list, x1, y1, x2, y2, found);
+                    }
+                }
+            }
+        } else {
+            // Query is larger than populated grid, so browse populated cells
+            for (List<Entry<E>> list : cells.values()) {
+                collect(list, x1, y1, x2, y2, found);
+            }
+        }
+
+        collect(wides, x1, y1, x2, y2, found);
+
+        Collections.sort(found, bySeq);
+
+        final List<E> items = new ArrayList<E>(found.size());
+
+        for (Entry<E> entry : found) {
+            items.add(entry.item);
+        }
+
+        return items;
+    }
+
+    //------------//
+    // candidates //
+    //------------//
+    /**
+     * Report the candidate items whose box may contain the provided point.
+     *
+     * @param point the query point
+     * @return the candidates, in registration order
+     */
+    public List<E> candidates (Point point)
+    {
+        return candidates(new Rectangle(point.x, point.y, 1, 1));
+    }
+
+    //--------//
+    // insert //
+    //--------//
+    /**
+     * Register an item with its box.
+     * If the item is already registered, its box is updated but its registration rank is kept.
+     *
+     * @param item the item to register
+     * @param box  the item box, or null for an item always to be considered
+     */
+    public synchronized void insert (E item,
+                                     Rectangle box)
+    {
+        Entry<E> entry = entries.get(item);
+
+        if (entry != null) {
+            unplace(entry);
+        } else {
+            entry = new Entry<E>(item, sequence++);
+            entries.put(item, entry);
+        }
+
+        entry.setBox(box);
+
+        if (!entry.wide) {
+            entry.wide = cellCount(entry.x1, entry.y1, entry.x2, entry.y2) > maxCells;
+        }
+
+        place(entry);
+    }
+
+    //-------//
+    // items //
+    //-------//
+    /**
+     * Report a snapshot of all registered items.
+     *
+     * @return the registered items, in no particular order
+     */
+    public synchronized List<E> items ()
+    {
+        return new ArrayList<E>(entries.keySet());
+    }
+
+    //--------//
+    // remove //
+    //--------//
+    /**
+     * Unregister an item.
+     *
+     * @param item the item to unregister
+     * @return true if item was actually registered
+     */
+    public synchronized boolean remove (E item)
+    {
+        final Entry<E> entry = entries.remove(item);
+
+        if (entry == null) {
+            return false;
+        }
+
+        unplace(entry);
+
+        return true;
+    }
+
+    //------//
+    // size //
+    //------//
+    /**
+     * Report the number of registered items.
+     *
+     * @return number of items
+     */
+    public synchronized int size ()
+    {
+        return entries.size();
+    }
+
+    //----------//
+    // toString //
+    //----------//
+    @Override
+    public synchronized String toString ()
+    {
+        StringBuilder sb = new StringBuilder(getClass().getSimpleName());
+        sb.append("{");
+        sb.append("cellSize:").append(cellSize);
+        sb.append(" items:").append(entries.size());
+        sb.append(" cells:").append(cells.size());
+        sb.append(" wides:").append(wides.size());
+        sb.append("}");
+
+        return sb.toString();
+    }
+
+    //-----------//
+    // cellCount //
+    //-----------//
+    /**
+     * Report the number of cells overlapped by the provided inclusive limits.
+     */
+    private long cellCount (int x1,
+                            int y1,
+                            int x2,
+                            int y2)
+    {
+        return ((long) (col(x2) - col(x1) + 1)) * (col(y2) - col(y1) + 1);
+    }
+
+    //-----//
+    // col //
+    //-----//
+    /**
+     * Report the cell index for a coordinate (the same for abscissa and ordinate).
+     */
+    private int col (int coord)
+    {
+        return (coord >= 0) ? (coord / cellSize) : ((((coord + 1) / cellSize)) - 1);
+    }
+
+    //---------//
+    // collect //
+    //---------//
+    private void collect (List<Entry<E>> list,
+                          int x1,
+                          int y1,
+                          int x2,
+                          int y2,
+                          List<Entry<E>> found)
+    {
+        for (Entry<E> entry : list) {
+            if (entry.stamp != stamp) {
+                entry.stamp = stamp;
+
+                if (entry.overlaps(x1, y1, x2, y2)) {
+                    found.add(entry);
+                }
+            }
+        }
+    }
+
+    //-----//
+    // key //
+    //-----//
+    private static long key (int cx,
+                             int cy)
+    {
+        return (((long) cy) << 32) | (cx & 0xFFFFFFFFL);
+    }
+
+    //-------//
+    // place //
+    //-------//
+    private void place (Entry<E> entry)
+    {
+        if (entry.wide) {
+            wides.add(entry);
+
+            return;
+        }
+
+        for (int cy = col(entry.y1), cyMax = col(entry.y2); cy <= cyMax; cy++) {
+            for (int cx = col(entry.x1), cxMax = col(entry.x2); cx <= cxMax; cx++) {
+                final Long key = key(cx, cy);
+                List<Entry<E>> list = cells.get(key);
+
+                if (list == null) {
+                    cells.put(key, list = new ArrayList<Entry<E>>());
+                }
+
+                list.add(entry);
+            }
+        }
+    }
+
+    //---------//
+    // unplace //
+    //---------//
+    private void unplace (Entry<E> entry)
+    {
+        if (entry.wide) {
+            wides.remove(entry);
+
+            return;
+        }
+
+        for (int cy = col(entry.y1), cyMax = col(entry.y2); cy <= cyMax; cy++) {
+            for (int cx = col(entry.x1), cxMax = col(entry.x2); cx <= cxMax; cx++) {
+                final Long key = key(cx, cy);
+                final List<Entry<E>> list = cells.get(key);
+
+                if (list != null) {
+                    list.remove(entry);
+
+                    if (list.isEmpty()) {
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-------//
+    // Entry //
+    //-------//
+    private static class Entry<E>
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        final E item;
+
+        /** Registration rank. */
+        final int seq;
+
+        /** Last lookup stamp. */
+        int stamp;
+
+        /** Item always considered as candidate. */
+        boolean wide;
+
+        /** Inclusive pixel limits of item box. */
+        int x1;
+
+        int y1;
+
+        int x2;
+
+        int y2;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        Entry (E item,
+               int seq)
+        {
+            this.item = item;
+            this.seq = seq;
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        boolean overlaps (int x1,
+                          int y1,
+                          int x2,
+                          int y2)
+        {
+            if (this.x2 < this.x1) {
+                return true; // No box known
+            }
+
+            return (this.x1 <= x2) && (x1 <= this.x2) && (this.y1 <= y2) && (y1 <= this.y2);
+        }
+
+        void setBox (Rectangle box)
+        {
+            if (box == null) {
+                wide = true;
+                x1 = y1 = 0;
+                x2 = y2 = -1;
+            } else {
+                wide = false;
+                x1 = box.x;
+                y1 = box.y;
+                x2 = (box.x + Math.max(1, box.width)) - 1;
+                y2 = (box.y + Math.max(1, box.height)) - 1;
+            }
+        }
+    }
+}
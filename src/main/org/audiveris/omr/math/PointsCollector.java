@@ -138,6 +138,20 @@ public class PointsCollector
         size++;
     }
 
+    //-------//
+    // reset //
+    //-------//
+    /**
+     * Empty this collector, so that it can be reused with its current capacity.
+     *
+     * @param roi the new absolute roi to be used by the collector, perhaps null
+     */
+    public void reset (Rectangle roi)
+    {
+        this.roi = roi;
+        size = 0;
+    }
+
     //--------//
     // getRoi //
     //--------//
@@ -27,6 +27,7 @@ import static org.audiveris.omr.moments.ARTMoments.*;
 import org.audiveris.omr.util.StopWatch;
 
 import java.awt.image.WritableRaster;
+import java.util.Arrays;
 
 /**
  * Class {@code BasicARTExtractor} implements extraction of ART Moments.
@@ -55,6 +56,13 @@ public class BasicARTExtractor
         initLUT();
     }
 
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** Coefficients real part, reused from one extraction to the other. */
+    private final double[][] coeffReal = new double[ANGULAR][RADIAL];
+
+    /** Coefficients imaginary part, reused from one extraction to the other. */
+    private final double[][] coeffImag = new double[ANGULAR][RADIAL];
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Creates a new BasicARTExtractor object and process the provided foreground points.
@@ -82,8 +90,10 @@ public class BasicARTExtractor
         final double centerY = center.getY();
 
         // Coefficients, real part & imaginary part
-        final double[][] coeffReal = new double[ANGULAR][RADIAL];
-        final double[][] coeffImag = new double[ANGULAR][RADIAL];
+        for (int p = 0; p < ANGULAR; p++) {
+            Arrays.fill(coeffReal[p], 0);
+            Arrays.fill(coeffImag[p], 0);
+        }
 
         for (int i = 0; i < mass; i++) {
             // Map image coordinates to LUT coordinates
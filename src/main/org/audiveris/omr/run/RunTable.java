@@ -88,6 +88,9 @@ import javax.xml.bind.annotation.XmlValue;
  * [FBFBF] (perhaps 0BFBF)
  * etc...
  * </pre>
+ * <p>
+ * A table read from its binary format (see {@link RunTableFormat}) decodes each sequence only
+ * when it is first accessed.
  *
  * @author Hervé Bitteur
  */
@@ -103,6 +106,29 @@ public class RunTable
 
     private static JAXBContext jaxbContext;
 
+    /** Maximum number of points for a per-thread collector to be kept for reuse. */
+    private static final int MAX_REUSED_POINTS = 1 << 16;
+
+    /** Per-thread points collector, reused for moments computation. */
+    private static final ThreadLocal<PointsCollector> collectors = new ThreadLocal<PointsCollector>()
+    {
+        @Override
+        protected PointsCollector initialValue ()
+        {
+            return new PointsCollector(null, 1024);
+        }
+    };
+
+    /** Per-thread ART extractor. */
+    private static final ThreadLocal<BasicARTExtractor> artExtractors = new ThreadLocal<BasicARTExtractor>()
+    {
+        @Override
+        protected BasicARTExtractor initialValue ()
+        {
+            return new BasicARTExtractor();
+        }
+    };
+
     //~ Instance fields ----------------------------------------------------------------------------
     // Persistent data
     //----------------
@@ -130,6 +156,9 @@ public class RunTable
     /** Cached total weight. */
     private Integer weight;
 
+    /** Sequences still packed in binary format, if any. */
+    private volatile RunTableFormat.Packed packed;
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Creates a new RunTable object.
@@ -208,7 +237,7 @@ public class RunTable
         // Look for background where foreground run is to take place
         // ...F(B)F... -> ...F(B1FB2)F...
         // .......^
-        RunSequence sequence = sequences[index];
+        RunSequence sequence = getSequence(index);
 
         if (sequence == null) {
             sequences[index] = sequence = new RunSequence();
@@ -316,13 +345,12 @@ public class RunTable
                                          int top)
     {
         // Retrieve glyph foreground points
-        final PointsCollector collector = new PointsCollector(null, getWeight());
-        cumulate(collector, new Point(left, top));
+        final PointsCollector collector = collectPoints(left, top);
 
         ///ARTMoments artMoments = new QuantizedARTMoments();
         ARTMoments artMoments = new BasicARTMoments();
 
-        BasicARTExtractor extractor = new BasicARTExtractor();
+        BasicARTExtractor extractor = artExtractors.get();
         extractor.setDescriptor(artMoments);
         extractor.extract(collector.getXValues(), collector.getYValues(), collector.getSize());
 
@@ -342,8 +370,7 @@ public class RunTable
             return null;
         }
 
-        final PointsCollector collector = new PointsCollector(null, weight);
-        cumulate(collector, new Point(left, top));
+        final PointsCollector collector = collectPoints(left, top);
 
         int[] xx = collector.getXValues();
         int[] yy = collector.getYValues();
@@ -358,6 +385,38 @@ public class RunTable
         return new Point((int) Math.rint(x / weight), (int) Math.rint(y / weight));
     }
 
+    //---------------//
+    // collectPoints //
+    //---------------//
+    /**
+     * Collect all table foreground points, translated by (left, top).
+     * <p>
+     * Unless the table is very large, a per-thread collector is reused, so the caller must
+     * consume the collected points before any other call.
+     *
+     * @param left abscissa of topLeft corner
+     * @param top  ordinate of topLeft corner
+     * @return the populated collector
+     */
+    private PointsCollector collectPoints (int left,
+                                           int top)
+    {
+        final int count = getWeight();
+        final PointsCollector collector;
+
+        if (count <= MAX_REUSED_POINTS) {
+            collector = collectors.get();
+            collector.reset(null);
+            collector.ensureCapacity(count);
+        } else {
+            collector = new PointsCollector(null, count);
+        }
+
+        cumulate(collector, new Point(left, top));
+
+        return collector;
+    }
+
     //-------------------------//
     // computeGeometricMoments //
     //-------------------------//
@@ -374,8 +433,7 @@ public class RunTable
                                                      int interline)
     {
         // Retrieve glyph foreground points
-        final PointsCollector collector = new PointsCollector(null, getWeight());
-        cumulate(collector, new Point(left, top));
+        final PointsCollector collector = collectPoints(left, top);
 
         // Then compute the geometric moments with this collector
         return new GeometricMoments(
@@ -412,7 +470,7 @@ public class RunTable
         RunTable clone = new RunTable(orientation, width, height);
 
         for (int i = 0; i < sequences.length; i++) {
-            RunSequence seq = sequences[i];
+            RunSequence seq = getSequence(i);
 
             if (seq != null) {
                 short[] rle = new short[seq.rle.length];
@@ -546,7 +604,7 @@ public class RunTable
         System.out.println(toString());
 
         for (int i = 0; i < sequences.length; i++) {
-            final RunSequence seq = sequences[i];
+            final RunSequence seq = getSequence(i);
             System.out.printf("%4d:%s%n", i, (seq != null) ? seq.toString() : "null");
         }
     }
@@ -583,6 +641,9 @@ public class RunTable
             return false;
         }
 
+        this.unpackAll();
+        other.unpackAll();
+
         return Arrays.deepEquals(this.sequences, other.sequences);
     }
 
@@ -918,6 +979,7 @@ public class RunTable
     public int getTotalRunCount ()
     {
         int total = 0;
+        unpackAll();
 
         for (RunSequence seq : sequences) {
             if (seq != null) {
@@ -1133,7 +1195,7 @@ public class RunTable
      */
     public boolean isSequenceEmpty (int index)
     {
-        return sequences[index] == null;
+        return getSequence(index) == null;
     }
 
     //----------//
@@ -1379,9 +1441,57 @@ public class RunTable
     public void setSequence (int index,
                              List<? extends Run> list)
     {
+        unpack(index);
         sequences[index] = encode(list);
     }
 
+    //-------------//
+    // setSequence //
+    //-------------//
+    /**
+     * Set a whole run sequence from flat arrays of runs.
+     *
+     * @param index   position in sequences list
+     * @param starts  starts of runs, in increasing order
+     * @param lengths lengths of runs
+     * @param count   number of runs to use in arrays
+     */
+    public void setSequence (int index,
+                             int[] starts,
+                             int[] lengths,
+                             int count)
+    {
+        unpack(index);
+
+        if (count == 0) {
+            sequences[index] = null;
+
+            return;
+        }
+
+        final boolean initialBackground = starts[0] != 0;
+        final short[] rle = new short[((2 * count) - 1) + (initialBackground ? 2 : 0)];
+        int cursor = 0;
+        int length = 0;
+
+        if (initialBackground) {
+            rle[cursor++] = 0; // Empty foreground length
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (cursor > 0) {
+                // Inject background
+                rle[cursor++] = (short) (starts[i] - length);
+            }
+
+            // Inject foreground
+            rle[cursor++] = (short) lengths[i];
+            length = starts[i] + lengths[i];
+        }
+
+        sequences[index] = new RunSequence(rle);
+    }
+
     //----------//
     // toString //
     //----------//
@@ -1589,6 +1699,10 @@ public class RunTable
      */
     final RunSequence getSequence (int index)
     {
+        if (packed != null) {
+            unpack(index);
+        }
+
         return sequences[index];
     }
 
@@ -1604,9 +1718,23 @@ public class RunTable
     final void setSequence (int index,
                             RunSequence seq)
     {
+        unpack(index);
         sequences[index] = seq;
     }
 
+    //-----------//
+    // setPacked //
+    //-----------//
+    /**
+     * (package private) Set the packed sequences this (empty) table is to be decoded from.
+     *
+     * @param packed the packed sequences
+     */
+    final void setPacked (RunTableFormat.Packed packed)
+    {
+        this.packed = packed;
+    }
+
     //--------------//
     // afterMarshal //
     //--------------//
@@ -1650,6 +1778,8 @@ public class RunTable
     @SuppressWarnings("unused")
     private void beforeMarshal (Marshaller m)
     {
+        unpackAll();
+
         for (int i = 0, iBreak = sequences.length; i < iBreak; i++) {
             RunSequence seq = sequences[i];
 
@@ -1659,6 +1789,46 @@ public class RunTable
         }
     }
 
+    //--------//
+    // unpack //
+    //--------//
+    /**
+     * Make sure the sequence at provided index, if still packed, gets decoded.
+     *
+     * @param index sequence index
+     */
+    private void unpack (int index)
+    {
+        if (packed == null) {
+            return;
+        }
+
+        synchronized (this) {
+            final RunTableFormat.Packed p = packed;
+
+            if ((p != null) && p.release(index)) {
+                sequences[index] = p.decode(index);
+
+                if (p.isExhausted()) {
+                    packed = null; // Release file content
+                }
+            }
+        }
+    }
+
+    //-----------//
+    // unpackAll //
+    //-----------//
+    /**
+     * Make sure all sequences still packed get decoded.
+     */
+    private void unpackAll ()
+    {
+        for (int i = 0; (packed != null) && (i < sequences.length); i++) {
+            unpack(i);
+        }
+    }
+
     //~ Inner Classes ------------------------------------------------------------------------------
     //-------------//
     // RunSequence //
@@ -1711,6 +1881,16 @@ public class RunTable
             return hash;
         }
 
+        /**
+         * (package private) Report the RLE cells of this sequence.
+         *
+         * @return the RLE array, perhaps null
+         */
+        short[] getRle ()
+        {
+            return rle;
+        }
+
         /**
          * Report the number of foreground runs in this sequence
          *
@@ -1771,7 +1951,7 @@ public class RunTable
             this.index = index;
 
             // Check the case of an initial background run
-            final RunSequence seq = sequences[index];
+            final RunSequence seq = getSequence(index);
 
             if (seq != null) {
                 final short[] rle = seq.rle;
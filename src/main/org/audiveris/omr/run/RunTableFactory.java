@@ -26,6 +26,8 @@ import ij.process.ByteProcessor;
 import net.jcip.annotations.NotThreadSafe;
 import net.jcip.annotations.ThreadSafe;
 
+import org.audiveris.omr.image.PixelFilter;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,6 +38,9 @@ import java.util.List;
 /**
  * Class {@code RunTableFactory} retrieves the runs structure out of a given pixel
  * source and builds the related {@link RunTable} structure.
+ * <p>
+ * The source can also be a {@link PixelFilter} on a gray image, in which case the runs are built
+ * on the fly from the filter decisions, without any intermediate binary image.
  *
  * @author Hervé Bitteur
  */
@@ -123,6 +128,35 @@ public class RunTableFactory
         return table;
     }
 
+    //
+    // ------------//
+    // createTable //
+    // ------------//
+    /**
+     * Report the RunTable created with the foreground pixels reported by the provided
+     * filter, without materializing the filtered image.
+     * <p>
+     * Pixels are read one position (column for vertical runs) after the other, which is the
+     * access order expected by a filter with a sliding window such as VerticalFilter.
+     * Positions are processed in parallel only if the filter class is annotated as ThreadSafe.
+     *
+     * @param pixelFilter the filter to read foreground pixels from
+     * @return a populated RunTable
+     */
+    public RunTable createTable (PixelFilter pixelFilter)
+    {
+        final Rectangle roi = new Rectangle(0, 0, pixelFilter.getWidth(), pixelFilter.getHeight());
+        final RunTable table = new RunTable(orientation, roi.width, roi.height);
+        final RunsRetriever retriever = new RunsRetriever(
+                orientation,
+                orientation.isVertical()
+                        ? new VerticalAdapter(pixelFilter, table, roi.getLocation())
+                        : new HorizontalAdapter(pixelFilter, table, roi.getLocation()));
+        retriever.retrieveRuns(roi);
+
+        return table;
+    }
+
     //~ Inner Interfaces ---------------------------------------------------------------------------
     //--------//
     // Filter //
@@ -190,9 +224,12 @@ public class RunTableFactory
     {
         //~ Instance fields ------------------------------------------------------------------------
 
-        /** The source to read runs of pixels from. */
+        /** The source to read runs of pixels from, if any. */
         protected final ByteProcessor source;
 
+        /** The filter to read foreground pixels from, if any. */
+        protected final PixelFilter pixelFilter;
+
         /** The created RunTable. */
         protected RunTable table;
 
@@ -205,6 +242,17 @@ public class RunTableFactory
                           Point tableOffset)
         {
             this.source = source;
+            this.pixelFilter = null;
+            this.table = table;
+            this.tableOffset = tableOffset;
+        }
+
+        public MyAdapter (PixelFilter pixelFilter,
+                          RunTable table,
+                          Point tableOffset)
+        {
+            this.source = null;
+            this.pixelFilter = pixelFilter;
             this.table = table;
             this.tableOffset = tableOffset;
         }
@@ -233,7 +281,7 @@ public class RunTableFactory
         @Override
         public boolean isThreadSafe ()
         {
-            Class<?> classe = source.getClass();
+            Class<?> classe = (pixelFilter != null) ? pixelFilter.getClass() : source.getClass();
 
             // Check for @ThreadSafe annotation
             ThreadSafe safe = classe.getAnnotation(ThreadSafe.class);
@@ -259,6 +307,26 @@ public class RunTableFactory
         protected abstract boolean checkFilter (int coord,
                                                 int pos,
                                                 int length);
+
+        //-------------//
+        // isForePixel //
+        //-------------//
+        /**
+         * Report whether the pixel at (x, y) is foreground.
+         *
+         * @param x abscissa
+         * @param y ordinate
+         * @return true for foreground
+         */
+        protected final boolean isForePixel (int x,
+                                             int y)
+        {
+            if (pixelFilter != null) {
+                return pixelFilter.isFore(x, y);
+            }
+
+            return source.get(x, y) == 0;
+        }
     }
 
     //-------------------//
@@ -279,6 +347,13 @@ public class RunTableFactory
             super(source, table, tableOffset);
         }
 
+        public HorizontalAdapter (PixelFilter pixelFilter,
+                                  RunTable table,
+                                  Point tableOffset)
+        {
+            super(pixelFilter, table, tableOffset);
+        }
+
         //~ Methods --------------------------------------------------------------------------------
         @Override
         public void endPosition (int pos,
@@ -291,7 +366,7 @@ public class RunTableFactory
         public final boolean isFore (int coord,
                                      int pos)
         {
-            return source.get(coord, pos) == 0;
+            return isForePixel(coord, pos);
         }
 
         @Override
@@ -321,6 +396,13 @@ public class RunTableFactory
             super(source, table, tableOffset);
         }
 
+        public VerticalAdapter (PixelFilter pixelFilter,
+                                RunTable table,
+                                Point tableOffset)
+        {
+            super(pixelFilter, table, tableOffset);
+        }
+
         //~ Methods --------------------------------------------------------------------------------
         @Override
         public void endPosition (int pos,
@@ -333,7 +415,7 @@ public class RunTableFactory
         public final boolean isFore (int coord,
                                      int pos)
         {
-            return source.get(pos, coord) == 0;
+            return isForePixel(pos, coord);
         }
 
         @Override
@@ -0,0 +1,301 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                  R u n T a b l e F o r m a t                                   //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.run;
+
+import org.audiveris.omr.run.RunTable.RunSequence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * Class {@code RunTableFormat} handles the compact binary format of a {@link RunTable}
+ * on disk, as an alternative to its XML marshalling.
+ * <p>
+ * Layout (big endian):
+ * <pre>
+ * int    magic
+ * int    orientation ordinal
+ * int    width
+ * int    height
+ * int    size (number of sequences)
+ * int[]  size + 1 offsets, counted in shorts from the start of RLE area
+ * short[] RLE area, the sequences one after the other (an empty sequence has no cell)
+ * </pre>
+ * When read, the file content is kept off-heap, memory-mapped if the file lies on the default file
+ * system, or bulk-read into a direct buffer otherwise (for example within a zipped book file).
+ * Each sequence is decoded only when first accessed.
+ *
+ * @author Hervé Bitteur
+ */
+public abstract class RunTableFormat
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Logger logger = LoggerFactory.getLogger(RunTableFormat.class);
+
+    /** File extension for this format. */
+    public static final String EXTENSION = ".bin";
+
+    /** Magic number, "RTB1". */
+    private static final int MAGIC = 0x52544231;
+
+    /** Size of header, in bytes. */
+    private static final int HEADER_SIZE = 5 * 4;
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //------//
+    // read //
+    //------//
+    /**
+     * Read a run table from the provided file.
+     * <p>
+     * Only the header is decoded, sequences are decoded on demand.
+     *
+     * @param path path to the file
+     * @return the run table
+     * @throws IOException if file cannot be read or has not the expected format
+     */
+    public static RunTable read (Path path)
+            throws IOException
+    {
+        final ByteBuffer buffer;
+
+        if (path.getFileSystem() == FileSystems.getDefault()) {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } finally {
+                channel.close(); // Mapping remains valid
+            }
+        } else {
+            SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ);
+
+            try {
+                buffer = ByteBuffer.allocateDirect((int) channel.size());
+
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        throw new IOException("Truncated run table " + path);
+                    }
+                }
+
+                buffer.flip();
+            } finally {
+                channel.close();
+            }
+        }
+
+        if ((buffer.limit() < HEADER_SIZE) || (buffer.getInt(0) != MAGIC)) {
+            throw new IOException("Not a binary run table " + path);
+        }
+
+        final Orientation orientation = Orientation.values()[buffer.getInt(4)];
+        final int width = buffer.getInt(8);
+        final int height = buffer.getInt(12);
+        final int size = buffer.getInt(16);
+        final RunTable table = new RunTable(orientation, width, height);
+
+        if (size != table.getSize()) {
+            throw new IOException("Inconsistent run table size in " + path);
+        }
+
+        final Packed packed = new Packed(buffer, size);
+
+        if (packed.rleStart + (2L * packed.offset(size)) > buffer.limit()) {
+            throw new IOException("Truncated run table " + path);
+        }
+
+        table.setPacked(packed);
+        logger.debug("Read {} from {}", table, path);
+
+        return table;
+    }
+
+    //-------//
+    // write //
+    //-------//
+    /**
+     * Write the provided run table to the provided file.
+     *
+     * @param table the table to write
+     * @param path  path to target file, which is overwritten if it already exists
+     * @throws IOException if file cannot be written
+     */
+    public static void write (RunTable table,
+                              Path path)
+            throws IOException
+    {
+        final int size = table.getSize();
+
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path)));
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(table.getOrientation().ordinal());
+            out.writeInt(table.getWidth());
+            out.writeInt(table.getHeight());
+            out.writeInt(size);
+
+            // Offsets
+            int offset = 0;
+            out.writeInt(offset);
+
+            for (int i = 0; i < size; i++) {
+                offset += length(table.getSequence(i));
+                out.writeInt(offset);
+            }
+
+            // RLE cells
+            for (int i = 0; i < size; i++) {
+                final RunSequence seq = table.getSequence(i);
+
+                for (int k = 0, n = length(seq); k < n; k++) {
+                    out.writeShort(seq.getRle()[k]);
+                }
+            }
+        } finally {
+            out.close();
+        }
+
+        logger.debug("Wrote {} to {}", table, path);
+    }
+
+    //--------//
+    // length //
+    //--------//
+    private static int length (RunSequence seq)
+    {
+        return ((seq == null) || (seq.getRle() == null)) ? 0 : seq.getRle().length;
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //--------//
+    // Packed //
+    //--------//
+    /**
+     * (package private) The not yet decoded sequences of a table.
+     * <p>
+     * It is not thread-safe, the owning table is responsible for synchronizing access.
+     */
+    static class Packed
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        /** File content. */
+        private final ByteBuffer buffer;
+
+        /** Number of sequences. */
+        private final int size;
+
+        /** Byte position of RLE area. */
+        private final int rleStart;
+
+        /** Sequences already released to the table. */
+        private final BitSet released;
+
+        /** Number of sequences not yet released. */
+        private int remaining;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        Packed (ByteBuffer buffer,
+                int size)
+        {
+            this.buffer = buffer;
+            this.size = size;
+            rleStart = HEADER_SIZE + (4 * (size + 1));
+            released = new BitSet(size);
+            remaining = size;
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        /**
+         * Report whether all sequences have been released.
+         *
+         * @return true if nothing remains to decode
+         */
+        boolean isExhausted ()
+        {
+            return remaining == 0;
+        }
+
+        /**
+         * Release the sequence at provided index, if not yet done.
+         *
+         * @param index sequence index
+         * @return true if just released, false if already released before
+         */
+        boolean release (int index)
+        {
+            if (released.get(index)) {
+                return false;
+            }
+
+            released.set(index);
+            remaining--;
+
+            return true;
+        }
+
+        /**
+         * Decode the sequence at provided index.
+         *
+         * @param index sequence index
+         * @return the decoded sequence, or null if empty
+         */
+        RunSequence decode (int index)
+        {
+            final int start = offset(index);
+            final int stop = offset(index + 1);
+
+            if (stop == start) {
+                return null;
+            }
+
+            final short[] rle = new short[stop - start];
+
+            for (int k = 0; k < rle.length; k++) {
+                rle[k] = buffer.getShort(rleStart + (2 * (start + k)));
+            }
+
+            return new RunSequence(rle);
+        }
+
+        private int offset (int index)
+        {
+            return buffer.getInt(HEADER_SIZE + (4 * index));
+        }
+    }
+}
@@ -42,7 +42,6 @@ import org.audiveris.omr.sheet.ui.BookBrowser;
 import org.audiveris.omr.sheet.ui.StubsController;
 import org.audiveris.omr.step.ProcessingCancellationException;
 import org.audiveris.omr.step.Step;
-import org.audiveris.omr.step.StepException;
 import org.audiveris.omr.step.ui.StepMonitoring;
 import org.audiveris.omr.text.Language;
 import org.audiveris.omr.util.FileUtil;
@@ -73,8 +72,6 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
-import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.ZipOutputStream;
@@ -188,6 +185,9 @@ public class BasicBook
     /** Book-level sample repository. */
     private SampleRepository repository;
 
+    /** Residency of sheets in memory. */
+    private final SheetResidency residency = new SheetResidency(this);
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Create a Book with a path to an input images file.
@@ -274,6 +274,13 @@ public class BasicBook
         // Remove from OMR instances
         OMR.engine.removeBook(this);
 
+        // Complete any pending sheet write-back
+        residency.flush();
+
+        if (residency.getWriteBackCount() > 0) {
+            logger.info("{}", residency);
+        }
+
         // Time for some cleanup...
         Memory.gc();
 
@@ -716,6 +723,15 @@ public class BasicBook
         return radix;
     }
 
+    //--------------//
+    // getResidency //
+    //--------------//
+    @Override
+    public SheetResidency getResidency ()
+    {
+        return residency;
+    }
+
     //---------------------//
     // getSampleRepository //
     //---------------------//
@@ -1006,50 +1022,9 @@ public class BasicBook
                 if (isMultiSheet()
                     && constants.processAllStubsInParallel.isSet()
                     && (OmrExecutors.defaultParallelism.getTarget() == true)) {
-                    // Process all stubs in parallel
-                    List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
-
-                    for (final SheetStub stub : concernedStubs) {
-                        tasks.add(
-                                new Callable<Boolean>()
-                        {
-                            @Override
-                            public Boolean call ()
-                                    throws StepException
-                            {
-                                LogUtil.start(stub);
-
-                                try {
-                                    boolean ok = stub.reachStep(target, force);
-
-                                    if (ok && (OMR.gui == null)) {
-                                        stub.swapSheet(); // Save sheet & global book info to disk
-                                    }
-
-                                    return ok;
-                                } finally {
-                                    LogUtil.stopStub();
-                                }
-                            }
-                        });
-                    }
-
+                    // Process all stubs in parallel, step by step
                     try {
-                        List<Future<Boolean>> futures = OmrExecutors.getCachedLowExecutor()
-                                .invokeAll(tasks);
-
-                        for (Future<Boolean> future : futures) {
-                            try {
-                                if (!future.get()) {
-                                    someFailure = true;
-                                }
-                            } catch (Exception ex) {
-                                logger.warn("Future exception", ex);
-                                someFailure = true;
-                            }
-                        }
-
-                        return !someFailure;
+                        return new BookScheduler(concernedStubs, target, force).process();
                     } catch (InterruptedException ex) {
                         logger.warn("Error in parallel reachBookStep", ex);
                         someFailure = true;
@@ -1276,6 +1251,8 @@ public class BasicBook
     {
         Memory.gc(); // Launch garbage collection, to save on weak glyph references ...
 
+        residency.flush(); // Complete pending sheet write-backs, before locking the book
+
         boolean diskWritten = false; // Has disk actually been written?
 
         // Backup existing book file?
@@ -1417,6 +1394,8 @@ public class BasicBook
                 stub.swapSheet();
             }
         }
+
+        Memory.gc(); // Trigger a garbage collection...
     }
 
     //----------//
@@ -1926,6 +1905,6 @@ public class BasicBook
 
         private final Constant.Boolean processAllStubsInParallel = new Constant.Boolean(
                 false,
-                "Should we process all stubs of a book in parallel? (beware of many stubs)");
+                "Should we process all stubs of a book in parallel? (see BookScheduler limits)");
     }
 }
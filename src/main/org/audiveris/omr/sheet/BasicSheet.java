@@ -22,8 +22,11 @@
 package org.audiveris.omr.sheet;
 
 import org.audiveris.omr.OMR;
+import org.audiveris.omr.classifier.EvaluationCache;
 import org.audiveris.omr.classifier.SampleRepository;
 import org.audiveris.omr.classifier.SampleSheet;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Glyph;
 import org.audiveris.omr.glyph.GlyphIndex;
 import org.audiveris.omr.glyph.GlyphsModel;
@@ -71,8 +74,12 @@ import org.slf4j.LoggerFactory;
 
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -120,9 +127,17 @@ public class BasicSheet
 {
     //~ Static fields/initializers -----------------------------------------------------------------
 
+    private static final Constants constants = new Constants();
+
     private static final Logger logger = LoggerFactory.getLogger(
             Sheet.class);
 
+    /** Magic number at the beginning of a binary sheet file. ("OMRS") */
+    private static final int BINARY_MAGIC = 0x4f4d5253;
+
+    /** Current version of binary sheet format. */
+    private static final int BINARY_VERSION = 1;
+
     /** Events that can be published on sheet location service. */
     private static final Class<?>[] allowedEvents = new Class<?>[]{
         LocationEvent.class, PixelEvent.class
@@ -206,6 +221,9 @@ public class BasicSheet
     /** Global filaments index. */
     private FilamentIndex filamentIndex;
 
+    /** Cache of glyph evaluations. */
+    private volatile EvaluationCache evaluationCache;
+
     /** Delta measurements. */
     private SheetDiff sheetDelta;
 
@@ -277,6 +295,20 @@ public class BasicSheet
         return Sheet.INTERNALS_RADIX + number + ".xml";
     }
 
+    //------------------------//
+    // getSheetBinaryFileName //
+    //------------------------//
+    /**
+     * Report the name of sheet structure file, when stored in binary format.
+     *
+     * @param number sheet number in book
+     * @return the binary file name
+     */
+    public static String getSheetBinaryFileName (int number)
+    {
+        return Sheet.INTERNALS_RADIX + number + ".bin";
+    }
+
     //-----------------//
     // addItemRenderer //
     //-----------------//
@@ -315,9 +347,14 @@ public class BasicSheet
             initTransients(stub);
 
             // Make sure hLag & vLag are available and their sections dispatched to relevant systems
+            // (right now, or on first access to system sections)
             if (stub.isDone(Step.GRID)) {
-                systemManager.dispatchHorizontalSections();
-                systemManager.dispatchVerticalSections();
+                if (constants.lazySectionsDispatch.isSet()) {
+                    systemManager.deferSectionsDispatch();
+                } else {
+                    systemManager.dispatchHorizontalSections();
+                    systemManager.dispatchVerticalSections();
+                }
             }
 
             interIndex = new InterIndex();
@@ -542,6 +579,23 @@ public class BasicSheet
         return errorsEditor;
     }
 
+    //--------------------//
+    // getEvaluationCache //
+    //--------------------//
+    @Override
+    public EvaluationCache getEvaluationCache ()
+    {
+        if (evaluationCache == null) {
+            synchronized (this) {
+                if (evaluationCache == null) {
+                    evaluationCache = new EvaluationCache();
+                }
+            }
+        }
+
+        return evaluationCache;
+    }
+
     //------------------//
     // getFilamentIndex //
     //------------------//
@@ -770,6 +824,42 @@ public class BasicSheet
         return sheet;
     }
 
+    //-----------------//
+    // unmarshalBinary //
+    //-----------------//
+    /**
+     * Unmarshal the provided binary stream to allocate the corresponding sheet.
+     * <p>
+     * The binary format is a small header (magic number and format version) followed by the
+     * sheet structure, with the same content as the XML format but encoded as Fast Infoset.
+     *
+     * @param in the input stream that contains the sheet in binary format.
+     *           The stream is not closed by this method
+     * @return the allocated sheet.
+     * @throws IOException   raised when header is not readable or not compatible
+     * @throws JAXBException raised when unmarshalling goes wrong
+     */
+    public static BasicSheet unmarshalBinary (InputStream in)
+            throws IOException, JAXBException
+    {
+        DataInputStream dis = new DataInputStream(in);
+
+        if (dis.readInt() != BINARY_MAGIC) {
+            throw new IOException("Not a binary sheet file");
+        }
+
+        int version = dis.readInt();
+
+        if (version != BINARY_VERSION) {
+            throw new IOException("Unsupported binary sheet version " + version);
+        }
+
+        BasicSheet sheet = (BasicSheet) Jaxb.unmarshalBinary(dis, getJaxbContext());
+        logger.debug("Sheet unmarshalled from binary");
+
+        return sheet;
+    }
+
     //---------------//
     // getSheetDelta //
     //---------------//
@@ -969,12 +1059,25 @@ public class BasicSheet
             }
         }
 
-        // Sheet structure (sheet#n.xml)
+        // Sheet structure (sheet#n.xml or sheet#n.bin)
         try {
-            Path structurePath = sheetFolder.resolve(getSheetFileName(stub.getNumber()));
-            Files.deleteIfExists(structurePath);
+            final int number = stub.getNumber();
+            final boolean binary = constants.useBinaryFormat.isSet();
+            final Path xmlPath = sheetFolder.resolve(getSheetFileName(number));
+            final Path binPath = sheetFolder.resolve(getSheetBinaryFileName(number));
+            final Path structurePath = binary ? binPath : xmlPath;
+
+            // Remove structure in both formats, to avoid any stale file
+            Files.deleteIfExists(xmlPath);
+            Files.deleteIfExists(binPath);
             Files.createDirectories(sheetFolder);
-            Jaxb.marshal(this, structurePath, getJaxbContext());
+
+            if (binary) {
+                marshalBinary(structurePath);
+            } else {
+                Jaxb.marshal(this, structurePath, getJaxbContext());
+            }
+
             stub.setModified(false);
             logger.info("Stored {}", structurePath);
         } catch (Exception ex) {
@@ -1009,6 +1112,7 @@ public class BasicSheet
         case BINARY:
         case SCALE:
             scale = null;
+            evaluationCache = null;
 
         // Fall-through!
         case GRID:
@@ -1088,6 +1192,27 @@ public class BasicSheet
         return jaxbContext;
     }
 
+    //---------------//
+    // marshalBinary //
+    //---------------//
+    /**
+     * Marshal this sheet structure to the provided path, using binary format.
+     *
+     * @param path the target path
+     * @throws Exception if anything goes wrong
+     */
+    private void marshalBinary (Path path)
+            throws Exception
+    {
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(path))) {
+            DataOutputStream dos = new DataOutputStream(os);
+            dos.writeInt(BINARY_MAGIC);
+            dos.writeInt(BINARY_VERSION);
+            Jaxb.marshalBinary(this, dos, getJaxbContext());
+            dos.flush();
+        }
+    }
+
     //------------------------//
     // createGlyphsController //
     //------------------------//
@@ -1266,6 +1391,23 @@ public class BasicSheet
         }
     }
 
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Boolean lazySectionsDispatch = new Constant.Boolean(
+                true,
+                "Should lags be rebuilt and dispatched to systems only on first use after reload?");
+
+        private final Constant.Boolean useBinaryFormat = new Constant.Boolean(
+                false,
+                "Should sheet structure be stored in binary format rather than XML?");
+    }
+
     //-----------//
     // GlyphList // For glyphIndex (un)marshalling
     //-----------//
@@ -41,7 +41,6 @@ import org.audiveris.omr.step.ui.StepMonitoring;
 import org.audiveris.omr.ui.Colors;
 import org.audiveris.omr.util.Jaxb;
 import org.audiveris.omr.util.LiveParam;
-import org.audiveris.omr.util.Memory;
 import org.audiveris.omr.util.Navigable;
 import org.audiveris.omr.util.OmrExecutors;
 import org.audiveris.omr.util.StopWatch;
@@ -51,6 +50,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -409,6 +409,9 @@ public class BasicStub
                         logger.warn("XXXX getSheet called on EDT XXXX");
                     }
 
+                    // Make sure a previous swap of this sheet has been fully stored
+                    book.getResidency().waitForWriteBack(this);
+
                     // Actually load the sheet
                     if (!isDone(Step.LOAD)) {
                         // LOAD not yet performed: load from book image file
@@ -428,13 +431,22 @@ public class BasicStub
                             // Open the book file system
                             try {
                                 book.getLock().lock();
-                                sheetFile = book.openSheetFolder(number).resolve(
-                                        BasicSheet.getSheetFileName(number));
 
-                                InputStream is = Files.newInputStream(
-                                        sheetFile,
-                                        StandardOpenOption.READ);
-                                sheet = BasicSheet.unmarshal(is);
+                                // Sheet structure may be stored in binary or XML format
+                                final Path folder = book.openSheetFolder(number);
+                                sheetFile = folder.resolve(
+                                        BasicSheet.getSheetBinaryFileName(number));
+
+                                final boolean binary = Files.exists(sheetFile);
+
+                                if (!binary) {
+                                    sheetFile = folder.resolve(BasicSheet.getSheetFileName(number));
+                                }
+
+                                InputStream is = new BufferedInputStream(
+                                        Files.newInputStream(sheetFile, StandardOpenOption.READ));
+                                sheet = binary ? BasicSheet.unmarshalBinary(is)
+                                        : BasicSheet.unmarshal(is);
 
                                 // Close the stream as well as the book file system
                                 is.close();
@@ -457,6 +469,10 @@ public class BasicStub
                             }
                         }
                     }
+
+                    if (sheet != null) {
+                        book.getResidency().loaded(this);
+                    }
                 }
             }
         }
@@ -689,40 +705,46 @@ public class BasicStub
     public void storeSheet ()
             throws Exception
     {
-        if (modified) {
-            book.getLock().lock();
-
-            Path bookPath = BookManager.getDefaultSavePath(book);
-
-            try {
-                Path root = ZipFileSystem.open(bookPath);
-                book.storeBookInfo(root); // Book info (book.xml)
-
-                Path sheetFolder = root.resolve(INTERNALS_RADIX + getNumber());
-                sheet.store(sheetFolder, null);
-                root.getFileSystem().close();
-            } finally {
-                book.getLock().unlock();
-            }
-        }
+        storeSheet(sheet);
     }
 
     //-----------//
     // swapSheet //
     //-----------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If modified, the sheet is stored back to book file, perhaps asynchronously.
+     *
+     * @see SheetResidency#writeBack(SheetStub, Callable)
+     */
     @Override
     public void swapSheet ()
     {
         try {
-            if (isModified()) {
-                logger.info("{} storing", this);
-                storeSheet();
-            }
+            final BasicSheet swapped = sheet;
+
+            if (swapped != null) {
+                if (isModified()) {
+                    logger.info("{} storing", this);
+                    book.getResidency().writeBack(
+                            this,
+                            new Callable<Void>()
+                    {
+                        @Override
+                        public Void call ()
+                                throws Exception
+                        {
+                            storeSheet(swapped);
 
-            if (sheet != null) {
-                logger.info("{} disposed", sheet);
+                            return null;
+                        }
+                    });
+                }
+
+                logger.info("{} disposed", swapped);
                 sheet = null;
-                Memory.gc(); // Trigger a garbage collection...
+                book.getResidency().unloaded(this);
             }
 
             if (OMR.gui != null) {
@@ -823,6 +845,9 @@ public class BasicStub
 
             future.get(timeout, TimeUnit.SECONDS);
 
+            // Keep sheets within heap budget
+            book.getResidency().touched(this);
+
             // At end of each step, save sheet to disk?
             if ((OMR.gui == null) && Main.saveSheetOnEveryStep()) {
                 logger.debug("calling storeSheet");
@@ -919,6 +944,36 @@ public class BasicStub
         }
     }
 
+    //------------//
+    // storeSheet //
+    //------------//
+    /**
+     * Store the provided sheet of this stub, if modified, to the book file.
+     *
+     * @param sheet the sheet to store (perhaps no longer referenced by this stub)
+     * @throws Exception if anything goes wrong
+     */
+    private void storeSheet (BasicSheet sheet)
+            throws Exception
+    {
+        if (modified) {
+            book.getLock().lock();
+
+            Path bookPath = BookManager.getDefaultSavePath(book);
+
+            try {
+                Path root = ZipFileSystem.open(bookPath);
+                book.storeBookInfo(root); // Book info (book.xml)
+
+                Path sheetFolder = root.resolve(INTERNALS_RADIX + getNumber());
+                sheet.store(sheetFolder, null);
+                root.getFileSystem().close();
+            } finally {
+                book.getLock().unlock();
+            }
+        }
+    }
+
     //~ Inner Classes ------------------------------------------------------------------------------
     //---------//
     // Adapter //
@@ -86,6 +86,7 @@ import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
  * <li>{@link #removeStub}</li>
  * <li>{@link #hideInvalidStubs}</li>
  * <li>{@link #swapAllSheets}</li>
+ * <li>{@link #getResidency}</li>
  * </ul></dd>
  *
  * <dt>Parameters</dt>
@@ -264,6 +265,13 @@ public interface Book
      */
     String getRadix ();
 
+    /**
+     * Report the manager which keeps the book sheets within heap budget.
+     *
+     * @return the sheet residency manager
+     */
+    SheetResidency getResidency ();
+
     /**
      * Report the sample repository (specific or global) to populate for this book
      *
@@ -0,0 +1,407 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                   B o o k S c h e d u l e r                                    //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sheet;
+
+import org.audiveris.omr.OMR;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.log.LogUtil;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.step.Step;
+import org.audiveris.omr.util.Memory;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+
+/**
+ * Class {@code BookScheduler} drives a collection of sheet stubs towards a target step,
+ * one step at a time, so that sheets stream through the pipeline rather than being
+ * processed as coarse whole-sheet tasks.
+ * <p>
+ * Scheduling rules:
+ * <ul>
+ * <li>At most {@link #getMaxInFlight()} sheets are <i>in flight</i> (started but not finished),
+ * this bounds the number of sheets resident in memory.</li>
+ * <li>A new sheet is admitted only if current heap occupation (as reported by {@link Memory})
+ * stays below a configurable ratio of the maximum heap, unless no sheet is in flight.</li>
+ * <li>Ready step tasks are queued by priority: the more advanced a sheet is, the sooner its next
+ * step is run, so that sheets complete (and get swapped out) as early as possible.</li>
+ * <li>At most {@link #getMaxWorkers()} step tasks run concurrently, which keeps all cores busy
+ * even when a few sheets are much slower than the others.</li>
+ * </ul>
+ * All scheduling decisions are made on the calling thread, worker threads only run the steps.
+ *
+ * @author Hervé Bitteur
+ */
+class BookScheduler
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(BookScheduler.class);
+
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** Target step for all sheets. */
+    private final Step target;
+
+    /** Should target be forced. */
+    private final boolean force;
+
+    /** Sheets not yet admitted, in book order. */
+    private final Deque<SheetStub> pendings = new ArrayDeque<SheetStub>();
+
+    /** Step tasks ready to run, most advanced sheets first. */
+    private final PriorityQueue<StepTask> readies = new PriorityQueue<StepTask>();
+
+    /** Number of sheets currently in flight. */
+    private int inFlight;
+
+    /** Highest number of sheets simultaneously in flight. */
+    private int peakInFlight;
+
+    /** Number of admissions delayed because of memory. */
+    private int memoryStalls;
+
+    /** Number of step tasks run. */
+    private int stepCount;
+
+    /** Sequence number to keep queue ordering stable. */
+    private int sequence;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code BookScheduler} object.
+     *
+     * @param stubs  the stubs to process, in book order
+     * @param target the step to reach on every stub
+     * @param force  true to force target re-processing on sheets where it is already done
+     */
+    BookScheduler (List<SheetStub> stubs,
+                   Step target,
+                   boolean force)
+    {
+        this.target = target;
+        this.force = force;
+        pendings.addAll(stubs);
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //---------//
+    // process //
+    //---------//
+    /**
+     * Process all stubs towards target step.
+     *
+     * @return true if OK on all stubs
+     * @throws InterruptedException if interrupted while waiting for step completion
+     */
+    public boolean process ()
+            throws InterruptedException
+    {
+        final long startTime = System.currentTimeMillis();
+        final int maxWorkers = getMaxWorkers();
+        final CompletionService<StepTask> service = new ExecutorCompletionService<StepTask>(
+                OmrExecutors.getCachedLowExecutor());
+        final Set<Future<StepTask>> running = new LinkedHashSet<Future<StepTask>>();
+        boolean someFailure = false;
+
+        admit();
+
+        while (!running.isEmpty() || !readies.isEmpty()) {
+            // Launch as many ready tasks as allowed
+            while ((running.size() < maxWorkers) && !readies.isEmpty()) {
+                running.add(service.submit(readies.poll()));
+            }
+
+            final Future<StepTask> future;
+
+            try {
+                future = service.take();
+            } catch (InterruptedException ex) {
+                cancel(running);
+                throw ex;
+            }
+
+            running.remove(future);
+
+            try {
+                final StepTask task = future.get();
+                stepCount++;
+
+                if (!task.ok) {
+                    someFailure = true;
+                    inFlight--;
+                } else if (task.finished) {
+                    inFlight--;
+                } else {
+                    readies.add(new StepTask(task.stub, false, sequence++));
+                }
+            } catch (ExecutionException ex) {
+                // A sheet cancellation (such as step timeout) is not a book cancellation
+                if ((ex.getCause() instanceof ProcessingCancellationException)
+                    && Thread.currentThread().isInterrupted()) {
+                    cancel(running);
+                    throw (ProcessingCancellationException) ex.getCause();
+                }
+
+                logger.warn("Future exception", ex);
+                someFailure = true;
+                inFlight--;
+            }
+
+            admit();
+        }
+
+        logger.info(
+                "Scheduler reached {} in {} ms, steps:{} peakInFlight:{} memoryStalls:{}",
+                target,
+                System.currentTimeMillis() - startTime,
+                stepCount,
+                peakInFlight,
+                memoryStalls);
+
+        return !someFailure;
+    }
+
+    //----------------//
+    // getMaxInFlight //
+    //----------------//
+    /**
+     * Report the maximum number of sheets in flight.
+     *
+     * @return the in-flight limit
+     */
+    static int getMaxInFlight ()
+    {
+        final int max = constants.maxSheetsInFlight.getValue();
+
+        return (max > 0) ? max : OmrExecutors.getNumberOfCpus();
+    }
+
+    //---------------//
+    // getMaxWorkers //
+    //---------------//
+    /**
+     * Report the maximum number of step tasks running concurrently.
+     *
+     * @return the workers limit
+     */
+    static int getMaxWorkers ()
+    {
+        return Math.max(1, OmrExecutors.getNumberOfCpus());
+    }
+
+    //-------//
+    // admit //
+    //-------//
+    /**
+     * Admit as many pending sheets as in-flight limit and memory allow.
+     */
+    private void admit ()
+    {
+        final int maxInFlight = getMaxInFlight();
+
+        while (!pendings.isEmpty() && (inFlight < maxInFlight)) {
+            if ((inFlight > 0) && !isMemoryAvailable()) {
+                memoryStalls++;
+                logger.debug("Admission delayed, occupied memory: {}", Memory.occupied());
+
+                return;
+            }
+
+            final SheetStub stub = pendings.poll();
+            readies.add(new StepTask(stub, force && stub.isDone(target), sequence++));
+            inFlight++;
+            peakInFlight = Math.max(peakInFlight, inFlight);
+        }
+    }
+
+    //--------//
+    // cancel //
+    //--------//
+    /**
+     * Cancel the step tasks still running, when the whole book processing is cancelled.
+     *
+     * @param running the running tasks
+     */
+    private void cancel (Set<Future<StepTask>> running)
+    {
+        for (Future<StepTask> future : running) {
+            future.cancel(true);
+        }
+
+        running.clear();
+    }
+
+    //-------------------//
+    // isMemoryAvailable //
+    //-------------------//
+    private boolean isMemoryAvailable ()
+    {
+        final double ratio = constants.maxMemoryRatio.getValue();
+
+        return Memory.retained() < (ratio * Memory.max());
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Integer maxSheetsInFlight = new Constant.Integer(
+                "sheets",
+                0,
+                "Maximum number of sheets processed concurrently (0 for CPU count)");
+
+        private final Constant.Ratio maxMemoryRatio = new Constant.Ratio(
+                0.75,
+                "Maximum ratio of retained heap to admit a new sheet");
+    }
+
+    //----------//
+    // StepTask //
+    //----------//
+    /**
+     * Task to process the next needed step on a stub.
+     */
+    private class StepTask
+            implements Callable<StepTask>, Comparable<StepTask>
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        final SheetStub stub;
+
+        /** Should stub be reset to BINARY beforehand. */
+        final boolean reset;
+
+        /** Sequence number, for stable ordering. */
+        final int seq;
+
+        /** Latest step done when task was created. */
+        final Step latest;
+
+        /** Was step successful. */
+        boolean ok;
+
+        /** Is stub now at target. */
+        boolean finished;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        StepTask (SheetStub stub,
+                  boolean reset,
+                  int seq)
+        {
+            this.stub = stub;
+            this.reset = reset;
+            this.seq = seq;
+            latest = reset ? null : stub.getLatestStep();
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        @Override
+        public StepTask call ()
+                throws Exception
+        {
+            LogUtil.start(stub);
+
+            try {
+                // Reset and step are run under stub lock, as reachStep(target, true) would do
+                stub.getLock().lock();
+
+                try {
+                    if (reset) {
+                        stub.resetToBinary();
+                    }
+
+                    final Step step = getNextStep();
+
+                    if (step == null) {
+                        ok = true;
+                    } else {
+                        ok = stub.reachStep(step, false);
+                    }
+                } finally {
+                    stub.getLock().unlock();
+                }
+
+                finished = !ok || (getNextStep() == null);
+
+                if (ok && finished && (OMR.gui == null)) {
+                    stub.swapSheet(); // Save sheet & global book info to disk
+                }
+
+                return this;
+            } finally {
+                LogUtil.stopStub();
+            }
+        }
+
+        @Override
+        public int compareTo (StepTask that)
+        {
+            // Most advanced sheet first
+            final int thisOrd = (latest != null) ? latest.ordinal() : -1;
+            final int thatOrd = (that.latest != null) ? that.latest.ordinal() : -1;
+
+            if (thisOrd != thatOrd) {
+                return Integer.compare(thatOrd, thisOrd);
+            }
+
+            return Integer.compare(seq, that.seq);
+        }
+
+        /**
+         * Report the first step not yet done on stub, up to target.
+         *
+         * @return the next step, or null if target is reached
+         */
+        private Step getNextStep ()
+        {
+            for (Step step : EnumSet.range(Step.first(), target)) {
+                if (!stub.isDone(step)) {
+                    return step;
+                }
+            }
+
+            return null;
+        }
+    }
+}
@@ -37,6 +37,7 @@ import org.audiveris.omr.image.PixelSource;
 import static org.audiveris.omr.run.Orientation.VERTICAL;
 import org.audiveris.omr.run.RunTable;
 import org.audiveris.omr.run.RunTableFactory;
+import org.audiveris.omr.run.RunTableFormat;
 import org.audiveris.omr.sheet.grid.LineInfo;
 import org.audiveris.omr.ui.selection.LocationEvent;
 import org.audiveris.omr.ui.selection.MouseMovement;
@@ -761,15 +762,14 @@ public class Picture
     {
         // Each handled table
         for (Entry<TableKey, RunTableHolder> entry : tables.entrySet()) {
-            final TableKey key = entry.getKey();
             final RunTableHolder holder = entry.getValue();
-            final Path tablepath = sheetPath.resolve(key + ".xml");
+            final Path tablepath = sheetPath.resolve(holder.getPathString());
 
             if (!holder.hasData()) {
                 if (oldSheetPath != null) {
                     try {
                         // Copy from old book file to new
-                        Path oldTablePath = oldSheetPath.resolve(key + ".xml");
+                        Path oldTablePath = oldSheetPath.resolve(holder.getPathString());
                         Files.copy(oldTablePath, tablepath);
                         logger.info("Copied {}", tablepath);
                     } catch (IOException ex) {
@@ -781,7 +781,13 @@ public class Picture
                     Files.deleteIfExists(tablepath);
 
                     RunTable table = holder.getData(sheet.getStub());
-                    Jaxb.marshal(table, tablepath, JAXBContext.newInstance(RunTable.class));
+
+                    if (holder.isBinaryFormat()) {
+                        RunTableFormat.write(table, tablepath);
+                    } else {
+                        Jaxb.marshal(table, tablepath, JAXBContext.newInstance(RunTable.class));
+                    }
+
                     holder.setModified(false);
                     logger.info("Stored {}", tablepath);
                 } catch (Exception ex) {
@@ -21,7 +21,10 @@
 // </editor-fold>
 package org.audiveris.omr.sheet;
 
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFormat;
 import org.audiveris.omr.sheet.Picture.TableKey;
 
 import org.slf4j.Logger;
@@ -41,6 +44,9 @@ import javax.xml.bind.annotation.XmlAttribute;
 /**
  * Class {@code RunTableHolder} holds the reference to a run table, at least the path
  * to its marshalled data on disk, and (on demand) the unmarshalled run table itself.
+ * <p>
+ * Data on disk is either in XML (".xml" file) or in compact binary format (".bin" file, see
+ * {@link RunTableFormat}), according to the file name recorded by the holder.
  *
  * @author Hervé Bitteur
  */
@@ -49,6 +55,8 @@ public class RunTableHolder
 {
     //~ Static fields/initializers -----------------------------------------------------------------
 
+    private static final Constants constants = new Constants();
+
     private static final Logger logger = LoggerFactory.getLogger(
             RunTableHolder.class);
 
@@ -71,7 +79,7 @@ public class RunTableHolder
      */
     public RunTableHolder (TableKey key)
     {
-        pathString = key + ".xml";
+        pathString = key + (constants.useBinaryFormat.isSet() ? RunTableFormat.EXTENSION : ".xml");
     }
 
     /** No-arg constructor needed for JAXB. */
@@ -97,17 +105,26 @@ public class RunTableHolder
                 stub.getBook().getLock().lock();
 
                 if (data == null) {
-                    JAXBContext jaxbContext = JAXBContext.newInstance(RunTable.class);
-                    Unmarshaller um = jaxbContext.createUnmarshaller();
-
                     // Open book file system
-                    Path dataFile = stub.getBook().openSheetFolder(stub.getNumber())
-                            .resolve(pathString);
+                    final Path folder = stub.getBook().openSheetFolder(stub.getNumber());
+                    Path dataFile = folder.resolve(pathString);
+
+                    if (!Files.exists(dataFile)) {
+                        // Perhaps stored in the other format
+                        dataFile = folder.resolve(getAlternatePathString());
+                    }
+
                     logger.debug("path: {}", dataFile);
 
-                    InputStream is = Files.newInputStream(dataFile, StandardOpenOption.READ);
-                    data = (RunTable) um.unmarshal(is);
-                    is.close();
+                    if (dataFile.getFileName().toString().endsWith(RunTableFormat.EXTENSION)) {
+                        data = RunTableFormat.read(dataFile);
+                    } else {
+                        JAXBContext jaxbContext = JAXBContext.newInstance(RunTable.class);
+                        Unmarshaller um = jaxbContext.createUnmarshaller();
+                        InputStream is = Files.newInputStream(dataFile, StandardOpenOption.READ);
+                        data = (RunTable) um.unmarshal(is);
+                        is.close();
+                    }
 
                     dataFile.getFileSystem().close(); // Close book file system
                     modified = false;
@@ -123,6 +140,19 @@ public class RunTableHolder
         return data;
     }
 
+    //---------------//
+    // getPathString //
+    //---------------//
+    /**
+     * Report the name of data file, relative to sheet folder.
+     *
+     * @return the data file name
+     */
+    public String getPathString ()
+    {
+        return pathString;
+    }
+
     //---------//
     // hasData //
     //---------//
@@ -139,6 +169,19 @@ public class RunTableHolder
         return modified;
     }
 
+    //----------------//
+    // isBinaryFormat //
+    //----------------//
+    /**
+     * Report whether data file uses the binary format rather than XML.
+     *
+     * @return true for binary format
+     */
+    public boolean isBinaryFormat ()
+    {
+        return pathString.endsWith(RunTableFormat.EXTENSION);
+    }
+
     //---------//
     // setData //
     //---------//
@@ -156,4 +199,28 @@ public class RunTableHolder
     {
         modified = bool;
     }
+
+    //------------------------//
+    // getAlternatePathString //
+    //------------------------//
+    private String getAlternatePathString ()
+    {
+        final String radix = pathString.substring(0, pathString.lastIndexOf('.'));
+
+        return radix + (isBinaryFormat() ? ".xml" : RunTableFormat.EXTENSION);
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Boolean useBinaryFormat = new Constant.Boolean(
+                true,
+                "Should run tables be stored in binary format rather than XML?");
+    }
 }
@@ -21,6 +21,7 @@
 // </editor-fold>
 package org.audiveris.omr.sheet;
 
+import org.audiveris.omr.classifier.EvaluationCache;
 import org.audiveris.omr.glyph.GlyphIndex;
 import org.audiveris.omr.glyph.dynamic.FilamentIndex;
 import org.audiveris.omr.glyph.ui.GlyphsController;
@@ -56,6 +57,7 @@ import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
  * <li>{@link #getStub}</li>
  * <li>{@link #afterReload}</li>
  * <li>{@link #getLagManager}</li>
+ * <li>{@link #getEvaluationCache}</li>
  * <li>{@link #getFilamentIndex}</li>
  * <li>{@link #getGlyphIndex}</li>
  * <li>{@link #getInterIndex}</li>
@@ -172,6 +174,13 @@ public interface Sheet
      */
     ErrorsEditor getErrorsEditor ();
 
+    /**
+     * Report the cache of classifier evaluations for glyphs of this sheet.
+     *
+     * @return the evaluation cache, created if needed
+     */
+    EvaluationCache getEvaluationCache ();
+
     /**
      * Report the global index for filaments of this sheet, or null
      *
@@ -0,0 +1,429 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                  S h e e t R e s i d e n c y                                   //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sheet;
+
+import org.audiveris.omr.OMR;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.log.LogUtil;
+import org.audiveris.omr.sheet.ui.StubsController;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.step.Step;
+import org.audiveris.omr.util.Memory;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class {@code SheetResidency} keeps the sheets of a book within a heap budget, by swapping
+ * out the least useful resident sheets.
+ * <p>
+ * Each stub reports when its sheet gets loaded, processed or swapped out.
+ * When the heap retained after the latest garbage collection (see {@link Memory#retained()})
+ * exceeds a configurable ratio of the maximum heap, some resident sheets are evicted:
+ * <ul>
+ * <li>Sheets already at their last step, or flagged as invalid, go first.</li>
+ * <li>Other sheets are evicted in least recently used order.</li>
+ * <li>A sheet being processed (its stub lock is held) is never evicted, nor is the sheet that
+ * triggered the check, nor the sheet currently displayed.</li>
+ * </ul>
+ * The number of sheets to evict is estimated from the average footprint of resident sheets,
+ * so that no garbage collection needs to be forced.
+ * <p>
+ * Storing an evicted sheet to the book file is performed asynchronously on the low executor.
+ * Any reload of this sheet, as well as any book store or close, first waits for completion of
+ * the pending write-back.
+ *
+ * @author Hervé Bitteur
+ */
+public class SheetResidency
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(SheetResidency.class);
+
+    /** Eviction preference: sheets at last step or invalid first. (list order is kept) */
+    private static final Comparator<SheetStub> byEviction = new Comparator<SheetStub>()
+    {
+        @Override
+        public int compare (SheetStub s1,
+                            SheetStub s2)
+        {
+            return Boolean.compare(!isCompleted(s1), !isCompleted(s2));
+        }
+    };
+
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** Related book. */
+    private final Book book;
+
+    /** Stubs with a resident sheet, least recently used first. */
+    private final LinkedHashMap<SheetStub, Boolean> residents
+            = new LinkedHashMap<SheetStub, Boolean>(16, 0.75f, true);
+
+    /** Write-back in progress, per stub. */
+    private final ConcurrentMap<SheetStub, Future<Void>> writeBacks
+            = new ConcurrentHashMap<SheetStub, Future<Void>>();
+
+    /** Set while an eviction pass is running. */
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /** Number of sheets loaded. */
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    /** Number of sheets evicted because of heap budget. */
+    private final AtomicInteger evictionCount = new AtomicInteger();
+
+    /** Number of sheets written back. */
+    private final AtomicInteger writeBackCount = new AtomicInteger();
+
+    /** Cumulated duration of write-backs, in milliseconds. */
+    private final AtomicLong writeBackMillis = new AtomicLong();
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code SheetResidency} object.
+     *
+     * @param book the related book
+     */
+    public SheetResidency (Book book)
+    {
+        this.book = book;
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //-------------//
+    // checkBudget //
+    //-------------//
+    /**
+     * Check current heap against budget, and evict resident sheets if needed.
+     * <p>
+     * If another thread is already evicting, this method returns immediately.
+     *
+     * @param caller the stub which triggered the check, it is never evicted
+     */
+    public void checkBudget (SheetStub caller)
+    {
+        if (!constants.useHeapBudget.isSet()) {
+            return;
+        }
+
+        final long budget = (long) (constants.heapBudget.getValue() * Memory.max());
+        final long used = Memory.retained();
+
+        if ((used <= budget) || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            final List<SheetStub> candidates;
+
+            synchronized (residents) {
+                candidates = new ArrayList<SheetStub>(residents.keySet());
+            }
+
+            // Estimate how many sheets must go, based on average sheet footprint
+            final long perSheet = Math.max(1, used / Math.max(1, candidates.size()));
+            int needed = (int) Math.ceil((double) (used - budget) / perSheet);
+            logger.debug(
+                    "{} heap {}/{} MB, {} resident sheets, {} to evict",
+                    book,
+                    used >> 20,
+                    budget >> 20,
+                    candidates.size(),
+                    needed);
+
+            candidates.remove(caller);
+
+            if (OMR.gui != null) {
+                candidates.remove(StubsController.getCurrentStub());
+            }
+
+            Collections.sort(candidates, byEviction);
+
+            for (SheetStub stub : candidates) {
+                if (needed <= 0) {
+                    break;
+                }
+
+                // A stub being processed holds its lock, and is thus left alone
+                if (stub.getLock().tryLock()) {
+                    try {
+                        if (stub.hasSheet()) {
+                            logger.info("{} evicted, heap {} MB", stub, used >> 20);
+                            stub.swapSheet();
+                            evictionCount.incrementAndGet();
+                            needed--;
+                        }
+                    } finally {
+                        stub.getLock().unlock();
+                    }
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    //-------//
+    // flush //
+    //-------//
+    /**
+     * Wait for completion of all pending write-backs.
+     */
+    public void flush ()
+    {
+        for (SheetStub stub : new ArrayList<SheetStub>(writeBacks.keySet())) {
+            waitForWriteBack(stub);
+        }
+    }
+
+    //------------------//
+    // getEvictionCount //
+    //------------------//
+    /**
+     * Report the number of sheets evicted so far because of heap budget.
+     *
+     * @return the count of evictions
+     */
+    public int getEvictionCount ()
+    {
+        return evictionCount.get();
+    }
+
+    //--------------//
+    // getLoadCount //
+    //--------------//
+    /**
+     * Report the number of sheets loaded so far.
+     *
+     * @return the count of loads
+     */
+    public int getLoadCount ()
+    {
+        return loadCount.get();
+    }
+
+    //-------------------//
+    // getWriteBackCount //
+    //-------------------//
+    /**
+     * Report the number of sheets written back so far.
+     *
+     * @return the count of write-backs
+     */
+    public int getWriteBackCount ()
+    {
+        return writeBackCount.get();
+    }
+
+    //--------------------//
+    // getWriteBackMillis //
+    //--------------------//
+    /**
+     * Report the cumulated duration of write-backs so far.
+     *
+     * @return the write-backs duration, in milliseconds
+     */
+    public long getWriteBackMillis ()
+    {
+        return writeBackMillis.get();
+    }
+
+    //--------//
+    // loaded //
+    //--------//
+    /**
+     * Notify that the sheet of provided stub has just been loaded.
+     *
+     * @param stub the stub whose sheet is now resident
+     */
+    public void loaded (SheetStub stub)
+    {
+        loadCount.incrementAndGet();
+        touched(stub);
+    }
+
+    //----------//
+    // toString //
+    //----------//
+    @Override
+    public String toString ()
+    {
+        StringBuilder sb = new StringBuilder("SheetResidency{");
+        sb.append("loads:").append(getLoadCount());
+        sb.append(" evictions:").append(getEvictionCount());
+        sb.append(" writeBacks:").append(getWriteBackCount());
+        sb.append(" in ").append(getWriteBackMillis()).append("ms");
+        sb.append("}");
+
+        return sb.toString();
+    }
+
+    //---------//
+    // touched //
+    //---------//
+    /**
+     * Notify that the sheet of provided stub has just been used, and check heap budget.
+     *
+     * @param stub the stub whose sheet is being used
+     */
+    public void touched (SheetStub stub)
+    {
+        synchronized (residents) {
+            residents.put(stub, Boolean.TRUE); // Put at most recently used position
+        }
+
+        checkBudget(stub);
+    }
+
+    //----------//
+    // unloaded //
+    //----------//
+    /**
+     * Notify that the sheet of provided stub is no longer resident.
+     *
+     * @param stub the stub whose sheet has been dropped
+     */
+    public void unloaded (SheetStub stub)
+    {
+        synchronized (residents) {
+            residents.remove(stub);
+        }
+    }
+
+    //------------------//
+    // waitForWriteBack //
+    //------------------//
+    /**
+     * Wait for completion of the write-back of provided stub, if any.
+     *
+     * @param stub the stub at hand
+     */
+    public void waitForWriteBack (SheetStub stub)
+    {
+        final Future<Void> future = writeBacks.get(stub);
+
+        if (future == null) {
+            return;
+        }
+
+        try {
+            future.get();
+        } catch (InterruptedException ex) {
+            logger.warn("Interrupted while writing back {}", stub);
+            throw new ProcessingCancellationException(ex);
+        } catch (ExecutionException ex) {
+            logger.warn("Error writing back {} {}", stub, ex.getCause().toString(), ex);
+        } finally {
+            writeBacks.remove(stub, future);
+        }
+    }
+
+    //-----------//
+    // writeBack //
+    //-----------//
+    /**
+     * Write back a sheet being swapped out, asynchronously if so desired.
+     *
+     * @param stub  the stub whose sheet is swapped out
+     * @param store the actual storing of the sheet
+     * @throws Exception if synchronous storing failed
+     */
+    public void writeBack (final SheetStub stub,
+                           final Callable<Void> store)
+            throws Exception
+    {
+        final Callable<Void> task = new Callable<Void>()
+        {
+            @Override
+            public Void call ()
+                    throws Exception
+            {
+                LogUtil.start(stub);
+
+                final long start = System.currentTimeMillis();
+
+                try {
+                    return store.call();
+                } finally {
+                    writeBackMillis.addAndGet(System.currentTimeMillis() - start);
+                    writeBackCount.incrementAndGet();
+                    LogUtil.stopStub();
+                }
+            }
+        };
+
+        if (constants.asyncWriteBack.isSet()) {
+            writeBacks.put(stub, OmrExecutors.getLowExecutor().submit(task));
+        } else {
+            task.call();
+        }
+    }
+
+    //-------------//
+    // isCompleted //
+    //-------------//
+    private static boolean isCompleted (SheetStub stub)
+    {
+        return !stub.isValid() || (stub.getLatestStep() == Step.last());
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Boolean useHeapBudget = new Constant.Boolean(
+                true,
+                "Should resident sheets be evicted when heap budget is exceeded?");
+
+        private final Constant.Ratio heapBudget = new Constant.Ratio(
+                0.7,
+                "Maximum ratio of retained heap before resident sheets get evicted");
+
+        private final Constant.Boolean asyncWriteBack = new Constant.Boolean(
+                true,
+                "Should swapped sheets be stored asynchronously?");
+    }
+}
@@ -517,6 +517,8 @@ public class SystemInfo
      */
     public List<Section> getHorizontalSections ()
     {
+        sheet.getSystemManager().checkSectionsDispatched();
+
         return Collections.unmodifiableList(hSections);
     }
 
@@ -1094,6 +1096,8 @@ public class SystemInfo
      */
     public Collection<Section> getVerticalSections ()
     {
+        sheet.getSystemManager().checkSectionsDispatched();
+
         return Collections.unmodifiableCollection(vSections);
     }
 
@@ -89,6 +89,9 @@ public class SystemManager
     /** Sheet retrieved systems. */
     private final List<SystemInfo> systems = new ArrayList<SystemInfo>();
 
+    /** Are lag sections still to be dispatched to systems? (lazily, after sheet reload) */
+    private volatile boolean sectionsPending;
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Creates a new SystemManager object.
@@ -109,6 +112,32 @@ public class SystemManager
     }
 
     //~ Methods ------------------------------------------------------------------------------------
+    //-------------------------//
+    // checkSectionsDispatched //
+    //-------------------------//
+    /**
+     * Make sure that lag sections, if their dispatch has been deferred, are now
+     * dispatched to relevant systems.
+     * <p>
+     * This is called by any system when its sections are first accessed, so that the lags of a
+     * reloaded sheet are rebuilt only when really needed.
+     * It is also called before systems get processed in parallel, so that the rebuild is not
+     * triggered (and waited for) from within system tasks.
+     */
+    public void checkSectionsDispatched ()
+    {
+        if (sectionsPending) {
+            synchronized (this) {
+                if (sectionsPending) {
+                    logger.debug("Dispatching deferred sections of {}", sheet.getId());
+                    dispatchHorizontalSections();
+                    dispatchVerticalSections();
+                    sectionsPending = false;
+                }
+            }
+        }
+    }
+
     //-------------------//
     // computeSystemArea //
     //-------------------//
@@ -197,6 +226,21 @@ public class SystemManager
         return found;
     }
 
+    //-----------------------//
+    // deferSectionsDispatch //
+    //-----------------------//
+    /**
+     * Flag the dispatch of lag sections among systems as pending.
+     * <p>
+     * Actual dispatch will take place on first access to the sections of any system.
+     *
+     * @see #checkSectionsDispatched()
+     */
+    public void deferSectionsDispatch ()
+    {
+        sectionsPending = true;
+    }
+
     //----------------------------//
     // dispatchHorizontalSections //
     //----------------------------//
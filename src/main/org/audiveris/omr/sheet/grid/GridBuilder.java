@@ -26,18 +26,25 @@ import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Glyph;
 import org.audiveris.omr.glyph.dynamic.FilamentBoard;
+import org.audiveris.omr.lag.Lag;
+import org.audiveris.omr.log.LogUtil;
 import org.audiveris.omr.run.RunTable;
 import org.audiveris.omr.sheet.Sheet;
 import org.audiveris.omr.sheet.ui.SheetTab;
 import org.audiveris.omr.sig.ui.InterBoard;
+import org.audiveris.omr.step.ProcessingCancellationException;
 import org.audiveris.omr.step.StepException;
 import org.audiveris.omr.util.Navigable;
+import org.audiveris.omr.util.OmrExecutors;
 import org.audiveris.omr.util.StopWatch;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Class {@code GridBuilder} computes the grid of systems of a sheet picture, based on
@@ -187,6 +194,8 @@ public class GridBuilder
     /**
      * From the BINARY table, build the horizontal lag (for staff lines) and the
      * vertical lag (for barlines).
+     * <p>
+     * Once runs are split, both lags are independent and may be built concurrently.
      */
     private void buildAllLags ()
     {
@@ -194,15 +203,51 @@ public class GridBuilder
 
         try {
             // We already have all foreground pixels as vertical runs
+            watch.start("splitRuns");
+
+            final RunTable longVertTable = linesRetriever.splitRuns();
+
+            if (constants.parallelLags.isSet() && OmrExecutors.defaultParallelism.getTarget()) {
+                // vLag creation on a separate thread, while hLag is created on this one
+                watch.start("buildBothLags");
+
+                Future<Lag> vFuture = OmrExecutors.getCachedLowExecutor().submit(
+                        new Callable<Lag>()
+                {
+                    @Override
+                    public Lag call ()
+                            throws Exception
+                    {
+                        try {
+                            LogUtil.start(sheet.getStub());
+
+                            return sheet.getLagManager().buildVerticalLag(longVertTable);
+                        } finally {
+                            LogUtil.stopStub();
+                        }
+                    }
+                });
+
+                linesRetriever.buildHorizontalLag();
+                vFuture.get();
+            } else {
+                // hLag creation
+                watch.start("buildHorizontalLag");
+                linesRetriever.buildHorizontalLag();
+
+                // vLag creation
+                watch.start("buildVerticalLag");
+                sheet.getLagManager().buildVerticalLag(longVertTable);
+            }
+        } catch (InterruptedException ex) {
+            logger.warn("buildAllLags got interrupted");
+            throw new ProcessingCancellationException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof ProcessingCancellationException) {
+                throw (ProcessingCancellationException) ex.getCause();
+            }
 
-            // hLag creation
-            watch.start("buildHorizontalLag");
-
-            RunTable longVertTable = linesRetriever.buildHorizontalLag();
-
-            // vLag creation
-            watch.start("buildVerticalLag");
-            sheet.getLagManager().buildVerticalLag(longVertTable);
+            throw new RuntimeException("Error building vertical lag", ex.getCause());
         } finally {
             if (constants.printWatch.isSet()) {
                 watch.print();
@@ -230,5 +275,9 @@ public class GridBuilder
         private final Constant.Boolean showGrid = new Constant.Boolean(
                 false,
                 "Should we show the details of grid?");
+
+        private final Constant.Boolean parallelLags = new Constant.Boolean(
+                true,
+                "Should we build horizontal and vertical lags concurrently?");
     }
 }
@@ -144,6 +144,9 @@ public class LinesRetriever
     /** Too-short horizontal runs */
     private RunTable shortHoriTable;
 
+    /** Long horizontal runs, waiting for hLag creation */
+    private RunTable longHoriTable;
+
     /** Binary buffer. */
     private ByteProcessor binaryBuffer;
 
@@ -173,48 +176,15 @@ public class LinesRetriever
      * Build the underlying horizontal lag, and first populate it with only the long
      * horizontal sections.
      * Short horizontal sections will be added later (via {@link #createShortSections()})
-     *
-     * @return the table of long vertical runs (a side effect of building the long horizontal ones)
+     * <p>
+     * Long horizontal runs must have been prepared by {@link #splitRuns()}.
      */
-    public RunTable buildHorizontalLag ()
+    public void buildHorizontalLag ()
     {
-        final RunsViewer runsViewer = (constants.displayRuns.isSet() && (OMR.gui != null))
-                ? new RunsViewer(sheet) : null;
-
-        RunTable sourceTable = sheet.getPicture().getTable(Picture.TableKey.BINARY);
-
-        // Filter runs whose height is larger than line thickness
-        RunTable longVertTable = new RunTable(VERTICAL, sheet.getWidth(), sheet.getHeight());
-        RunTable horiTable = sheet.getLagManager().filterRuns(sourceTable, longVertTable);
-
-        if (runsViewer != null) {
-            runsViewer.display("long-vert", longVertTable);
-        }
-
-        // Split horizontal runs into short & long tables
-        shortHoriTable = new RunTable(HORIZONTAL, sheet.getWidth(), sheet.getHeight());
-
-        RunTable longHoriTable = horiTable.purge(
-                new Predicate<Run>()
-        {
-            @Override
-            public final boolean check (Run run)
-            {
-                return run.getLength() < params.minRunLength;
-            }
-        },
-                shortHoriTable);
-
-        if (runsViewer != null) {
-            runsViewer.display("short-hori", shortHoriTable);
-            runsViewer.display("long-hori-snapshot", longHoriTable.copy());
-        }
-
         // Populate the horizontal hLag with the long horizontal runs
         // (short horizontal runs will be added later via createShortSections())
         hLag = sheet.getLagManager().buildHorizontalLag(longHoriTable, null);
-
-        return longVertTable;
+        longHoriTable = null;
     }
 
     //---------------//
@@ -483,6 +453,55 @@ public class LinesRetriever
         }
     }
 
+    //-----------//
+    // splitRuns //
+    //-----------//
+    /**
+     * Split the binary runs, into long vertical runs and horizontal runs, the latter
+     * being split into short and long ones.
+     * <p>
+     * Long horizontal runs are kept for {@link #buildHorizontalLag()}, short ones for
+     * {@link #createShortSections()}.
+     *
+     * @return the table of long vertical runs
+     */
+    public RunTable splitRuns ()
+    {
+        final RunsViewer runsViewer = (constants.displayRuns.isSet() && (OMR.gui != null))
+                ? new RunsViewer(sheet) : null;
+
+        RunTable sourceTable = sheet.getPicture().getTable(Picture.TableKey.BINARY);
+
+        // Filter runs whose height is larger than line thickness
+        RunTable longVertTable = new RunTable(VERTICAL, sheet.getWidth(), sheet.getHeight());
+        RunTable horiTable = sheet.getLagManager().filterRuns(sourceTable, longVertTable);
+
+        if (runsViewer != null) {
+            runsViewer.display("long-vert", longVertTable);
+        }
+
+        // Split horizontal runs into short & long tables
+        shortHoriTable = new RunTable(HORIZONTAL, sheet.getWidth(), sheet.getHeight());
+
+        longHoriTable = horiTable.purge(
+                new Predicate<Run>()
+        {
+            @Override
+            public final boolean check (Run run)
+            {
+                return run.getLength() < params.minRunLength;
+            }
+        },
+                shortHoriTable);
+
+        if (runsViewer != null) {
+            runsViewer.display("short-hori", shortHoriTable);
+            runsViewer.display("long-hori-snapshot", longHoriTable.copy());
+        }
+
+        return longVertTable;
+    }
+
     //-------------//
     // buildStaves //
     //-------------//
@@ -63,4 +63,13 @@ public class ChordsStep
         // Second, handle chord relationships with other symbols within the same system
         new ChordsLinker(system).linkChords();
     }
+
+    //------------------//
+    // isSystemParallel //
+    //------------------//
+    @Override
+    public boolean isSystemParallel ()
+    {
+        return true;
+    }
 }
@@ -66,7 +66,19 @@ public class HeadsStep
             throws StepException
     {
         final List<Glyph> spots = context.sheetSpots.get(system);
-        new NoteHeadsBuilder(system, context.distanceTable, spots).buildHeads();
+
+        // Staves are scanned in parallel only if systems are not
+        final boolean parallelStaves = !isParallel(system.getSheet());
+        new NoteHeadsBuilder(system, context.distanceTable, spots, parallelStaves).buildHeads();
+    }
+
+    //------------------//
+    // isSystemParallel //
+    //------------------//
+    @Override
+    public boolean isSystemParallel ()
+    {
+        return true;
     }
 
     //----------//
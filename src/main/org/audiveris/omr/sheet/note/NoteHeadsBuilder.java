@@ -37,6 +37,7 @@ import org.audiveris.omr.image.PixelDistance;
 import org.audiveris.omr.image.ShapeDescriptor;
 import org.audiveris.omr.image.TemplateFactory;
 import org.audiveris.omr.image.TemplateFactory.Catalog;
+import org.audiveris.omr.log.LogUtil;
 import org.audiveris.omr.math.GeoOrder;
 import org.audiveris.omr.math.GeoPath;
 import org.audiveris.omr.math.GeoUtil;
@@ -58,9 +59,11 @@ import org.audiveris.omr.sig.inter.HeadInter;
 import org.audiveris.omr.sig.inter.Inter;
 import org.audiveris.omr.sig.inter.LedgerInter;
 import org.audiveris.omr.sig.relation.HeadStemRelation;
+import org.audiveris.omr.step.ProcessingCancellationException;
 import org.audiveris.omr.util.Dumping;
 import static org.audiveris.omr.util.HorizontalSide.*;
 import org.audiveris.omr.util.Navigable;
+import org.audiveris.omr.util.OmrExecutors;
 import org.audiveris.omr.util.Predicate;
 import org.audiveris.omr.util.StopWatch;
 
@@ -80,6 +83,9 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Class {@code NoteHeadsBuilder} retrieves the void note heads, the black note heads,
@@ -97,6 +103,13 @@ import java.util.Set;
  * <li>We can reasonably skip the locations where a really good beam or a really good bar line has
  * been detected.</li>
  * </ul>
+ * <p>
+ * The seed-based pass is run staff after staff, since each staff sees the seed-based heads of the
+ * staves above it as competitors.
+ * The x-based pass can then scan staves concurrently: a staff scan only reads the shared data
+ * (distance table, binary image, spots, seeds and competitors) and the resulting heads are
+ * inserted into the SIG afterwards, staff after staff, in the same order as a sequential
+ * processing.
  *
  * @author Hervé Bitteur
  */
@@ -153,8 +166,8 @@ public class NoteHeadsBuilder
     /** Minimum width of templates. */
     private int minTemplateWidth = 0; // TODO
 
-    /** The <b>properly scaled</b> templates to use. */
-    private Catalog catalog;
+    /** Can staves be scanned in parallel?. */
+    private final boolean parallelStaves;
 
     /** The competing interpretations for the system. */
     private List<Inter> systemCompetitors;
@@ -177,17 +190,22 @@ public class NoteHeadsBuilder
     /**
      * Creates a new {@code NoteHeadsBuilder} object.
      *
-     * @param system      the system to process
-     * @param distances   the distance table
-     * @param systemSpots spots detected for this system
+     * @param system         the system to process
+     * @param distances      the distance table
+     * @param systemSpots    spots detected for this system
+     * @param parallelStaves true to allow scanning staves in parallel on high-priority pool
+     *                       (this should not be allowed when the system itself is processed by
+     *                       a task of this pool)
      */
     public NoteHeadsBuilder (SystemInfo system,
                              DistanceTable distances,
-                             List<Glyph> systemSpots)
+                             List<Glyph> systemSpots,
+                             boolean parallelStaves)
     {
         this.system = system;
         this.distances = distances;
         this.systemSpots = systemSpots;
+        this.parallelStaves = parallelStaves;
 
         sig = system.getSig();
         sheet = system.getSheet();
@@ -221,24 +239,42 @@ public class NoteHeadsBuilder
 
         image = sheet.getPicture().getSource(Picture.SourceKey.BINARY);
 
+        final List<StaffScan> scans = new ArrayList<StaffScan>();
+
         for (Staff staff : system.getStaves()) {
-            logger.debug("Staff #{}", staff.getId());
+            scans.add(new StaffScan(staff, systemCompetitors));
+        }
 
-            catalog = TemplateFactory.getInstance().getCatalog(staff.getSpecificInterline());
+        // First, process all seed-based heads, staff after staff
+        // Like in a staff by staff processing, a staff sees seed-based heads of staves above
+        watch.start("seeds");
 
-            List<Inter> ch = new ArrayList<Inter>(); // Created Heads for this staff
+        final List<Inter> competitors = new ArrayList<Inter>(systemCompetitors);
 
-            // First, process all seed-based heads for the staff
-            watch.start("Staff #" + staff.getId() + " seed");
-            ch.addAll(processStaff(staff, true));
+        for (StaffScan scan : scans) {
+            scan.competitors = competitors;
+            scan.process(true);
 
             // Consider seed-based heads as special competitors for x-based notes
-            systemCompetitors.addAll(ch);
-            Collections.sort(systemCompetitors, Inter.byOrdinate);
+            competitors.addAll(scan.seedHeads);
+            Collections.sort(competitors, Inter.byOrdinate);
+            scan.competitors = new ArrayList<Inter>(competitors);
+        }
+
+        // Second, process x-based notes, for each staff
+        watch.start("range");
+        scanStaves(scans);
 
-            // Second, process x-based notes for the staff
-            watch.start("Staff #" + staff.getId() + " range");
-            ch.addAll(processStaff(staff, false));
+        for (StaffScan scan : scans) {
+            final Staff staff = scan.staff;
+            logger.debug("Staff #{}", staff.getId());
+
+            List<Inter> ch = new ArrayList<Inter>(); // Created Heads for this staff
+            watch.start("Staff #" + staff.getId() + " insertion");
+            ch.addAll(insertHeads(scan.seedHeads));
+            ch.addAll(insertHeads(scan.rangeHeads));
+            seedsPerf.add(scan.seedsPerf);
+            rangePerf.add(scan.rangePerf);
 
             // Finally, detect notes overlaps for current staff
             Collections.sort(ch, Inter.byFullAbscissa);
@@ -265,8 +301,39 @@ public class NoteHeadsBuilder
             watch.print();
         }
 
-        logger.debug("S#{} seeds {}", system.getId(), seedsPerf);
-        logger.debug("    range {}", rangePerf);
+        if (constants.printPerf.isSet()) {
+            logger.info("S#{} seeds {}", system.getId(), seedsPerf);
+            logger.info("S#{} range {}", system.getId(), rangePerf);
+        } else {
+            logger.debug("S#{} seeds {}", system.getId(), seedsPerf);
+            logger.debug("    range {}", rangePerf);
+        }
+    }
+
+    //--------------//
+    // getRangePerf //
+    //--------------//
+    /**
+     * Report the counters of x-based matching, for comparison purpose.
+     *
+     * @return the x-based counters
+     */
+    public Perf getRangePerf ()
+    {
+        return rangePerf;
+    }
+
+    //--------------//
+    // getSeedsPerf //
+    //--------------//
+    /**
+     * Report the counters of seed-based matching, for comparison purpose.
+     *
+     * @return the seed-based counters
+     */
+    public Perf getSeedsPerf ()
+    {
+        return seedsPerf;
     }
 
     //------------//
@@ -365,14 +432,16 @@ public class NoteHeadsBuilder
     /**
      * Create the interpretation that corresponds to the match found.
      *
-     * @param loc    (valued) location of the match
-     * @param anchor position of location WRT shape
-     * @param shape  the shape tested
-     * @param staff  the related staff
-     * @param pitch  the note pitch
+     * @param catalog the templates used
+     * @param loc     (valued) location of the match
+     * @param anchor  position of location WRT shape
+     * @param shape   the shape tested
+     * @param staff   the related staff
+     * @param pitch   the note pitch
      * @return the inter created, if any
      */
-    private HeadInter createInter (PixelDistance loc,
+    private HeadInter createInter (Catalog catalog,
+                                   PixelDistance loc,
                                    Anchor anchor,
                                    Shape shape,
                                    Staff staff,
@@ -425,13 +494,15 @@ public class NoteHeadsBuilder
     /**
      * Retrieve the competitors intersected by the provided horizontal slice.
      *
-     * @param area the horizontal slice
+     * @param competitors all competitors, sorted by ordinate
+     * @param area        the horizontal slice
      * @return the list of competitors, sorted by abscissa.
      */
-    private List<Inter> getCompetitorsSlice (Area area)
+    private List<Inter> getCompetitorsSlice (List<Inter> competitors,
+                                             Area area)
     {
         List<Inter> rawComps = SIGraph.intersectedInters(
-                systemCompetitors,
+                competitors,
                 GeoOrder.BY_ORDINATE,
                 area);
 
@@ -564,6 +635,25 @@ public class NoteHeadsBuilder
         return comps;
     }
 
+    //-------------//
+    // insertHeads //
+    //-------------//
+    /**
+     * Insert the provided heads into the SIG, after retrieval of their underlying glyph.
+     *
+     * @param heads the heads to insert
+     * @return the same heads
+     */
+    private List<HeadInter> insertHeads (List<HeadInter> heads)
+    {
+        for (HeadInter inter : heads) {
+            inter.retrieveGlyph(image, sheet.getInterline(), sheet.getGlyphIndex());
+            sig.addVertex(inter);
+        }
+
+        return heads;
+    }
+
     //---------//
     // overlap //
     //---------//
@@ -647,15 +737,17 @@ public class NoteHeadsBuilder
      * <p>
      * Pay attention to adjust ordinate as precisely as possible in the middle
      * of staff or ledger lines.
+     * Created notes are not yet inserted in SIG.
      *
-     * @param staff the staff to process
+     * @param scan  the staff scan at hand
      * @param seeds should we stick to stem seeds or not?
      * @return the list of created notes
      */
-    private List<Inter> processStaff (Staff staff,
-                                      boolean seeds)
+    private List<HeadInter> processStaff (StaffScan scan,
+                                          boolean seeds)
     {
-        List<Inter> ch = new ArrayList<Inter>(); // Created heads
+        final Staff staff = scan.staff;
+        List<HeadInter> ch = new ArrayList<HeadInter>(); // Created heads
 
         // Use all staff lines
         int pitch = -5; // Current pitch
@@ -665,14 +757,14 @@ public class NoteHeadsBuilder
             LineAdapter adapter = new StaffLineAdapter(staff, line);
 
             // Look above line
-            ch.addAll(new Scanner(adapter, prevAdapter, -1, pitch++, seeds).lookup());
+            ch.addAll(new Scanner(scan, adapter, prevAdapter, -1, pitch++, seeds).lookup());
 
             // Look exactly on line
-            ch.addAll(new Scanner(adapter, null, 0, pitch++, seeds).lookup());
+            ch.addAll(new Scanner(scan, adapter, null, 0, pitch++, seeds).lookup());
 
             // For the last line only, look just below line
             if (pitch == 5) {
-                ch.addAll(new Scanner(adapter, null, 1, pitch++, seeds).lookup());
+                ch.addAll(new Scanner(scan, adapter, null, 1, pitch++, seeds).lookup());
             }
 
             prevAdapter = adapter;
@@ -697,11 +789,11 @@ public class NoteHeadsBuilder
                     Glyph glyph = ledger.getGlyph();
                     LineAdapter adapter = new LedgerAdapter(staff, p, glyph);
                     // Look right on ledger
-                    ch.addAll(new Scanner(adapter, null, 0, pitch, seeds).lookup());
+                    ch.addAll(new Scanner(scan, adapter, null, 0, pitch, seeds).lookup());
 
                     // Look just further from staff
                     int pitch2 = pitch + dir;
-                    ch.addAll(new Scanner(adapter, null, dir, pitch2, seeds).lookup());
+                    ch.addAll(new Scanner(scan, adapter, null, dir, pitch2, seeds).lookup());
                 }
             }
         }
@@ -749,6 +841,65 @@ public class NoteHeadsBuilder
         return toRemove.size();
     }
 
+    //------------//
+    // scanStaves //
+    //------------//
+    /**
+     * Scan all provided staves for x-based heads, in parallel if allowed.
+     *
+     * @param scans the staff scans
+     */
+    private void scanStaves (List<StaffScan> scans)
+    {
+        if (!parallelStaves
+            || (scans.size() < 2)
+            || !constants.parallelStaves.isSet()
+            || !OmrExecutors.defaultParallelism.getTarget()) {
+            for (StaffScan scan : scans) {
+                scan.process(false);
+            }
+
+            return;
+        }
+
+        final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(scans.size());
+
+        for (final StaffScan scan : scans) {
+            tasks.add(
+                    new Callable<Void>()
+            {
+                @Override
+                public Void call ()
+                        throws Exception
+                {
+                    try {
+                        LogUtil.start(sheet.getStub());
+                        scan.process(false);
+                    } finally {
+                        LogUtil.stopStub();
+                    }
+
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Void> future : OmrExecutors.getHighExecutor().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            logger.warn("scanStaves got interrupted");
+            throw new ProcessingCancellationException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof ProcessingCancellationException) {
+                throw (ProcessingCancellationException) ex.getCause();
+            }
+
+            throw new RuntimeException("Error scanning staves", ex.getCause());
+        }
+    }
+
     //~ Inner Classes ------------------------------------------------------------------------------
     //-------------//
     // LineAdapter //
@@ -825,6 +976,14 @@ public class NoteHeadsBuilder
                 false,
                 "Should we print out the class parameters?");
 
+        private final Constant.Boolean printPerf = new Constant.Boolean(
+                false,
+                "Should we print out the matching counters?");
+
+        private final Constant.Boolean parallelStaves = new Constant.Boolean(
+                true,
+                "Should we scan staves in parallel (when system is not processed in parallel)?");
+
         private final Constant.Boolean allowAttachments = new Constant.Boolean(
                 false,
                 "Should we allow staff attachments for created areas?");
@@ -929,6 +1088,9 @@ public class NoteHeadsBuilder
 
         final double reallyBadDistance;
 
+        /** Maximum distance of interest for the very first location tried. */
+        final double maxFirstDistance;
+
         final int maxTemplateDx;
 
         //
@@ -947,6 +1109,7 @@ public class NoteHeadsBuilder
         {
             maxMatchingDistance = constants.maxMatchingDistance.getValue();
             reallyBadDistance = constants.reallyBadDistance.getValue();
+            maxFirstDistance = Math.max(maxMatchingDistance, reallyBadDistance);
             maxTemplateDx = scale.toPixels(constants.maxTemplateDx);
             //            maxClosedDy = Math.max(1, scale.toPixels(constants.maxClosedDy));
             maxOpenDy = Math.max(1, scale.toPixels(constants.maxOpenDy));
@@ -1025,7 +1188,7 @@ public class NoteHeadsBuilder
     /**
      * DEBUG: meant to precisely measure behavior of notes retrieval.
      */
-    private static class Perf
+    public static class Perf
     {
         //~ Instance fields ------------------------------------------------------------------------
 
@@ -1036,6 +1199,36 @@ public class NoteHeadsBuilder
         int abandons;
 
         //~ Methods --------------------------------------------------------------------------------
+        /**
+         * Report the number of locations abandoned after a really bad first evaluation.
+         *
+         * @return the count of abandons
+         */
+        public int getAbandons ()
+        {
+            return abandons;
+        }
+
+        /**
+         * Report the number of template evaluations.
+         *
+         * @return the count of evaluations
+         */
+        public int getEvals ()
+        {
+            return evals;
+        }
+
+        /**
+         * Report the number of locations skipped for overlapping a competitor.
+         *
+         * @return the count of overlaps
+         */
+        public int getOverlaps ()
+        {
+            return overlaps;
+        }
+
         @Override
         public String toString ()
         {
@@ -1045,6 +1238,18 @@ public class NoteHeadsBuilder
                     evals,
                     abandons);
         }
+
+        /**
+         * Cumulate the counters of another Perf instance.
+         *
+         * @param that the other instance
+         */
+        void add (Perf that)
+        {
+            overlaps += that.overlaps;
+            evals += that.evals;
+            abandons += that.abandons;
+        }
     }
 
     //---------//
@@ -1054,6 +1259,8 @@ public class NoteHeadsBuilder
     {
         //~ Instance fields ------------------------------------------------------------------------
 
+        private final StaffScan scan;
+
         private final int interline;
 
         private final LineAdapter line;
@@ -1083,18 +1290,21 @@ public class NoteHeadsBuilder
         /**
          * Create a Scanner, dedicated to a staff line or ledger.
          *
+         * @param scan     the containing staff scan
          * @param line     adapter to the main line
          * @param line2    adapter to secondary line, if any, otherwise null
          * @param dir      direction WRT main line
          * @param pitch    pitch position value
          * @param useSeeds true for seed-based notes, false for x-based notes
          */
-        public Scanner (LineAdapter line,
+        public Scanner (StaffScan scan,
+                        LineAdapter line,
                         LineAdapter line2,
                         int dir,
                         int pitch,
                         boolean useSeeds)
         {
+            this.scan = scan;
             this.line = line;
             this.line2 = line2;
             this.dir = dir;
@@ -1131,7 +1341,7 @@ public class NoteHeadsBuilder
                 staff.addAttachment(line.getPrefix() + "#c" + pitch, competitorsArea);
             }
 
-            competitors = getCompetitorsSlice(competitorsArea);
+            competitors = getCompetitorsSlice(scan.competitors, competitorsArea);
         }
 
         //~ Methods --------------------------------------------------------------------------------
@@ -1191,33 +1401,45 @@ public class NoteHeadsBuilder
         //------//
         // eval //
         //------//
+        /**
+         * Evaluate a shape template at provided location.
+         *
+         * @param shape       the template shape
+         * @param x           location abscissa
+         * @param y           location ordinate
+         * @param anchor      location WRT template
+         * @param maxDistance maximum distance of interest, beyond which evaluation can be
+         *                    abandoned (and Double.MAX_VALUE reported)
+         * @return the location distance, or null if location overlaps competitors
+         */
         private PixelDistance eval (Shape shape,
                                     int x,
                                     int y,
-                                    Anchor anchor)
+                                    Anchor anchor,
+                                    double maxDistance)
         {
-            final ShapeDescriptor desc = catalog.getDescriptor(shape);
+            final ShapeDescriptor desc = scan.catalog.getDescriptor(shape);
             final Rectangle symBox = desc.getSymbolBoundsAt(x, y, anchor);
 
             // Skip if location already used by really good object (beam, etc)
             //TODO: perhaps use a slightly fattened box?
             if (overlap(symBox, competitors)) {
                 if (useSeeds) {
-                    seedsPerf.overlaps++;
+                    scan.seedsPerf.overlaps++;
                 } else {
-                    rangePerf.overlaps++;
+                    scan.rangePerf.overlaps++;
                 }
 
                 return null;
             }
 
             // Then try (all variants for) the shape and keep the best dist
-            double dist = desc.evaluate(x, y, anchor, distances);
+            double dist = desc.evaluate(x, y, anchor, distances, maxDistance);
 
             if (useSeeds) {
-                seedsPerf.evals++;
+                scan.seedsPerf.evals++;
             } else {
-                rangePerf.evals++;
+                scan.rangePerf.evals++;
             }
 
             return new PixelDistance(x, y, dist);
@@ -1349,7 +1571,12 @@ public class NoteHeadsBuilder
 
                     for (int yOffset : yOffsets) {
                         final int y = y0 + yOffset;
-                        PixelDistance dist = eval(shape, x0, y, MIDDLE_LEFT);
+                        PixelDistance dist = eval(
+                                shape,
+                                x0,
+                                y,
+                                MIDDLE_LEFT,
+                                (y == y0) ? params.maxFirstDistance : params.maxMatchingDistance);
 
                         if ((dist != null) && (dist.d <= params.maxMatchingDistance)) {
                             if ((bestDist == null) || (bestDist.d > dist.d)) {
@@ -1359,7 +1586,7 @@ public class NoteHeadsBuilder
                             // This is the very first (best guess) location tried.
                             // If eval is really bad, stop immediately
                             if ((dist == null) || (dist.d >= params.reallyBadDistance)) {
-                                rangePerf.abandons++;
+                                scan.rangePerf.abandons++;
 
                                 continue ShapeLoop;
                             }
@@ -1368,6 +1595,7 @@ public class NoteHeadsBuilder
 
                     if (bestDist != null) {
                         HeadInter inter = createInter(
+                                scan.catalog,
                                 bestDist,
                                 MIDDLE_LEFT,
                                 shape,
@@ -1387,11 +1615,6 @@ public class NoteHeadsBuilder
             // Check conflict with seed-based instances
             inters = filterSeedConflicts(inters, competitors);
 
-            for (HeadInter inter : inters) {
-                inter.retrieveGlyph(image, sheet.getInterline(), sheet.getGlyphIndex());
-                sig.addVertex(inter);
-            }
-
             return inters;
         }
 
@@ -1434,7 +1657,13 @@ public class NoteHeadsBuilder
 
                             for (int xOffset : xOffsets) {
                                 final int x = x0 + xOffset;
-                                PixelDistance loc = eval(shape, x, y, anchor);
+                                PixelDistance loc = eval(
+                                        shape,
+                                        x,
+                                        y,
+                                        anchor,
+                                        ((x == x0) && (y == y0)) ? params.maxFirstDistance
+                                                : params.maxMatchingDistance);
 
                                 if ((loc != null) && (loc.d <= params.maxMatchingDistance)) {
                                     if ((bestLoc == null) || (bestLoc.d > loc.d)) {
@@ -1444,7 +1673,7 @@ public class NoteHeadsBuilder
                                     // This is the very first (best guess) location tried.
                                     // If eval is really bad, stop immediately
                                     if ((loc == null) || (loc.d >= params.reallyBadDistance)) {
-                                        seedsPerf.abandons++;
+                                        scan.seedsPerf.abandons++;
 
                                         continue ShapeLoop;
                                     }
@@ -1454,6 +1683,7 @@ public class NoteHeadsBuilder
 
                         if (bestLoc != null) {
                             HeadInter inter = createInter(
+                                    scan.catalog,
                                     bestLoc,
                                     anchor,
                                     shape,
@@ -1461,11 +1691,6 @@ public class NoteHeadsBuilder
                                     pitch);
 
                             if (inter != null) {
-                                inter.retrieveGlyph(
-                                        image,
-                                        sheet.getInterline(),
-                                        sheet.getGlyphIndex());
-                                sig.addVertex(inter);
                                 inters.add(inter);
                             }
                         }
@@ -1477,6 +1702,57 @@ public class NoteHeadsBuilder
         }
     }
 
+    //-----------//
+    // StaffScan //
+    //-----------//
+    /**
+     * Data for the scan of one staff, only this scan writes into it.
+     */
+    private class StaffScan
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        /** The staff to scan. */
+        final Staff staff;
+
+        /** The <b>properly scaled</b> templates to use. */
+        final Catalog catalog;
+
+        /** Seed-based matching counters. */
+        final Perf seedsPerf = new Perf();
+
+        /** X-based matching counters. */
+        final Perf rangePerf = new Perf();
+
+        /** The competing interpretations, sorted by ordinate. */
+        List<Inter> competitors;
+
+        /** Seed-based heads, not yet inserted in SIG. */
+        List<HeadInter> seedHeads = Collections.emptyList();
+
+        /** X-based heads, not yet inserted in SIG. */
+        List<HeadInter> rangeHeads = Collections.emptyList();
+
+        //~ Constructors ---------------------------------------------------------------------------
+        public StaffScan (Staff staff,
+                          List<Inter> competitors)
+        {
+            this.staff = staff;
+            this.competitors = competitors;
+            catalog = TemplateFactory.getInstance().getCatalog(staff.getSpecificInterline());
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        public void process (boolean seeds)
+        {
+            if (seeds) {
+                seedHeads = processStaff(this, true);
+            } else {
+                rangeHeads = processStaff(this, false);
+            }
+        }
+    }
+
     //------------------//
     // StaffLineAdapter //
     //------------------//
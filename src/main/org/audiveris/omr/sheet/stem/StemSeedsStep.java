@@ -78,6 +78,15 @@ public class StemSeedsStep
         new VerticalsBuilder(system).buildVerticals(); // -> Stem seeds
     }
 
+    //------------------//
+    // isSystemParallel //
+    //------------------//
+    @Override
+    public boolean isSystemParallel ()
+    {
+        return true;
+    }
+
     //----------//
     // doProlog //
     //----------//
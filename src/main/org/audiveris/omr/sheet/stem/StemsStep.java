@@ -64,4 +64,13 @@ public class StemsStep
         // Compute all contextual grades (for better UI)
         system.getSig().contextualize();
     }
+
+    //------------------//
+    // isSystemParallel //
+    //------------------//
+    @Override
+    public boolean isSystemParallel ()
+    {
+        return true;
+    }
 }
@@ -92,6 +92,9 @@ public class SymbolsBuilder
     /** Companion factory for symbols inters. */
     private final SymbolFactory factory;
 
+    /** Candidate glyphs waiting for evaluation, in discovery order. */
+    private final List<Glyph> candidates = new ArrayList<Glyph>();
+
     /** Aras where fine glyphs may be needed. */
     private final List<Rectangle> fineBoxes = new ArrayList<Rectangle>();
 
@@ -133,10 +136,13 @@ public class SymbolsBuilder
      *       + cluster.decompose()                      // Decompose cluster into all subsets
      *       + FOREACH subset process(subset):
      *          - build compound glyph                  // Build one compound glyph per subset
-     *          - evaluateGlyph(compound)               // Run shape classifier on compound
+     *          - addCandidate(compound)                // Queue compound for evaluation
+     *    + flushCandidates():                          // Run shape classifiers on queued glyphs
+     *       + FOREACH queued glyph evaluateGlyph(glyph, evals)
      *          - FOREACH acceptable evaluation
      *             + symbolFactory.create(eval, glyph) // Create inter(s) related to evaluation
      * </pre>
+     * Candidate glyphs are evaluated by batches, but always processed in discovery order.
      *
      * @param optionalsMap the optional (weak) glyphs per system
      */
@@ -168,15 +174,36 @@ public class SymbolsBuilder
         }
     }
 
+    //--------------//
+    // addCandidate //
+    //--------------//
+    /**
+     * Queue a glyph for evaluation, and evaluate the queued glyphs when batch is full.
+     *
+     * @param glyph the glyph to evaluate
+     */
+    private void addCandidate (Glyph glyph)
+    {
+        candidates.add(glyph);
+
+        if (candidates.size() >= constants.batchSize.getValue()) {
+            flushCandidates();
+        }
+    }
+
     //---------------//
     // evaluateGlyph //
     //---------------//
     /**
-     * Evaluate a provided glyph and create all acceptable inter instances.
+     * Process a provided glyph evaluations and create all acceptable inter instances.
      *
-     * @param glyph the glyph to evaluate
+     * @param glyph  the evaluated glyph
+     * @param evals  glyph evaluations by first classifier
+     * @param evals2 glyph evaluations by second classifier
      */
-    private void evaluateGlyph (Glyph glyph)
+    private void evaluateGlyph (Glyph glyph,
+                                Evaluation[] evals,
+                                Evaluation[] evals2)
     {
         if (glyph.getId() == 0) {
             glyph = sheet.getGlyphIndex().registerOriginal(glyph);
@@ -195,20 +222,6 @@ public class SymbolsBuilder
             return;
         }
 
-        // TODO: checks should be run only AFTER both classifiers have been run
-        Evaluation[] evals = classifier.evaluate(
-                glyph,
-                system,
-                2,
-                Grades.symbolMinGrade,
-                EnumSet.of(Classifier.Condition.CHECKED));
-        Evaluation[] evals2 = classifier2.evaluate(
-                glyph,
-                system,
-                2,
-                Grades.symbolMinGrade, // Not OK for deep classifier!
-                EnumSet.of(Classifier.Condition.CHECKED));
-
         if (evals.length > 0) {
             //            // Create one interpretation for each acceptable evaluation
             //            for (Evaluation eval : evals) {
@@ -233,6 +246,39 @@ public class SymbolsBuilder
         }
     }
 
+    //-----------------//
+    // flushCandidates //
+    //-----------------//
+    /**
+     * Evaluate all queued candidates at once, then process them in discovery order.
+     */
+    private void flushCandidates ()
+    {
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        // TODO: checks should be run only AFTER both classifiers have been run
+        final Evaluation[][] evals = classifier.evaluate(
+                candidates,
+                system,
+                2,
+                Grades.symbolMinGrade,
+                EnumSet.of(Classifier.Condition.CHECKED));
+        final Evaluation[][] evals2 = classifier2.evaluate(
+                candidates,
+                system,
+                2,
+                Grades.symbolMinGrade, // Not OK for deep classifier!
+                EnumSet.of(Classifier.Condition.CHECKED));
+
+        for (int i = 0; i < evals.length; i++) {
+            evaluateGlyph(candidates.get(i), evals[i], evals2[i]);
+        }
+
+        candidates.clear();
+    }
+
     //------------------//
     // getSymbolsGlyphs //
     //------------------//
@@ -349,10 +395,12 @@ public class SymbolsBuilder
                 final Glyph glyph = set.iterator().next();
 
                 if (classifier.isBigEnough(glyph, interline)) {
-                    evaluateGlyph(glyph);
+                    addCandidate(glyph);
                 }
             }
         }
+
+        flushCandidates();
     }
 
     //-------------------//
@@ -392,6 +440,11 @@ public class SymbolsBuilder
                 7,
                 "Maximum number of parts considered for a symbol");
 
+        private final Constant.Integer batchSize = new Constant.Integer(
+                "Glyphs",
+                128,
+                "Maximum number of candidate glyphs evaluated as one batch");
+
         private final Scale.Fraction maxGap = new Scale.Fraction(
                 0.5, // 0.75 vs 0.5 is a bit too small for fermata - dot distance
                 "Maximum distance between two compound parts");
@@ -476,7 +529,7 @@ public class SymbolsBuilder
         public void evaluateGlyph (Glyph glyph,
                                    Set<Glyph> parts)
         {
-            SymbolsBuilder.this.evaluateGlyph(glyph);
+            addCandidate(glyph);
         }
 
         @Override
@@ -115,6 +115,21 @@ public class SymbolsStep
         }
     }
 
+    //----------//
+    // doEpilog //
+    //----------//
+    @Override
+    protected void doEpilog (Sheet sheet,
+                             Context context)
+            throws StepException
+    {
+        if (constants.printCacheStatistics.isSet()) {
+            logger.info("{}", sheet.getEvaluationCache());
+        } else {
+            logger.debug("{}", sheet.getEvaluationCache());
+        }
+    }
+
     //----------//
     // doProlog //
     //----------//
@@ -155,5 +170,9 @@ public class SymbolsStep
         private final Constant.Boolean printWatch = new Constant.Boolean(
                 false,
                 "Should we print out the stop watch?");
+
+        private final Constant.Boolean printCacheStatistics = new Constant.Boolean(
+                false,
+                "Should we print out the evaluation cache statistics?");
     }
 }
@@ -0,0 +1,348 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                  E x c l u s i o n Q u e u e                                   //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sig;
+
+import org.audiveris.omr.sig.inter.Inter;
+import org.audiveris.omr.sig.relation.Relation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class {@code ExclusionQueue} is an indexed max-heap of exclusions, ordered by the
+ * highest best grade of each exclusion ends.
+ * <p>
+ * It reproduces the choice of an exhaustive scan of exclusions: the exclusion with the strictly
+ * highest value is selected, and in case of equality the exclusion first encountered in the
+ * original collection wins.
+ * <p>
+ * Since relation ends grades may change while exclusions get reduced, values are kept up to date:
+ * <ul>
+ * <li>{@link #update(Inter)} re-positions the exclusions of an inter whose contextual grade has
+ * just been computed,</li>
+ * <li>{@link #remove(Inter)} discards the exclusions of an inter being removed,</li>
+ * <li>and as a safety net, {@link #poll()} re-checks the value of the head exclusion before
+ * returning it.</li>
+ * </ul>
+ *
+ * @author Hervé Bitteur
+ */
+class ExclusionQueue
+{
+    //~ Instance fields ----------------------------------------------------------------------------
+
+    /** Binary heap of entries, best one at index 0. */
+    private final List<Entry> heap = new ArrayList<Entry>();
+
+    /** Entries of each inter. */
+    private final Map<Inter, List<Entry>> entries = new HashMap<Inter, List<Entry>>();
+
+    /** Sequence number, to keep original order on equal values. */
+    private int sequence;
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //-----//
+    // add //
+    //-----//
+    /**
+     * Insert an exclusion.
+     *
+     * @param rel    the exclusion relation
+     * @param source relation source
+     * @param target relation target
+     */
+    public void add (Relation rel,
+                     Inter source,
+                     Inter target)
+    {
+        final Entry entry = new Entry(rel, source, target, sequence++);
+        register(source, entry);
+        register(target, entry);
+
+        entry.pos = heap.size();
+        heap.add(entry);
+        siftUp(entry.pos);
+    }
+
+    //---------//
+    // isEmpty //
+    //---------//
+    /**
+     * Tell whether the queue is empty.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty ()
+    {
+        return heap.isEmpty();
+    }
+
+    //------//
+    // poll //
+    //------//
+    /**
+     * Remove and report the exclusion with highest positive value.
+     *
+     * @return the best exclusion, or null if no exclusion with a positive value is left
+     */
+    public Relation poll ()
+    {
+        while (!heap.isEmpty()) {
+            final Entry head = heap.get(0);
+            final double value = head.value();
+
+            if (value != head.value) {
+                // Value changed behind our back, re-position entry and retry
+                head.value = value;
+                siftDown(0);
+
+                continue;
+            }
+
+            if (value <= 0) {
+                return null;
+            }
+
+            removeAt(0);
+
+            return head.rel;
+        }
+
+        return null;
+    }
+
+    //--------//
+    // remove //
+    //--------//
+    /**
+     * Discard all exclusions that involve the provided inter.
+     *
+     * @param inter the inter being removed
+     */
+    public void remove (Inter inter)
+    {
+        final List<Entry> list = entries.remove(inter);
+
+        if (list != null) {
+            for (Entry entry : list) {
+                if (entry.pos != -1) {
+                    removeAt(entry.pos);
+                }
+            }
+        }
+    }
+
+    //------//
+    // size //
+    //------//
+    /**
+     * Report the number of exclusions in queue.
+     *
+     * @return the queue size
+     */
+    public int size ()
+    {
+        return heap.size();
+    }
+
+    //--------//
+    // update //
+    //--------//
+    /**
+     * Re-position the exclusions that involve the provided inter, whose grade has changed.
+     *
+     * @param inter the inter with a modified grade
+     */
+    public void update (Inter inter)
+    {
+        final List<Entry> list = entries.get(inter);
+
+        if (list != null) {
+            for (Entry entry : list) {
+                if (entry.pos != -1) {
+                    final double value = entry.value();
+
+                    if (value != entry.value) {
+                        entry.value = value;
+                        siftDown(siftUp(entry.pos));
+                    }
+                }
+            }
+        }
+    }
+
+    //----------//
+    // isBefore //
+    //----------//
+    private boolean isBefore (Entry e1,
+                              Entry e2)
+    {
+        if (e1.value != e2.value) {
+            return e1.value > e2.value;
+        }
+
+        return e1.seq < e2.seq;
+    }
+
+    //----------//
+    // register //
+    //----------//
+    private void register (Inter inter,
+                           Entry entry)
+    {
+        List<Entry> list = entries.get(inter);
+
+        if (list == null) {
+            list = new ArrayList<Entry>();
+            entries.put(inter, list);
+        }
+
+        list.add(entry);
+    }
+
+    //----------//
+    // removeAt //
+    //----------//
+    private void removeAt (int pos)
+    {
+        final Entry entry = heap.get(pos);
+        final Entry last = heap.remove(heap.size() - 1);
+        entry.pos = -1;
+
+        if (last != entry) {
+            last.pos = pos;
+            heap.set(pos, last);
+            siftDown(siftUp(pos));
+        }
+    }
+
+    //-----//
+    // set //
+    //-----//
+    private void set (int pos,
+                      Entry entry)
+    {
+        heap.set(pos, entry);
+        entry.pos = pos;
+    }
+
+    //----------//
+    // siftDown //
+    //----------//
+    private int siftDown (int pos)
+    {
+        final Entry entry = heap.get(pos);
+        final int size = heap.size();
+
+        while (true) {
+            int child = (2 * pos) + 1;
+
+            if (child >= size) {
+                break;
+            }
+
+            if (((child + 1) < size) && isBefore(heap.get(child + 1), heap.get(child))) {
+                child++;
+            }
+
+            if (!isBefore(heap.get(child), entry)) {
+                break;
+            }
+
+            set(pos, heap.get(child));
+            pos = child;
+        }
+
+        set(pos, entry);
+
+        return pos;
+    }
+
+    //--------//
+    // siftUp //
+    //--------//
+    private int siftUp (int pos)
+    {
+        final Entry entry = heap.get(pos);
+
+        while (pos > 0) {
+            final int parent = (pos - 1) / 2;
+
+            if (!isBefore(entry, heap.get(parent))) {
+                break;
+            }
+
+            set(pos, heap.get(parent));
+            pos = parent;
+        }
+
+        set(pos, entry);
+
+        return pos;
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-------//
+    // Entry //
+    //-------//
+    private static class Entry
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        final Relation rel;
+
+        final Inter source;
+
+        final Inter target;
+
+        /** Rank in original collection. */
+        final int seq;
+
+        /** Cached value. */
+        double value;
+
+        /** Current position in heap, -1 if not in heap. */
+        int pos = -1;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        Entry (Relation rel,
+               Inter source,
+               Inter target,
+               int seq)
+        {
+            this.rel = rel;
+            this.source = source;
+            this.target = target;
+            this.seq = seq;
+            value = value();
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        /** Current value, based on best grade of relation ends. */
+        final double value ()
+        {
+            return Math.max(source.getBestGrade(), target.getBestGrade());
+        }
+    }
+}
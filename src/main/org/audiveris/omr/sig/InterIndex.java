@@ -102,7 +102,7 @@ public class InterIndex
 
         // User Inter service?
         if (OMR.gui != null) {
-            setEntityService(new InterService(this, sheet.getLocationService()));
+            setEntityService(new InterService(this, sheet, sheet.getLocationService()));
         } else {
             entityService = null;
         }
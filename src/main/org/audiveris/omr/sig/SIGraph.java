@@ -24,6 +24,7 @@ package org.audiveris.omr.sig;
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Shape;
+import org.audiveris.omr.math.GeoGrid;
 import org.audiveris.omr.math.GeoOrder;
 import static org.audiveris.omr.math.GeoOrder.*;
 import org.audiveris.omr.sheet.Staff;
@@ -89,6 +90,33 @@ public class SIGraph
     /** Content for differed populating after unmarshalling. */
     private SigValue sigValue;
 
+    /** Spatial index of inters, based on their bounds. */
+    private final GeoGrid<Inter> grid = new GeoGrid<Inter>(
+            constants.gridCellSize.getValue(),
+            constants.gridMaxCells.getValue());
+
+    /** Inters added or modified, not yet (re-)registered in spatial index. */
+    private final Set<Inter> gridPendings = new LinkedHashSet<Inter>();
+
+    /** Exclusions being reduced, if any. */
+    private ExclusionQueue exclusionQueue;
+
+    /** Inters touched by a modification, if tracking is on. */
+    private Set<Inter> touched;
+
+    /** Inters whose contextual grade must be recomputed. */
+    private final Set<Inter> staleGrades = new LinkedHashSet<Inter>();
+
+    /** Cached partitions of supporting partners, per inter. */
+    private final Map<Inter, List<List<Inter>>> partitions = new HashMap<Inter, List<List<Inter>>>(
+            64);
+
+    /** Have contextual grades been computed for all inters? */
+    private boolean contextualized;
+
+    /** Secondary indexes on inters, by class, shape and staff. */
+    private final SigIndex sigIndex = new SigIndex();
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Creates a new SIGraph object at system level.
@@ -124,6 +152,39 @@ public class SIGraph
     }
 
     //~ Methods ------------------------------------------------------------------------------------
+    //---------//
+    // addEdge //
+    //---------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to record both ends as touched, if so needed, and to flag the contextual grades
+     * impacted by the new relation.
+     *
+     * @param source relation source
+     * @param target relation target
+     * @param rel    the relation to add
+     * @return true if the relation was actually added
+     */
+    @Override
+    public boolean addEdge (Inter source,
+                            Inter target,
+                            Relation rel)
+    {
+        final boolean added = super.addEdge(source, target, rel);
+
+        if (added) {
+            relationChanged(source, target, rel);
+
+            if (touched != null) {
+                touched.add(source);
+                touched.add(target);
+            }
+        }
+
+        return added;
+    }
+
     //-----------//
     // addVertex //
     //-----------//
@@ -143,6 +204,16 @@ public class SIGraph
         // Update sig
         boolean res = super.addVertex(inter);
         inter.setSig(this);
+        boundsChanged(inter);
+        staleGrades.add(inter);
+
+        if (res) {
+            sigIndex.add(inter);
+
+            if (touched != null) {
+                touched.add(inter);
+            }
+        }
 
         // Update index
         if (inter.getId() == 0) {
@@ -193,16 +264,76 @@ public class SIGraph
         }
     }
 
+    //---------------//
+    // boundsChanged //
+    //---------------//
+    /**
+     * Notify that the bounds of the provided inter may have changed, so that the spatial
+     * index of this sig is kept up to date.
+     *
+     * @param inter the modified inter
+     */
+    public void boundsChanged (Inter inter)
+    {
+        synchronized (gridPendings) {
+            gridPendings.add(inter);
+        }
+    }
+
+    //----------------//
+    // collectTouched //
+    //----------------//
+    /**
+     * Report the inters touched since previous collection, and start a new collection.
+     * <p>
+     * An inter is touched when it is added or removed, when a relation is added or removed on it,
+     * when one of its neighbors is removed, when it intersects a removed inter, or when its
+     * contextual grade changes.
+     * <p>
+     * A removed inter is reported as well, so that a non-empty collection always signals a change
+     * in the system geometry.
+     *
+     * @return the touched inters (some of them may have been removed since), empty if tracking is
+     *         off
+     * @see #setTouchTracking(boolean)
+     */
+    public Set<Inter> collectTouched ()
+    {
+        if (touched == null) {
+            return Collections.emptySet();
+        }
+
+        final Set<Inter> collected = touched;
+        touched = new LinkedHashSet<Inter>();
+
+        return collected;
+    }
+
     //------------------------//
     // computeContextualGrade //
     //------------------------//
     public double computeContextualGrade (Inter inter)
     {
+        staleGrades.remove(inter);
+
         final List<Support> supports = getSupports(inter);
         final double cg = supports.isEmpty() ? inter.getGrade()
                 : computeContextualGrade(inter, supports);
+
+        if (touched != null) {
+            final Double oldCg = inter.getContextualGrade();
+
+            if ((oldCg == null) || (oldCg != cg)) {
+                touched.add(inter);
+            }
+        }
+
         inter.setContextualGrade(cg);
 
+        if (exclusionQueue != null) {
+            exclusionQueue.update(inter);
+        }
+
         return cg;
     }
 
@@ -220,8 +351,10 @@ public class SIGraph
     {
         List<Inter> found = new ArrayList<Inter>();
 
-        for (Inter inter : vertexSet()) {
-            if (rect.contains(inter.getBounds())) {
+        for (Inter inter : gridCandidates(rect)) {
+            Rectangle bounds = inter.getBounds();
+
+            if ((bounds != null) && rect.contains(bounds)) {
                 found.add(inter);
             }
         }
@@ -243,7 +376,7 @@ public class SIGraph
     {
         List<Inter> found = new ArrayList<Inter>();
 
-        for (Inter inter : vertexSet()) {
+        for (Inter inter : gridCandidates(new Rectangle(point.x, point.y, 1, 1))) {
             Rectangle bounds = inter.getBounds();
 
             if ((bounds != null) && bounds.contains(point)) {
@@ -264,11 +397,30 @@ public class SIGraph
     //---------------//
     /**
      * (Re)compute the contextual grade of all inters based on their supporting partners.
+     * <p>
+     * Once a first full computation has been made, only the inters impacted by a modification
+     * since previous call (see {@link #relationChanged} and {@link #gradeChanged}) are recomputed.
      */
     public void contextualize ()
     {
-        for (Inter inter : vertexSet()) {
-            computeContextualGrade(inter);
+        if (!contextualized || !constants.incrementalContext.isSet()) {
+            for (Inter inter : vertexSet()) {
+                computeContextualGrade(inter);
+            }
+
+            staleGrades.clear();
+            contextualized = true;
+
+            return;
+        }
+
+        final List<Inter> stales = new ArrayList<Inter>(staleGrades);
+        staleGrades.clear();
+
+        for (Inter inter : stales) {
+            if (containsVertex(inter)) {
+                computeContextualGrade(inter);
+            }
         }
     }
 
@@ -637,6 +789,25 @@ public class SIGraph
         return system;
     }
 
+    //--------------//
+    // gradeChanged //
+    //--------------//
+    /**
+     * Notify that the intrinsic grade of the provided inter has changed, so that its
+     * contextual grade and those of its supporting partners get recomputed.
+     * <p>
+     * Cached partitions remain valid, since the best partition does not depend on grades order.
+     *
+     * @param inter the modified inter
+     */
+    public void gradeChanged (Inter inter)
+    {
+        if (containsVertex(inter)) {
+            staleGrades.add(inter);
+            staleGrades.addAll(supportPartners(inter));
+        }
+    }
+
     //--------//
     // inters //
     //--------//
@@ -686,6 +857,35 @@ public class SIGraph
         return filtered;
     }
 
+    //-------------------//
+    // intersectedInters //
+    //-------------------//
+    /**
+     * Lookup the sig collection of interpretations for those whose bounds intersect the
+     * given box.
+     *
+     * @param box the intersecting box
+     * @return the intersected interpretations found, in sig order
+     */
+    public List<Inter> intersectedInters (Rectangle box)
+    {
+        List<Inter> found = new ArrayList<Inter>();
+
+        for (Inter inter : gridCandidates(box)) {
+            if (inter.isDeleted()) {
+                continue;
+            }
+
+            Rectangle bounds = inter.getBounds();
+
+            if ((bounds != null) && box.intersects(bounds)) {
+                found.add(inter);
+            }
+        }
+
+        return found;
+    }
+
     //-------------------//
     // intersectedInters //
     //-------------------//
@@ -950,6 +1150,10 @@ public class SIGraph
      */
     public List<Inter> inters (final Collection<Shape> shapes)
     {
+        if (constants.useIndexes.isSet()) {
+            return inters(sigIndex.ofShapes(shapes), new ShapesPredicate(shapes));
+        }
+
         return inters(new ShapesPredicate(shapes));
     }
 
@@ -964,6 +1168,10 @@ public class SIGraph
      */
     public List<Inter> inters (Staff staff)
     {
+        if (constants.useIndexes.isSet()) {
+            return inters(staff, sigIndex.ofStaff(staff));
+        }
+
         return inters(staff, vertexSet());
     }
 
@@ -992,6 +1200,10 @@ public class SIGraph
      */
     public List<Inter> inters (final Class classe)
     {
+        if (constants.useIndexes.isSet()) {
+            return inters(sigIndex.ofClass(classe), new ClassPredicate(classe));
+        }
+
         return inters(new ClassPredicate(classe));
     }
 
@@ -1022,6 +1234,10 @@ public class SIGraph
      */
     public List<Inter> inters (final Shape shape)
     {
+        if (constants.useIndexes.isSet()) {
+            return inters(sigIndex.ofShape(shape), new ShapePredicate(shape));
+        }
+
         return inters(new ShapePredicate(shape));
     }
 
@@ -1036,6 +1252,10 @@ public class SIGraph
      */
     public List<Inter> inters (final Class[] classes)
     {
+        if (constants.useIndexes.isSet()) {
+            return inters(sigIndex.ofClasses(classes), new ClassesPredicate(classes));
+        }
+
         return inters(new ClassesPredicate(classes));
     }
 
@@ -1052,6 +1272,10 @@ public class SIGraph
     public List<Inter> inters (final Staff staff,
                                final Class classe)
     {
+        if (constants.useIndexes.isSet()) {
+            return inters(sigIndex.ofStaff(staff), new StaffClassPredicate(staff, classe));
+        }
+
         return inters(new StaffClassPredicate(staff, classe));
     }
 
@@ -1092,6 +1316,10 @@ public class SIGraph
      */
     public void publish (final Inter inter)
     {
+        if ((inter != null) && containsVertex(inter)) {
+            boundsChanged(inter);
+        }
+
         system.getSheet().getInterIndex().publish(inter);
     }
 
@@ -1109,6 +1337,10 @@ public class SIGraph
      * <li>Recompute all impacted contextual grades values,</li>
      * <li>Iterate until no more exclusion is left.</li>
      * </ol>
+     * Exclusions are kept in an {@link ExclusionQueue}, updated whenever a contextual grade is
+     * computed or an inter removed, so that picking up the best exclusion needs no full scan.
+     * <p>
+     * On return, the provided collection no longer contains the exclusions removed from SIG.
      *
      * @param exclusions the collection of exclusions to process
      * @return the set of vertices removed
@@ -1116,32 +1348,27 @@ public class SIGraph
     public Set<Inter> reduceExclusions (Collection<? extends Relation> exclusions)
     {
         final Set<Inter> removed = new LinkedHashSet<Inter>();
-        Relation bestRel;
+        final ExclusionQueue queue = new ExclusionQueue();
 
-        do {
-            // Choose exclusion with the highest source or target grade
-            double bestCP = 0;
-            bestRel = null;
+        for (Relation rel : exclusions) {
+            if (containsEdge(rel)) {
+                queue.add(rel, getEdgeSource(rel), getEdgeTarget(rel));
+            }
+        }
 
-            for (Iterator<? extends Relation> it = exclusions.iterator(); it.hasNext();) {
-                Relation rel = it.next();
+        final ExclusionQueue outerQueue = exclusionQueue;
+        exclusionQueue = queue;
 
-                if (containsEdge(rel)) {
-                    final double cp = Math.max(
-                            getEdgeSource(rel).getBestGrade(),
-                            getEdgeTarget(rel).getBestGrade());
+        try {
+            // Choose exclusion with the highest source or target grade
+            Relation bestRel;
 
-                    if (bestCP < cp) {
-                        bestCP = cp;
-                        bestRel = rel;
-                    }
-                } else {
-                    it.remove();
+            while ((bestRel = queue.poll()) != null) {
+                if (!containsEdge(bestRel)) {
+                    continue;
                 }
-            }
 
-            // Remove the weaker branch of the selected exclusion
-            if (bestRel != null) {
+                // Remove the weaker branch of the selected exclusion
                 final Inter source = getEdgeSource(bestRel);
                 final double scp = source.getBestGrade();
                 final Inter target = getEdgeTarget(bestRel);
@@ -1172,10 +1399,17 @@ public class SIGraph
                 for (Inter inter : involved) {
                     computeContextualGrade(inter);
                 }
+            }
+        } finally {
+            exclusionQueue = outerQueue;
+        }
 
-                exclusions.remove(bestRel);
+        // Purge exclusions no longer in SIG
+        for (Iterator<? extends Relation> it = exclusions.iterator(); it.hasNext();) {
+            if (!containsEdge(it.next())) {
+                it.remove();
             }
-        } while (bestRel != null);
+        }
 
         return removed;
     }
@@ -1193,6 +1427,35 @@ public class SIGraph
         return reduceExclusions(exclusions());
     }
 
+    //------------//
+    // removeEdge //
+    //------------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to record both ends as touched, if so needed, and to flag the contextual grades
+     * impacted by the relation removal.
+     *
+     * @param rel the relation to remove
+     * @return true if the relation was actually removed
+     */
+    @Override
+    public boolean removeEdge (Relation rel)
+    {
+        if (containsEdge(rel)) {
+            final Inter source = getEdgeSource(rel);
+            final Inter target = getEdgeTarget(rel);
+            relationChanged(source, target, rel);
+
+            if (touched != null) {
+                touched.add(source);
+                touched.add(target);
+            }
+        }
+
+        return super.removeEdge(rel);
+    }
+
     //--------------//
     // removeVertex //
     //--------------//
@@ -1207,7 +1470,71 @@ public class SIGraph
         // Remove from inter index
         system.getSheet().getInterIndex().remove(inter);
 
-        return super.removeVertex(inter);
+        if (exclusionQueue != null) {
+            exclusionQueue.remove(inter);
+        }
+
+        if (touched != null) {
+            touched.add(inter);
+
+            for (Relation rel : edgesOf(inter)) {
+                touched.add(getOppositeInter(inter, rel));
+            }
+
+            // Spatial neighborhood, even for a relation-less inter
+            final Rectangle bounds = inter.getBounds();
+
+            if (bounds != null) {
+                touched.addAll(intersectedInters(bounds));
+            }
+        }
+
+        for (Inter partner : supportPartners(inter)) {
+            invalidateGrade(partner);
+        }
+
+        sigIndex.remove(inter);
+
+        synchronized (gridPendings) {
+            gridPendings.remove(inter);
+            grid.remove(inter);
+        }
+
+        final boolean removed = super.removeVertex(inter);
+        staleGrades.remove(inter);
+        partitions.remove(inter);
+
+        return removed;
+    }
+
+    //------------------//
+    // setTouchTracking //
+    //------------------//
+    /**
+     * Switch on or off the tracking of touched inters.
+     *
+     * @param bool true to start a new tracking, false to stop it
+     * @see #collectTouched()
+     */
+    public void setTouchTracking (boolean bool)
+    {
+        touched = bool ? new LinkedHashSet<Inter>() : null;
+    }
+
+    //--------------//
+    // shapeChanged //
+    //--------------//
+    /**
+     * Notify that the shape of the provided inter has been modified, so that the
+     * secondary indexes of this sig are kept up to date.
+     *
+     * @param inter    the modified inter
+     * @param oldShape the previous shape
+     */
+    public void shapeChanged (Inter inter,
+                              Shape oldShape)
+    {
+        sigIndex.shapeChanged(inter, oldShape);
     }
 
     //--------------//
@@ -1237,6 +1564,22 @@ public class SIGraph
         });
     }
 
+    //--------------//
+    // staffChanged //
+    //--------------//
+    /**
+     * Notify that the staff of the provided inter has been modified, so that the
+     * secondary indexes of this sig are kept up to date.
+     *
+     * @param inter    the modified inter
+     * @param oldStaff the previous staff
+     */
+    public void staffChanged (Inter inter,
+                              Staff oldStaff)
+    {
+        sigIndex.staffChanged(inter, oldStaff);
+    }
+
     //----------//
     // toString //
     //----------//
@@ -1302,7 +1645,17 @@ public class SIGraph
         }
 
         // Check for mutual exclusion between partners
-        final List<List<Inter>> seqs = getPartitions(inter, partners);
+        final boolean cached = constants.incrementalContext.isSet();
+        List<List<Inter>> seqs = cached ? partitions.get(inter) : null;
+
+        if (seqs == null) {
+            seqs = getPartitions(inter, partners);
+
+            if (cached) {
+                partitions.put(inter, seqs);
+            }
+        }
+
         double bestCg = 0;
 
         for (List<Inter> seq : seqs) {
@@ -1318,6 +1671,51 @@ public class SIGraph
         return bestCg;
     }
 
+    //----------------//
+    // gridCandidates //
+    //----------------//
+    /**
+     * Register pending inters into spatial index and report the candidates for the
+     * provided rectangle.
+     *
+     * @param rect the query rectangle
+     * @return the candidate inters, in sig order
+     */
+    private List<Inter> gridCandidates (Rectangle rect)
+    {
+        synchronized (gridPendings) {
+            for (Inter inter : gridPendings) {
+                if (containsVertex(inter)) {
+                    grid.insert(inter, gridBounds(inter));
+                }
+            }
+
+            gridPendings.clear();
+
+            return grid.candidates(rect);
+        }
+    }
+
+    //------------//
+    // gridBounds //
+    //------------//
+    /**
+     * Report the bounds to register an inter with in spatial index.
+     * Ensemble bounds depend on members and may evolve silently, hence such inters are
+     * registered with no bounds and thus always considered as candidates.
+     *
+     * @param inter the inter to register
+     * @return the inter bounds, or null
+     */
+    private Rectangle gridBounds (Inter inter)
+    {
+        if (inter instanceof InterEnsemble) {
+            return null;
+        }
+
+        return inter.getBounds();
+    }
+
     //----------------//
     // involvedInters //
     //----------------//
@@ -1333,6 +1731,52 @@ public class SIGraph
         return inters;
     }
 
+    //-----------------//
+    // invalidateGrade //
+    //-----------------//
+    /**
+     * Flag the contextual grade of the provided inter as stale, as well as its cached
+     * partitions.
+     *
+     * @param inter the impacted inter
+     */
+    private void invalidateGrade (Inter inter)
+    {
+        staleGrades.add(inter);
+        partitions.remove(inter);
+    }
+
+    //-----------------//
+    // relationChanged //
+    //-----------------//
+    /**
+     * Flag the contextual grades impacted by the addition or removal of the provided
+     * relation.
+     * <p>
+     * A support impacts both its ends, while an exclusion impacts the inters supported by both its
+     * ends, since their partitions of partners are modified.
+     *
+     * @param source relation source
+     * @param target relation target
+     * @param rel    the added or removed relation
+     */
+    private void relationChanged (Inter source,
+                                  Inter target,
+                                  Relation rel)
+    {
+        if (rel instanceof Support) {
+            invalidateGrade(source);
+            invalidateGrade(target);
+        } else if (rel instanceof Exclusion) {
+            final Set<Inter> commons = supportPartners(source);
+            commons.retainAll(supportPartners(target));
+
+            for (Inter inter : commons) {
+                invalidateGrade(inter);
+            }
+        }
+    }
+
     //---------//
     // stemsOf //
     //---------//
@@ -1349,6 +1793,28 @@ public class SIGraph
         return stems;
     }
 
+    //-----------------//
+    // supportPartners //
+    //-----------------//
+    /**
+     * Report the inters linked to the provided inter by a support relation.
+     *
+     * @param inter the provided inter
+     * @return the (perhaps empty) set of support partners
+     */
+    private Set<Inter> supportPartners (Inter inter)
+    {
+        final Set<Inter> set = new LinkedHashSet<Inter>();
+
+        for (Relation rel : edgesOf(inter)) {
+            if (rel instanceof Support) {
+                set.add(getOppositeInter(inter, rel));
+            }
+        }
+
+        return set;
+    }
+
     //------------------//
     // supportsSeenFrom //
     //------------------//
@@ -1387,6 +1853,24 @@ public class SIGraph
                 "count",
                 6,
                 "Upper limit on number of supports used for contextual grade");
+
+        private final Constant.Boolean incrementalContext = new Constant.Boolean(
+                true,
+                "Should contextual grades be recomputed only for impacted inters?");
+
+        private final Constant.Boolean useIndexes = new Constant.Boolean(
+                true,
+                "Should inters lookups by class, shape or staff use the secondary indexes?");
+
+        private final Constant.Integer gridCellSize = new Constant.Integer(
+                "pixels",
+                64,
+                "Cell side of spatial index on inters");
+
+        private final Constant.Integer gridMaxCells = new Constant.Integer(
+                "cells",
+                256,
+                "Maximum number of index cells for one inter");
     }
 
     //----------------//
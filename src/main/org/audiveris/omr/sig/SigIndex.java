@@ -0,0 +1,433 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                        S i g I n d e x                                         //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sig;
+
+import org.audiveris.omr.glyph.Shape;
+import org.audiveris.omr.sheet.Staff;
+import org.audiveris.omr.sig.inter.AbstractInter;
+import org.audiveris.omr.sig.inter.Inter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Class {@code SigIndex} gathers secondary indexes on the inters of a sig, by inter class,
+ * by shape and by staff.
+ * <p>
+ * Each lookup reports the candidate inters in sig order, that is in their order of insertion,
+ * so that a caller filtering these candidates gets the same result as when browsing the whole
+ * vertex set. To this end, each bucket of inters is sorted on insertion rank.
+ * <p>
+ * Class is immutable and shape changes are notified via {@link #shapeChanged}.
+ * Staff is trickier, since some inter classes override {@code getStaff()} to lazily infer their
+ * staff from related inters: such inters, as well as the inters with no staff yet, are kept as
+ * "floating" and reported as candidates for any staff.
+ *
+ * @author Hervé Bitteur
+ */
+class SigIndex
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    /** Inter classes whose staff is the one set via setStaff(). */
+    private static final ConcurrentMap<Class, Boolean> fixedStaffClasses
+            = new ConcurrentHashMap<Class, Boolean>();
+
+    //~ Instance fields ----------------------------------------------------------------------------
+
+    /** Insertion rank of each indexed inter. */
+    private final Map<Inter, Integer> ranks = new HashMap<Inter, Integer>();
+
+    /** Inters per concrete class. */
+    private final Map<Class, Bucket> byClass = new HashMap<Class, Bucket>();
+
+    /** Inters per shape. */
+    private final Map<Shape, Bucket> byShape = new EnumMap<Shape, Bucket>(Shape.class);
+
+    /** Inters per fixed staff. */
+    private final Map<Staff, Bucket> byStaff = new HashMap<Staff, Bucket>();
+
+    /** Inters with no fixed staff. */
+    private final Bucket floating = new Bucket();
+
+    /** Rank for next inserted inter. */
+    private int nextRank;
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //-----//
+    // add //
+    //-----//
+    /**
+     * Index a brand new inter.
+     *
+     * @param inter the inter inserted in sig
+     */
+    public void add (Inter inter)
+    {
+        final int rank = nextRank++;
+        ranks.put(inter, rank);
+        bucket(byClass, inter.getClass()).put(rank, inter);
+
+        if (inter.getShape() != null) {
+            bucket(byShape, inter.getShape()).put(rank, inter);
+        }
+
+        final Staff staff = fixedStaff(inter);
+
+        if (staff != null) {
+            bucket(byStaff, staff).put(rank, inter);
+        } else {
+            floating.put(rank, inter);
+        }
+    }
+
+    //----------//
+    // contains //
+    //----------//
+    /**
+     * Tell whether the provided inter is indexed.
+     *
+     * @param inter the inter to check
+     * @return true if indexed
+     */
+    public boolean contains (Inter inter)
+    {
+        return ranks.containsKey(inter);
+    }
+
+    //---------//
+    // ofClass //
+    //---------//
+    /**
+     * Report the inters which are instances of the provided class.
+     *
+     * @param classe the class (or interface) to search for
+     * @return the candidates, in sig order
+     */
+    public List<Inter> ofClass (Class classe)
+    {
+        return ofClasses(new Class[]{classe});
+    }
+
+    //-----------//
+    // ofClasses //
+    //-----------//
+    /**
+     * Report the inters which are instances of any of the provided classes.
+     *
+     * @param classes the classes (or interfaces) to search for
+     * @return the candidates, in sig order
+     */
+    public List<Inter> ofClasses (Class[] classes)
+    {
+        final List<Bucket> buckets = new ArrayList<Bucket>();
+
+        for (Map.Entry<Class, Bucket> entry : byClass.entrySet()) {
+            for (Class classe : classes) {
+                if (classe.isAssignableFrom(entry.getKey())) {
+                    buckets.add(entry.getValue());
+
+                    break;
+                }
+            }
+        }
+
+        return merged(buckets);
+    }
+
+    //---------//
+    // ofShape //
+    //---------//
+    /**
+     * Report the inters of the provided shape.
+     *
+     * @param shape the shape to search for
+     * @return the candidates, in sig order
+     */
+    public List<Inter> ofShape (Shape shape)
+    {
+        return ofShapes(Collections.singleton(shape));
+    }
+
+    //----------//
+    // ofShapes //
+    //----------//
+    /**
+     * Report the inters of any of the provided shapes.
+     *
+     * @param shapes the shapes to search for
+     * @return the candidates, in sig order
+     */
+    public List<Inter> ofShapes (Collection<Shape> shapes)
+    {
+        final List<Bucket> buckets = new ArrayList<Bucket>();
+
+        for (Shape shape : new LinkedHashSet<Shape>(shapes)) {
+            final Bucket bucket = byShape.get(shape);
+
+            if (bucket != null) {
+                buckets.add(bucket);
+            }
+        }
+
+        return merged(buckets);
+    }
+
+    //---------//
+    // ofStaff //
+    //---------//
+    /**
+     * Report the inters that may relate to the provided staff.
+     * <p>
+     * The floating inters are always part of the candidates, the caller is thus expected to
+     * check the actual staff of each candidate.
+     *
+     * @param staff the staff to search for
+     * @return the candidates, in sig order
+     */
+    public List<Inter> ofStaff (Staff staff)
+    {
+        final List<Bucket> buckets = new ArrayList<Bucket>();
+        buckets.add(floating);
+
+        final Bucket bucket = byStaff.get(staff);
+
+        if (bucket != null) {
+            buckets.add(bucket);
+        }
+
+        return merged(buckets);
+    }
+
+    //--------//
+    // remove //
+    //--------//
+    /**
+     * Un-index an inter removed from sig.
+     *
+     * @param inter the removed inter
+     */
+    public void remove (Inter inter)
+    {
+        final Integer rank = ranks.remove(inter);
+
+        if (rank == null) {
+            return;
+        }
+
+        unbucket(byClass, inter.getClass(), rank);
+        unbucket(byShape, inter.getShape(), rank);
+
+        if (floating.remove(rank) == null) {
+            unbucket(byStaff, inter.getStaff(), rank);
+        }
+    }
+
+    //--------------//
+    // shapeChanged //
+    //--------------//
+    /**
+     * Re-index an inter whose shape has been modified.
+     *
+     * @param inter    the modified inter
+     * @param oldShape the shape it was indexed with
+     */
+    public void shapeChanged (Inter inter,
+                              Shape oldShape)
+    {
+        final Integer rank = ranks.get(inter);
+
+        if (rank == null) {
+            return;
+        }
+
+        unbucket(byShape, oldShape, rank);
+
+        if (inter.getShape() != null) {
+            bucket(byShape, inter.getShape()).put(rank, inter);
+        }
+    }
+
+    //--------------//
+    // staffChanged //
+    //--------------//
+    /**
+     * Re-index an inter whose staff has been modified via setStaff().
+     *
+     * @param inter    the modified inter
+     * @param oldStaff the staff it was indexed with
+     */
+    public void staffChanged (Inter inter,
+                              Staff oldStaff)
+    {
+        final Integer rank = ranks.get(inter);
+
+        if ((rank == null) || !hasFixedStaff(inter)) {
+            return; // Floating for good
+        }
+
+        if (oldStaff != null) {
+            unbucket(byStaff, oldStaff, rank);
+        } else {
+            floating.remove(rank);
+        }
+
+        if (inter.getStaff() != null) {
+            bucket(byStaff, inter.getStaff()).put(rank, inter);
+        } else {
+            floating.put(rank, inter);
+        }
+    }
+
+    //--------//
+    // bucket //
+    //--------//
+    private static <K> Bucket bucket (Map<K, Bucket> map,
+                                      K key)
+    {
+        Bucket bucket = map.get(key);
+
+        if (bucket == null) {
+            map.put(key, bucket = new Bucket());
+        }
+
+        return bucket;
+    }
+
+    //------------//
+    // fixedStaff //
+    //------------//
+    /**
+     * Report the staff of provided inter, if it can be indexed as such.
+     *
+     * @param inter the provided inter
+     * @return the fixed staff, or null if inter is to be kept as floating
+     */
+    private static Staff fixedStaff (Inter inter)
+    {
+        return hasFixedStaff(inter) ? inter.getStaff() : null;
+    }
+
+    //---------------//
+    // hasFixedStaff //
+    //---------------//
+    /**
+     * Tell whether the staff of the provided inter is the one set via setStaff(),
+     * that is whether its class does not override getStaff().
+     *
+     * @param inter the provided inter
+     * @return true if staff can be indexed
+     */
+    private static boolean hasFixedStaff (Inter inter)
+    {
+        final Class classe = inter.getClass();
+        Boolean fixed = fixedStaffClasses.get(classe);
+
+        if (fixed == null) {
+            try {
+                fixed = classe.getMethod("getStaff").getDeclaringClass() == AbstractInter.class;
+            } catch (NoSuchMethodException ex) {
+                fixed = false;
+            }
+
+            fixedStaffClasses.put(classe, fixed);
+        }
+
+        return fixed;
+    }
+
+    //--------//
+    // merged //
+    //--------//
+    /**
+     * Merge the provided buckets into a list sorted by insertion rank.
+     *
+     * @param buckets the buckets to merge (they are disjoint)
+     * @return the merged list
+     */
+    private static List<Inter> merged (List<Bucket> buckets)
+    {
+        Bucket single = null;
+        int count = 0;
+
+        for (Bucket bucket : buckets) {
+            if (!bucket.isEmpty()) {
+                single = bucket;
+                count++;
+            }
+        }
+
+        if (count == 0) {
+            return new ArrayList<Inter>();
+        }
+
+        if (count == 1) {
+            return new ArrayList<Inter>(single.values());
+        }
+
+        final SortedMap<Integer, Inter> all = new TreeMap<Integer, Inter>();
+
+        for (Bucket bucket : buckets) {
+            all.putAll(bucket);
+        }
+
+        return new ArrayList<Inter>(all.values());
+    }
+
+    //----------//
+    // unbucket //
+    //----------//
+    private static <K> void unbucket (Map<K, Bucket> map,
+                                      K key,
+                                      Integer rank)
+    {
+        if (key != null) {
+            final Bucket bucket = map.get(key);
+
+            if (bucket != null) {
+                bucket.remove(rank);
+            }
+        }
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //--------//
+    // Bucket //
+    //--------//
+    /**
+     * Inters sharing the same key, sorted by insertion rank.
+     */
+    private static class Bucket
+            extends TreeMap<Integer, Inter>
+    {
+    }
+}
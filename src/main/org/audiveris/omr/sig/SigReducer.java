@@ -21,12 +21,14 @@
 // </editor-fold>
 package org.audiveris.omr.sig;
 
+import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Shape;
 import org.audiveris.omr.glyph.ShapeSet;
 import static org.audiveris.omr.glyph.ShapeSet.Accidentals;
 import static org.audiveris.omr.glyph.ShapeSet.CoreBarlines;
 import static org.audiveris.omr.glyph.ShapeSet.Flags;
+import org.audiveris.omr.math.GeoGrid;
 import org.audiveris.omr.math.GeoOrder;
 import org.audiveris.omr.math.GeoUtil;
 import org.audiveris.omr.sheet.Part;
@@ -85,6 +87,7 @@ import java.awt.Rectangle;
 import java.awt.geom.Line2D;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.EnumSet;
@@ -170,6 +173,12 @@ public class SigReducer
     /** Should we purge weak inter instances?. */
     private final boolean purgeWeaks;
 
+    /** Worklists of consistency checks, if any. */
+    private final List<Worklist> worklists = new ArrayList<Worklist>();
+
+    /** Inters to be examined by current consistency checks, null for all. */
+    private Set<Inter> scope;
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Creates a new {@code SigReducer} object.
@@ -514,6 +523,74 @@ public class SigReducer
         return hasLeft && hasRight;
     }
 
+    //------------//
+    // candidates //
+    //------------//
+    /**
+     * Report the inters of provided class, within current scope.
+     *
+     * @param classe the desired class
+     * @return the candidate inters
+     */
+    private List<Inter> candidates (Class classe)
+    {
+        return (scope == null) ? sig.inters(classe) : sig.inters(scope, classe);
+    }
+
+    //------------//
+    // candidates //
+    //------------//
+    /**
+     * Report the inters of provided shape, within current scope.
+     *
+     * @param shape the desired shape
+     * @return the candidate inters
+     */
+    private List<Inter> candidates (final Shape shape)
+    {
+        if (scope == null) {
+            return sig.inters(shape);
+        }
+
+        return SIGraph.inters(
+                scope,
+                new Predicate<Inter>()
+        {
+            @Override
+            public boolean check (Inter inter)
+            {
+                return inter.getShape() == shape;
+            }
+        });
+    }
+
+    //------------//
+    // candidates //
+    //------------//
+    /**
+     * Report the inters of provided shapes, within current scope.
+     *
+     * @param shapes the desired shapes
+     * @return the candidate inters
+     */
+    private List<Inter> candidates (final Collection<Shape> shapes)
+    {
+        if (scope == null) {
+            return sig.inters(shapes);
+        }
+
+        return SIGraph.inters(
+                scope,
+                new Predicate<Inter>()
+        {
+            @Override
+            public boolean check (Inter inter)
+            {
+                return shapes.contains(inter.getShape());
+            }
+        });
+    }
+
     //-----------------------//
     // checkAugmentationDots //
     //-----------------------//
@@ -527,7 +604,7 @@ public class SigReducer
     private int checkAugmentationDots ()
     {
         int modifs = 0;
-        final List<Inter> dots = sig.inters(AugmentationDotInter.class);
+        final List<Inter> dots = candidates(AugmentationDotInter.class);
 
         DotLoop:
         for (Inter inter : dots) {
@@ -578,7 +655,7 @@ public class SigReducer
     private int checkAugmented ()
     {
         int modifs = 0;
-        List<Inter> entities = sig.inters(AbstractNoteInter.class);
+        List<Inter> entities = candidates(AbstractNoteInter.class);
 
         for (Inter entity : entities) {
             Set<Relation> rels = sig.getRelations(entity, AugmentationRelation.class);
@@ -606,7 +683,7 @@ public class SigReducer
     private int checkBeams ()
     {
         int modifs = 0;
-        final List<Inter> beams = sig.inters(BeamInter.class);
+        final List<Inter> beams = candidates(BeamInter.class);
 
         for (Inter inter : beams) {
             final BeamInter beam = (BeamInter) inter;
@@ -636,7 +713,7 @@ public class SigReducer
     private int checkDoubleAlters ()
     {
         int modifs = 0;
-        final List<Inter> doubles = sig.inters(
+        final List<Inter> doubles = candidates(
                 Arrays.asList(Shape.DOUBLE_FLAT, Shape.DOUBLE_SHARP));
 
         for (Inter inter : doubles) {
@@ -743,7 +820,7 @@ public class SigReducer
     private int checkHeads ()
     {
         int modifs = 0;
-        final List<Inter> heads = sig.inters(ShapeSet.StemHeads);
+        final List<Inter> heads = candidates(ShapeSet.StemHeads);
 
         for (Inter head : heads) {
             if (head.isVip()) {
@@ -780,7 +857,7 @@ public class SigReducer
     private int checkHooks ()
     {
         int modifs = 0;
-        final List<Inter> inters = sig.inters(BeamHookInter.class);
+        final List<Inter> inters = candidates(BeamHookInter.class);
 
         for (Inter inter : inters) {
             // Check if the hook has a stem relation
@@ -816,7 +893,7 @@ public class SigReducer
     private int checkIsolatedAlters ()
     {
         int modifs = 0;
-        final List<Inter> alters = sig.inters(ShapeSet.Accidentals.getShapes());
+        final List<Inter> alters = candidates(ShapeSet.Accidentals.getShapes());
 
         for (Inter inter : alters) {
             if (inter instanceof KeyAlterInter) {
@@ -987,7 +1064,7 @@ public class SigReducer
     private int checkStemEndingHeads ()
     {
         int modifs = 0;
-        final List<Inter> stems = sig.inters(Shape.STEM);
+        final List<Inter> stems = candidates(Shape.STEM);
 
         for (Inter inter : stems) {
             final StemInter stem = (StemInter) inter;
@@ -1012,7 +1089,7 @@ public class SigReducer
     private int checkStemLengths ()
     {
         final int minStemExtension = scale.toPixels(constants.minStemExtension);
-        final List<Inter> stems = sig.inters(Shape.STEM);
+        final List<Inter> stems = candidates(Shape.STEM);
         int modifs = 0;
 
         for (Inter inter : stems) {
@@ -1060,7 +1137,7 @@ public class SigReducer
     private int checkStems ()
     {
         int modifs = 0;
-        final List<Inter> stems = sig.inters(Shape.STEM);
+        final List<Inter> stems = candidates(Shape.STEM);
 
         for (Inter inter : stems) {
             final StemInter stem = (StemInter) inter;
@@ -1095,7 +1172,7 @@ public class SigReducer
     private int checkTimeNumbers ()
     {
         int modifs = 0;
-        final List<Inter> numbers = sig.inters(TimeNumberInter.class);
+        final List<Inter> numbers = candidates(TimeNumberInter.class);
 
         for (Inter inter : numbers) {
             final TimeNumberInter number = (TimeNumberInter) inter;
@@ -1182,14 +1259,16 @@ public class SigReducer
     /**
      * Check whether the two provided Inter instance can overlap.
      *
-     * @param inters array of exactly 2 instances
+     * @param one first instance
+     * @param two second instance
      * @return true if overlap is accepted, false otherwise
      */
-    private static boolean compatible (Inter[] inters)
+    private static boolean compatible (Inter one,
+                                       Inter two)
     {
         for (int i = 0; i <= 1; i++) {
-            Inter inter = inters[i];
-            Inter other = inters[1 - i];
+            final Inter inter = (i == 0) ? one : two;
+            final Inter other = (i == 0) ? two : one;
 
             if (inter instanceof AbstractBeamInter) {
                 if (other instanceof AbstractBeamInter) {
@@ -1247,6 +1326,11 @@ public class SigReducer
      * relation between them, insert a mutual exclusion.
      * <p>
      * This method is key!
+     * <p>
+     * Inters are browsed by abscissa, and for each (left) inter only the following (right) inters
+     * whose bounds intersect the left bounds are examined, thanks to a spatial index of inters
+     * bounds. This keeps the original processing order, while avoiding the comparison of
+     * vertically distant inters.
      *
      * @param inters the collection of inters to process
      */
@@ -1255,15 +1339,27 @@ public class SigReducer
     {
         Collections.sort(inters, Inter.byAbscissa);
 
+        // Spatial index of inters bounds, by index in the sorted list
+        final int count = inters.size();
+        final Rectangle[] boxes = new Rectangle[count];
+        final GeoGrid<Integer> grid = new GeoGrid<Integer>(
+                scale.toPixels(constants.overlapCellSize),
+                constants.overlapMaxCells.getValue());
+
+        for (int i = 0; i < count; i++) {
+            boxes[i] = inters.get(i).getBounds();
+            grid.insert(i, boxes[i]);
+        }
+
         NextLeft:
-        for (int i = 0, iBreak = inters.size() - 1; i < iBreak; i++) {
+        for (int i = 0, iBreak = count - 1; i < iBreak; i++) {
             Inter left = inters.get(i);
 
             if (left.isDeleted()) {
                 continue;
             }
 
-            final Rectangle leftBox = left.getBounds();
+            final Rectangle leftBox = boxes[i];
             Set<Inter> mirrors = null;
 
             final Inter leftMirror = left.getMirror();
@@ -1285,9 +1381,14 @@ public class SigReducer
                 }
             }
 
-            final double xMax = leftBox.getMaxX();
+            // Candidates come in sorted list order
+            for (int j : grid.candidates(leftBox)) {
+                if (j <= i) {
+                    continue;
+                }
+
+                final Inter right = inters.get(j);
 
-            for (Inter right : inters.subList(i + 1, inters.size())) {
                 if (right.isDeleted()) {
                     continue;
                 }
@@ -1298,13 +1399,11 @@ public class SigReducer
                 }
 
                 // Overlap is accepted in some cases
-                if (compatible(new Inter[]{left, right})) {
+                if (compatible(left, right)) {
                     continue;
                 }
 
-                Rectangle rightBox = right.getBounds();
-
-                if (leftBox.intersects(rightBox)) {
+                if (leftBox.intersects(boxes[j])) {
                     // Have a more precise look
                     if (left.isVip() && right.isVip()) {
                         logger.info("VIP check overlap {} vs {}", left, right);
@@ -1331,8 +1430,6 @@ public class SigReducer
                             continue NextLeft;
                         }
                     }
-                } else if (rightBox.x > xMax) {
-                    break; // Since inters list is sorted by abscissa
                 }
             }
         }
@@ -1546,35 +1643,50 @@ public class SigReducer
 
         adapter.prolog();
 
+        // Consistency checks may be limited to the inters touched since their previous pass
+        final Worklist early = new Worklist(); // For checkConsistencies()
+        final Worklist late = new Worklist(); // For checkLateConsistencies()
+
+        if (constants.useWorklists.isSet()) {
+            worklists.add(early);
+            worklists.add(late);
+            sig.setTouchTracking(true);
+        }
+
         Set<Inter> reduced = new LinkedHashSet<Inter>(); // Reduced inters
         Set<Inter> deleted = new LinkedHashSet<Inter>(); // Deleted inters
 
-        do {
-            reduced.clear();
-            deleted.clear();
+        try {
+            do {
+                reduced.clear();
+                deleted.clear();
 
-            // First, remove all inters with too low contextual grade
-            deleted.addAll(updateAndPurge());
+                // First, remove all inters with too low contextual grade
+                deleted.addAll(updateAndPurge());
 
-            deleted.addAll(adapter.checkSlurs());
-            allRemoved.addAll(deleted);
+                deleted.addAll(adapter.checkSlurs());
+                allRemoved.addAll(deleted);
 
-            int modifs; // modifications done in current iteration
+                int modifs; // modifications done in current iteration
 
-            while ((modifs = adapter.checkConsistencies()) > 0) {
-                logger.debug("S#{} modifs: {}", system.getId(), modifs);
-            }
+                while ((modifs = runChecks(early, false, adapter)) > 0) {
+                    logger.debug("S#{} modifs: {}", system.getId(), modifs);
+                }
 
-            // Remaining exclusions
-            reduced.addAll(sig.reduceExclusions());
-            allRemoved.addAll(reduced);
+                // Remaining exclusions
+                reduced.addAll(sig.reduceExclusions());
+                allRemoved.addAll(reduced);
 
-            while ((modifs = adapter.checkLateConsistencies()) > 0) {
-                logger.debug("S#{} late modifs: {}", system.getId(), modifs);
-            }
+                while ((modifs = runChecks(late, true, adapter)) > 0) {
+                    logger.debug("S#{} late modifs: {}", system.getId(), modifs);
+                }
 
-            logger.debug("S#{} reductions: {}", system.getId(), reduced);
-        } while (!reduced.isEmpty() || !deleted.isEmpty());
+                logger.debug("S#{} reductions: {}", system.getId(), reduced);
+            } while (!reduced.isEmpty() || !deleted.isEmpty());
+        } finally {
+            worklists.clear();
+            sig.setTouchTracking(false);
+        }
 
         return allRemoved;
     }
@@ -1616,6 +1728,52 @@ public class SigReducer
         return modifs;
     }
 
+    //-----------//
+    // runChecks //
+    //-----------//
+    /**
+     * Run one pass of early or late consistency checks.
+     * <p>
+     * In worklist mode, the first pass of a family examines all inters, the following passes only
+     * examine the inters touched since their previous pass, together with their neighbors.
+     * This relies on these checks being local: the verdict on an inter depends only on its
+     * relations and on its neighbors relations.
+     * Checks based on geometry rather than on relations (ledgers, time signatures) still process
+     * the whole system, but only when the family worklist is not empty.
+     * Since any added or removed inter is recorded as touched, even without relations, a change
+     * in system geometry always triggers a new pass.
+     *
+     * @param worklist the worklist of the checks family
+     * @param late     true for late checks, false for early checks
+     * @param adapter  the adapter which provides the checks
+     * @return the count of modifications done
+     */
+    private int runChecks (Worklist worklist,
+                           boolean late,
+                           Adapter adapter)
+    {
+        if (!worklists.isEmpty()) {
+            // Dispatch the inters touched so far
+            final Set<Inter> touched = sig.collectTouched();
+
+            for (Worklist wl : worklists) {
+                wl.addAll(touched);
+            }
+
+            if (worklist.isEmpty()) {
+                return 0; // Nothing has changed since previous pass
+            }
+
+            scope = worklist.open();
+        }
+
+        try {
+            return late ? adapter.checkLateConsistencies() : adapter.checkConsistencies();
+        } finally {
+            scope = null;
+        }
+    }
+
     //------------------//
     // stemHasHeadAtEnd //
     //------------------//
@@ -1938,6 +2096,10 @@ public class SigReducer
     {
         //~ Instance fields ------------------------------------------------------------------------
 
+        private final Constant.Boolean useWorklists = new Constant.Boolean(
+                true,
+                "Should consistency checks be limited to the inters touched since previous pass?");
+
         private final Scale.Fraction maxTupletSlurWidth = new Scale.Fraction(
                 3,
                 "Maximum width for slur around tuplet");
@@ -1945,5 +2107,79 @@ public class SigReducer
         private final Scale.Fraction minStemExtension = new Scale.Fraction(
                 1.5,
                 "Minimum vertical extension of a stem beyond last head");
+
+        private final Scale.Fraction overlapCellSize = new Scale.Fraction(
+                2.0,
+                "Cell side of spatial index used to detect overlaps");
+
+        private final Constant.Integer overlapMaxCells = new Constant.Integer(
+                "cells",
+                64,
+                "Maximum number of index cells for one inter when detecting overlaps");
+    }
+
+    //----------//
+    // Worklist //
+    //----------//
+    /**
+     * Inters to be re-examined by a family of consistency checks.
+     */
+    private class Worklist
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        /** Inters touched since previous pass, null until a first pass is made. */
+        private Set<Inter> pending;
+
+        //~ Methods --------------------------------------------------------------------------------
+        /**
+         * Record touched inters (ignored until a first pass is made).
+         *
+         * @param touched the inters touched
+         */
+        public void addAll (Collection<Inter> touched)
+        {
+            if (pending != null) {
+                pending.addAll(touched);
+            }
+        }
+
+        /**
+         * Tell whether no inter is left to examine.
+         *
+         * @return true if empty
+         */
+        public boolean isEmpty ()
+        {
+            return (pending != null) && pending.isEmpty();
+        }
+
+        /**
+         * Start a new pass.
+         *
+         * @return the inters to examine, null for all inters
+         */
+        public Set<Inter> open ()
+        {
+            Set<Inter> toExamine = null;
+
+            if (pending != null) {
+                toExamine = new LinkedHashSet<Inter>();
+
+                for (Inter inter : pending) {
+                    if (!inter.isDeleted()) {
+                        toExamine.add(inter);
+
+                        for (Relation rel : sig.edgesOf(inter)) {
+                            toExamine.add(sig.getOppositeInter(inter, rel));
+                        }
+                    }
+                }
+            }
+
+            pending = new LinkedHashSet<Inter>();
+
+            return toExamine;
+        }
     }
 }
@@ -833,6 +833,10 @@ public abstract class AbstractInter
     public void setBounds (Rectangle bounds)
     {
         this.bounds = bounds;
+
+        if (sig != null) {
+            sig.boundsChanged(this);
+        }
     }
 
     //--------------------//
@@ -860,6 +864,10 @@ public abstract class AbstractInter
     public void setGlyph (Glyph glyph)
     {
         this.glyph = glyph;
+
+        if (sig != null) {
+            sig.boundsChanged(this);
+        }
     }
 
     //----------//
@@ -869,6 +877,10 @@ public abstract class AbstractInter
     public void setGrade (double grade)
     {
         this.grade = grade;
+
+        if (sig != null) {
+            sig.gradeChanged(this);
+        }
     }
 
     //-------//
@@ -927,7 +939,12 @@ public abstract class AbstractInter
     @Override
     public void setStaff (Staff staff)
     {
+        final Staff oldStaff = this.staff;
         this.staff = staff;
+
+        if ((sig != null) && (staff != oldStaff)) {
+            sig.staffChanged(this, oldStaff);
+        }
     }
 
     //-------------//
@@ -302,8 +302,13 @@ public abstract class AbstractTimeInter
 
         logger.debug("{} assigned to {}", shape, this);
 
+        final Shape oldShape = this.shape;
         this.shape = shape;
         this.timeRational = timeRational;
+
+        if ((sig != null) && (shape != oldShape)) {
+            sig.shapeChanged(this, oldShape);
+        }
     }
 
     //-----------//
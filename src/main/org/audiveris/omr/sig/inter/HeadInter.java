@@ -474,6 +474,10 @@ public class HeadInter
 
         // Use glyph bounds as inter bounds
         bounds = glyph.getBounds();
+
+        if (sig != null) {
+            sig.boundsChanged(this);
+        }
     }
 
     //--------//
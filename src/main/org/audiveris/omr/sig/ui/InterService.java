@@ -21,15 +21,29 @@
 // </editor-fold>
 package org.audiveris.omr.sig.ui;
 
+import org.audiveris.omr.sheet.Sheet;
+import org.audiveris.omr.sheet.SystemInfo;
 import org.audiveris.omr.sig.inter.Inter;
 import org.audiveris.omr.ui.selection.EntityListEvent;
 import org.audiveris.omr.ui.selection.EntityService;
 import org.audiveris.omr.ui.selection.IdEvent;
 import org.audiveris.omr.ui.selection.SelectionService;
+import org.audiveris.omr.util.Entities;
 import org.audiveris.omr.util.EntityIndex;
 
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Class {@code InterService} is an EntityService for inters.
+ * <p>
+ * Location lookups are delegated to the spatial index of each system SIG rather than browsing
+ * all sheet inters.
  *
  * @author Hervé Bitteur
  */
@@ -43,16 +57,77 @@ public class InterService
         EntityListEvent.class, IdEvent.class
     };
 
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** Related sheet. */
+    private final Sheet sheet;
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Creates a new {@code InterService} object.
      *
      * @param index           underlying inter index (InterManager)
+     * @param sheet           related sheet
      * @param locationService related service for location info
      */
     public InterService (EntityIndex<Inter> index,
+                         Sheet sheet,
                          SelectionService locationService)
     {
         super(index, locationService, eventsAllowed);
+        this.sheet = sheet;
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //-----------------//
+    // lookupContained //
+    //-----------------//
+    @Override
+    protected Set<Inter> lookupContained (Rectangle rect)
+    {
+        final List<Inter> found = new ArrayList<Inter>();
+
+        for (SystemInfo system : sheet.getSystems()) {
+            found.addAll(system.getSig().containedInters(rect));
+        }
+
+        return sortedById(found);
+    }
+
+    //------------------//
+    // lookupContaining //
+    //------------------//
+    @Override
+    protected Set<Inter> lookupContaining (Point point)
+    {
+        final List<Inter> found = new ArrayList<Inter>();
+
+        final Rectangle pointRect = new Rectangle(point.x, point.y, 1, 1);
+
+        for (SystemInfo system : sheet.getSystems()) {
+            for (Inter inter : system.getSig().intersectedInters(pointRect)) {
+                if (inter.contains(point)) {
+                    found.add(inter);
+                }
+            }
+        }
+
+        return sortedById(found);
+    }
+
+    //------------//
+    // sortedById //
+    //------------//
+    /**
+     * Sort the inters found by ID, consistently with a browsing of the whole index.
+     */
+    private Set<Inter> sortedById (List<Inter> found)
+    {
+        if (found.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Collections.sort(found, Entities.byId);
+
+        return new LinkedHashSet<Inter>(found);
     }
 }
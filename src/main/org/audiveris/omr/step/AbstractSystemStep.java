@@ -23,21 +23,38 @@ package org.audiveris.omr.step;
 
 import org.audiveris.omr.Main;
 import org.audiveris.omr.OMR;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.log.LogUtil;
 import org.audiveris.omr.sheet.Sheet;
 import org.audiveris.omr.sheet.SystemInfo;
+import org.audiveris.omr.util.IdStripes;
 import org.audiveris.omr.util.OmrExecutors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Abstract class {@code AbstractSystemStep} is a basis for any step working on the
  * sheet systems, perhaps in parallel.
+ * <p>
+ * Systems are processed in parallel if global system parallelism is set (see
+ * {@link Main#processSystemsInParallel()}), or if the concrete step declares its system
+ * processing as isolated (see {@link #isSystemParallel()}) and parallel heavy steps are allowed.
+ * In parallel mode, each system task works only on its own system (and its own SIG), every
+ * cross-system result must be kept in a per-system entry of the step context and cumulated by
+ * {@link #doEpilog} in system order.
+ * <p>
+ * Sheet indexes of inters and glyphs share the sheet ID generator: in parallel mode, each system
+ * task draws its ids from its own {@link IdStripes stripe}, so that ids do not depend on the
+ * scheduling of system tasks.
  *
  * @param <C> context type
  *
@@ -48,6 +65,8 @@ public abstract class AbstractSystemStep<C>
 {
     //~ Static fields/initializers -----------------------------------------------------------------
 
+    private static final Constants constants = new Constants();
+
     private static final Logger logger = LoggerFactory.getLogger(AbstractSystemStep.class);
 
     //~ Constructors -------------------------------------------------------------------------------
@@ -99,16 +118,39 @@ public abstract class AbstractSystemStep<C>
     public void doit (Sheet sheet)
             throws StepException
     {
+        final boolean parallel = isParallel(sheet);
+
+        if (parallel) {
+            // Deferred dispatch of sections must not be triggered from within system tasks
+            sheet.getSystemManager().checkSectionsDispatched();
+        }
+
         // Preliminary actions
         final C context = doProlog(sheet);
 
         // Processing system per system
-        doitPerSystem(sheet, context);
+        doitPerSystem(sheet, context, parallel);
 
         // Final actions
         doEpilog(sheet, context);
     }
 
+    //------------------//
+    // isSystemParallel //
+    //------------------//
+    /**
+     * Report whether this step can process all systems of a sheet in parallel.
+     * <p>
+     * This is safe only when {@link #doSystem} modifies nothing but the provided system (its SIG
+     * notably), the thread-safe sheet indexes and its own per-system context entry.
+     *
+     * @return true if systems are isolated, false by default
+     */
+    public boolean isSystemParallel ()
+    {
+        return false;
+    }
+
     //-------------------//
     // clearSystemErrors //
     //-------------------//
@@ -165,17 +207,24 @@ public abstract class AbstractSystemStep<C>
     /**
      * Launch the system processing (perhaps in parallel, one task per system)
      *
-     * @param systems the systems to process
-     * @param sheet   the containing sheet
+     * @param sheet    the containing sheet
+     * @param context  the sheet context
+     * @param parallel true for parallel processing
      */
     private void doitPerSystem (final Sheet sheet,
-                                final C context)
+                                final C context,
+                                final boolean parallel)
     {
+        final List<SystemInfo> systems = sheet.getSystems();
+        final IdStripes stripes = parallel
+                ? new IdStripes(sheet.getPersistentIdGenerator(), systems.size()) : null;
+
         try {
-            final boolean parallel = Main.processSystemsInParallel();
-            final Collection<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+            final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
 
-            for (final SystemInfo system : sheet.getSystems()) {
+            for (int i = 0; i < systems.size(); i++) {
+                final SystemInfo system = systems.get(i);
+                final int stripe = i;
                 tasks.add(
                         new Callable<Void>()
                 {
@@ -188,6 +237,7 @@ public abstract class AbstractSystemStep<C>
                         try {
                             if (parallel) {
                                 LogUtil.start(sheet.getStub());
+                                stripes.bind(stripe);
                             }
 
                             logger.debug(
@@ -200,6 +250,7 @@ public abstract class AbstractSystemStep<C>
                             logger.warn(system.getLogPrefix() + ex, ex);
                         } finally {
                             if (parallel) {
+                                stripes.unbind();
                                 LogUtil.stopStub();
                             }
                         }
@@ -211,19 +262,78 @@ public abstract class AbstractSystemStep<C>
 
             // Process all systems
             if (parallel) {
-                // In parallel
-                OmrExecutors.getLowExecutor().invokeAll(tasks);
+                // In parallel, then check outcomes in system order
+                // (global system parallelism keeps using the low priority pool)
+                final ExecutorService executor = Main.processSystemsInParallel()
+                        ? OmrExecutors.getLowExecutor() : OmrExecutors.getHighExecutor();
+                final List<Future<Void>> futures = executor.invokeAll(tasks);
+
+                for (Future<Void> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException ex) {
+                        if (ex.getCause() instanceof ProcessingCancellationException) {
+                            throw (ProcessingCancellationException) ex.getCause();
+                        }
+
+                        logger.warn("{} system task failed {}", this, ex.toString(), ex);
+                    }
+                }
             } else {
                 // In sequence
                 for (Callable<Void> task : tasks) {
                     task.call();
                 }
             }
+        } catch (ProcessingCancellationException pce) {
+            throw pce;
         } catch (InterruptedException ex) {
             logger.warn("doitPerSystem got interrupted for {}", this);
             throw new ProcessingCancellationException(ex);
         } catch (Exception ex) {
             throw new RuntimeException(ex);
+        } finally {
+            if (stripes != null) {
+                stripes.close();
+            }
+        }
+    }
+
+    //------------//
+    // isParallel //
+    //------------//
+    /**
+     * Decide whether the systems of the provided sheet are to be processed in parallel.
+     *
+     * @param sheet the sheet to process
+     * @return true for parallel processing
+     */
+    protected boolean isParallel (Sheet sheet)
+    {
+        if (sheet.getSystems().size() < 2) {
+            return false;
+        }
+
+        if (Main.processSystemsInParallel()) {
+            return true;
         }
+
+        return constants.parallelIsolatedSystems.isSet()
+               && OmrExecutors.defaultParallelism.getTarget()
+               && isSystemParallel();
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Boolean parallelIsolatedSystems = new Constant.Boolean(
+                true,
+                "Should isolated systems be processed in parallel?");
     }
 }
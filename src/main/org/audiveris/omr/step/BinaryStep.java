@@ -43,6 +43,12 @@ import org.slf4j.LoggerFactory;
 /**
  * Class {@code BinaryStep} implements <b>BINARY</b> step, which binarizes the initial
  * sheet image, using proper filter, to come up with a black & white image.
+ * <p>
+ * By default, the binary image of the whole sheet is computed by the filter in parallel
+ * horizontal bands, then converted to the binary {@link RunTable}.
+ * As an opt-in (see streamBinarization constant), the filter output can instead be streamed
+ * directly into the binary {@link RunTable}, so that no binary image is ever allocated, but this
+ * mode runs sequentially.
  *
  * @author Hervé Bitteur
  */
@@ -98,14 +104,21 @@ public class BinaryStep
         sheet.getStub().getFilterParam().setActual(desc);
 
         PixelFilter filter = desc.getFilter(initial);
-        watch.start("Binarize source");
+        RunTableFactory vertFactory = new RunTableFactory(Orientation.VERTICAL);
+        RunTable wholeVertTable;
 
-        ByteProcessor binary = filter.filteredImage();
+        if (constants.streamBinarization.isSet()) {
+            watch.start("Binarize source into RunTable");
+            wholeVertTable = vertFactory.createTable(filter);
+        } else {
+            watch.start("Binarize source");
 
-        watch.start("Create binary RunTable");
+            ByteProcessor binary = filter.filteredImage();
+
+            watch.start("Create binary RunTable");
+            wholeVertTable = vertFactory.createTable(binary);
+        }
 
-        RunTableFactory vertFactory = new RunTableFactory(Orientation.VERTICAL);
-        RunTable wholeVertTable = vertFactory.createTable(binary);
         picture.setTable(Picture.TableKey.BINARY, wholeVertTable, true);
 
         // To discard image
@@ -159,5 +172,9 @@ public class BinaryStep
         private final Constant.Boolean printWatch = new Constant.Boolean(
                 false,
                 "Should we print out the stop watch?");
+
+        private final Constant.Boolean streamBinarization = new Constant.Boolean(
+                false,
+                "Should we build binary runs directly, without any binary image? (sequential)");
     }
 }
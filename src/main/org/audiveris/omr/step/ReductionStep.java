@@ -53,4 +53,13 @@ public class ReductionStep
     {
         new SigReducer(system, true).reduceFoundations();
     }
+
+    //------------------//
+    // isSystemParallel //
+    //------------------//
+    @Override
+    public boolean isSystemParallel ()
+    {
+        return true;
+    }
 }
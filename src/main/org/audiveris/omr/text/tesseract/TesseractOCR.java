@@ -21,7 +21,6 @@
 // </editor-fold>
 package org.audiveris.omr.text.tesseract;
 
-import org.audiveris.omr.WellKnowns;
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.sheet.Scale;
@@ -109,14 +108,26 @@ public class TesseractOCR
             TreeSet<String> set = new TreeSet<String>();
 
             try {
-                TessBaseAPI api = new TessBaseAPI();
+                TessBaseAPI api = TesseractPool.acquire("eng");
 
-                if (api.Init(WellKnowns.OCR_FOLDER.toString(), "eng") == 0) {
-                    StringGenericVector languages = new StringGenericVector();
-                    api.GetAvailableLanguagesAsVector(languages);
+                if (api != null) {
+                    boolean ok = false;
 
-                    while (!languages.empty()) {
-                        set.add(languages.pop_back().string().getString());
+                    try {
+                        StringGenericVector languages = new StringGenericVector();
+                        api.GetAvailableLanguagesAsVector(languages);
+
+                        while (!languages.empty()) {
+                            set.add(languages.pop_back().string().getString());
+                        }
+
+                        ok = true;
+                    } finally {
+                        if (ok) {
+                            TesseractPool.release("eng", api);
+                        } else {
+                            TesseractPool.discard(api);
+                        }
                     }
                 } else {
                     logger.warn("Error in loading Tesseract languages");
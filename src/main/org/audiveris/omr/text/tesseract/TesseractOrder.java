@@ -94,7 +94,7 @@ public class TesseractOrder
     /** Desired handling of layout. */
     private final int segMode;
 
-    /** The dedicated API. */
+    /** The API, borrowed from pool for this order. */
     private TessBaseAPI api;
 
     /** The image being processed. */
@@ -150,21 +150,20 @@ public class TesseractOrder
     // process //
     //---------//
     /**
-     * Actually allocate a Tesseract API and recognize the image.
+     * Actually acquire a Tesseract API (initialized with proper language) and recognize
+     * the image.
      *
      * @return the sequence of lines found
      */
     public List<TextLine> process ()
     {
-        try {
-            //api = new TessBaseAPI(WellKnowns.OCR_FOLDER.toString());
-            api = new TessBaseAPI();
+        boolean ok = false;
 
-            // Init API with proper language
-            if (api.Init(WellKnowns.OCR_FOLDER.toString(), lang) != 0) {
-                logger.warn("Could not initialize Tesseract with lang {}", lang);
+        try {
+            api = TesseractPool.acquire(lang);
 
-                return finish(null);
+            if (api == null) {
+                return null;
             }
 
             // Set API image
@@ -178,11 +177,14 @@ public class TesseractOrder
             if (api.Recognize(null) != 0) {
                 logger.warn("Error in Tesseract recognize");
 
-                return finish(null);
+                return null;
             }
 
             // Extract lines
-            return finish(getLines());
+            final List<TextLine> lines = getLines();
+            ok = true;
+
+            return lines;
         } catch (UnsatisfiedLinkError ex) {
             if (!userWarned) {
                 logger.warn("Could not link Tesseract engine", ex);
@@ -191,6 +193,8 @@ public class TesseractOrder
             }
 
             throw new RuntimeException(ex);
+        } finally {
+            finish(ok);
         }
     }
 
@@ -232,22 +236,27 @@ public class TesseractOrder
     // finish //
     //--------//
     /**
-     * Convenient way to cleanup Tesseract resources while ending the current processing
+     * Convenient way to cleanup Tesseract resources while ending the current processing.
+     * After a successful processing, the API is given back to the pool for use by a following
+     * order, otherwise it is discarded.
      *
-     * @param lines the lines found, if any
-     * @return the lines found, if nay
+     * @param ok true if processing succeeded
      */
-    private List<TextLine> finish (List<TextLine> lines)
+    private void finish (boolean ok)
     {
         if (image != null) {
             pixDestroy(image);
         }
 
         if (api != null) {
-            api.End();
-        }
+            if (ok) {
+                TesseractPool.release(lang, api);
+            } else {
+                TesseractPool.discard(api);
+            }
 
-        return lines;
+            api = null;
+        }
     }
 
     //---------//
@@ -0,0 +1,207 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                   T e s s e r a c t P o o l                                    //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.text.tesseract;
+
+import org.audiveris.omr.WellKnowns;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.bytedeco.javacpp.tesseract.TessBaseAPI;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Class {@code TesseractPool} keeps initialized Tesseract engines, per language
+ * specification, so that they can be reused from one order to the next.
+ * <p>
+ * An engine initialization loads the language data, which is much more costly than most
+ * recognitions on small text images.
+ * Since an engine cannot be shared by concurrent threads, each order acquires an engine for its
+ * own exclusive use and releases it when done.
+ * Hence the number of engines for a given language never exceeds the peak number of concurrent
+ * OCR orders for this language.
+ * <p>
+ * Idle engines are ended when {@link OmrExecutors#shutdown()} is called.
+ *
+ * @author Hervé Bitteur
+ */
+class TesseractPool
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(TesseractPool.class);
+
+    /** Idle engines, per language specification. */
+    private static final ConcurrentMap<String, Queue<TessBaseAPI>> idles =
+            new ConcurrentHashMap<String, Queue<TessBaseAPI>>();
+
+    static {
+        OmrExecutors.addShutdownTask(
+                new Runnable()
+        {
+            @Override
+            public void run ()
+            {
+                close();
+            }
+        });
+    }
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Not meant to be instantiated.
+     */
+    private TesseractPool ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //---------//
+    // acquire //
+    //---------//
+    /**
+     * Provide an engine, initialized for the provided language specification.
+     * An idle engine is reused if any, otherwise a new engine is allocated and initialized.
+     *
+     * @param lang the language specification
+     * @return the engine for exclusive use, or null if initialization failed
+     * @throws UnsatisfiedLinkError when bridge to C++ could not be loaded
+     */
+    public static TessBaseAPI acquire (String lang)
+    {
+        if (constants.reuseEngines.isSet()) {
+            final TessBaseAPI api = getIdles(lang).poll();
+
+            if (api != null) {
+                return api;
+            }
+        }
+
+        final TessBaseAPI api = new TessBaseAPI();
+
+        if (api.Init(WellKnowns.OCR_FOLDER.toString(), lang) != 0) {
+            logger.warn("Could not initialize Tesseract with lang {}", lang);
+            api.End();
+
+            return null;
+        }
+
+        logger.debug("New Tesseract engine for lang {}", lang);
+
+        return api;
+    }
+
+    //-------//
+    // close //
+    //-------//
+    /**
+     * End all idle engines.
+     */
+    public static void close ()
+    {
+        int count = 0;
+
+        for (Map.Entry<String, Queue<TessBaseAPI>> entry : idles.entrySet()) {
+            TessBaseAPI api;
+
+            while ((api = entry.getValue().poll()) != null) {
+                api.End();
+                count++;
+            }
+        }
+
+        logger.debug("{} Tesseract engine(s) ended", count);
+    }
+
+    //---------//
+    // discard //
+    //---------//
+    /**
+     * End an engine which is not to be reused, for example after a failed recognition.
+     *
+     * @param api the engine to end
+     */
+    public static void discard (TessBaseAPI api)
+    {
+        api.End();
+    }
+
+    //---------//
+    // release //
+    //---------//
+    /**
+     * Give back an engine once its order is completed.
+     * Recognition results and image are cleared, but language data is kept for the next order.
+     *
+     * @param lang the language specification the engine was acquired for
+     * @param api  the engine to release
+     */
+    public static void release (String lang,
+                                TessBaseAPI api)
+    {
+        if (constants.reuseEngines.isSet()) {
+            api.Clear();
+            getIdles(lang).add(api);
+        } else {
+            api.End();
+        }
+    }
+
+    //----------//
+    // getIdles //
+    //----------//
+    private static Queue<TessBaseAPI> getIdles (String lang)
+    {
+        Queue<TessBaseAPI> queue = idles.get(lang);
+
+        if (queue == null) {
+            idles.putIfAbsent(lang, new ConcurrentLinkedQueue<TessBaseAPI>());
+            queue = idles.get(lang);
+        }
+
+        return queue;
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // Constants //
+    //-----------//
+    private static final class Constants
+            extends ConstantSet
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Constant.Boolean reuseEngines = new Constant.Boolean(
+                true,
+                "Should we reuse initialized Tesseract engines?");
+    }
+}
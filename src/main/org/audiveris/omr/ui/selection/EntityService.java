@@ -31,6 +31,7 @@ import org.bushe.swing.event.EventSubscriber;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -217,6 +218,36 @@ public class EntityService<E extends Entity>
         }
     }
 
+    //-----------------//
+    // lookupContained //
+    //-----------------//
+    /**
+     * Look up the index for all entities contained in the provided rectangle.
+     * This default implementation browses the whole index.
+     *
+     * @param rect the containing rectangle
+     * @return the contained entities, perhaps empty
+     */
+    protected Set<E> lookupContained (Rectangle rect)
+    {
+        return Entities.containedEntities(index.iterator(), rect);
+    }
+
+    //------------------//
+    // lookupContaining //
+    //------------------//
+    /**
+     * Look up the index for all entities that contain the provided point.
+     * This default implementation browses the whole index.
+     *
+     * @param point the provided point
+     * @return the containing entities, perhaps empty
+     */
+    protected Set<E> lookupContaining (Point point)
+    {
+        return Entities.containingEntities(index.iterator(), point);
+    }
+
     //-------------//
     // handleEvent //
     //-------------//
@@ -243,10 +274,10 @@ public class EntityService<E extends Entity>
 
         if ((rect.width > 0) && (rect.height > 0)) {
             // Non-degenerated rectangle: look for contained entities
-            found = Entities.containedEntities(index.iterator(), rect);
+            found = lookupContained(rect);
         } else {
             // Just a point: look for containing entities
-            found = Entities.containingEntities(index.iterator(), rect.getLocation());
+            found = lookupContaining(rect.getLocation());
         }
 
         // Publish EntityList
@@ -343,7 +343,7 @@ public class BasicIndex<E extends Entity>
     //------------//
     protected int generateId ()
     {
-        return lastId.incrementAndGet();
+        return IdStripes.nextId(lastId);
     }
 
     //-----------//
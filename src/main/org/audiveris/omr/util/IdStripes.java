@@ -0,0 +1,190 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                       I d S t r i p e s                                        //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Class {@code IdStripes} makes the ids drawn from an ID generator by concurrent producers
+ * (typically the systems of a sheet processed in parallel) independent of thread scheduling.
+ * <p>
+ * While stripes are open on a generator, each producer draws ids only from its own stripe: with
+ * n stripes, stripe s provides ids base+1+s, base+1+s+(n+1), base+1+s+2*(n+1), etc., where base
+ * is the generator value when stripes were opened.
+ * Hence, as long as each producer draws its ids in a reproducible order, the ids it gets do not
+ * depend on the other producers.
+ * An id requested meanwhile by a thread not bound to any stripe is drawn from an additional
+ * stripe.
+ * <p>
+ * When stripes are closed, the generator is set to the highest id drawn, leaving the unused ids
+ * as mere gaps.
+ *
+ * @author Hervé Bitteur
+ */
+public class IdStripes
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    /** Stripes currently open, per generator. */
+    private static final ConcurrentMap<AtomicInteger, IdStripes> openStripes
+            = new ConcurrentHashMap<AtomicInteger, IdStripes>();
+
+    /** Stripe bound to current thread, if any. */
+    private static final ThreadLocal<Binding> binding = new ThreadLocal<Binding>();
+
+    //~ Instance fields ----------------------------------------------------------------------------
+    //
+    /** The underlying generator. */
+    private final AtomicInteger generator;
+
+    /** Generator value when stripes were opened. */
+    private final int base;
+
+    /** Distance between two consecutive ids of the same stripe. */
+    private final int stride;
+
+    /** Number of ids drawn so far, per stripe. */
+    private final AtomicIntegerArray draws;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Open stripes on the provided generator.
+     *
+     * @param generator the ID generator
+     * @param count     the number of producers
+     * @throws IllegalStateException if stripes are already open on this generator
+     */
+    public IdStripes (AtomicInteger generator,
+                      int count)
+    {
+        this.generator = generator;
+        stride = count + 1;
+        draws = new AtomicIntegerArray(stride);
+        base = generator.get();
+
+        if (openStripes.putIfAbsent(generator, this) != null) {
+            throw new IllegalStateException("Id stripes already open on generator");
+        }
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //------//
+    // bind //
+    //------//
+    /**
+     * Bind current thread to the provided stripe.
+     *
+     * @param stripe the stripe index, counted from 0
+     */
+    public void bind (int stripe)
+    {
+        if ((stripe < 0) || (stripe >= (stride - 1))) {
+            throw new IllegalArgumentException("Illegal stripe " + stripe);
+        }
+
+        binding.set(new Binding(this, stripe));
+    }
+
+    //-------//
+    // close //
+    //-------//
+    /**
+     * Close the stripes, and set the generator to the highest id drawn.
+     */
+    public void close ()
+    {
+        openStripes.remove(generator, this);
+
+        int highest = base;
+
+        for (int stripe = 0; stripe < stride; stripe++) {
+            final int count = draws.get(stripe);
+
+            if (count > 0) {
+                highest = Math.max(highest, base + 1 + stripe + ((count - 1) * stride));
+            }
+        }
+
+        generator.set(highest);
+    }
+
+    //--------//
+    // nextId //
+    //--------//
+    /**
+     * Draw the next id from provided generator, using the stripe of current thread if stripes
+     * are open on this generator.
+     *
+     * @param generator the ID generator
+     * @return the id drawn
+     */
+    public static int nextId (AtomicInteger generator)
+    {
+        final IdStripes stripes = openStripes.get(generator);
+
+        if (stripes == null) {
+            return generator.incrementAndGet();
+        }
+
+        final Binding bound = binding.get();
+        final int stripe = ((bound != null) && (bound.stripes == stripes)) ? bound.stripe
+                : (stripes.stride - 1);
+        final int rank = stripes.draws.getAndIncrement(stripe);
+
+        return stripes.base + 1 + stripe + (rank * stripes.stride);
+    }
+
+    //--------//
+    // unbind //
+    //--------//
+    /**
+     * Unbind current thread from any stripe.
+     */
+    public void unbind ()
+    {
+        binding.remove();
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //---------//
+    // Binding //
+    //---------//
+    private static class Binding
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        final IdStripes stripes;
+
+        final int stripe;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        Binding (IdStripes stripes,
+                 int stripe)
+        {
+            this.stripes = stripes;
+            this.stripe = stripe;
+        }
+    }
+}
@@ -21,6 +21,9 @@
 // </editor-fold>
 package org.audiveris.omr.util;
 
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -107,6 +110,33 @@ public abstract class Jaxb
         m.marshal(object, writer);
     }
 
+    //---------------//
+    // marshalBinary //
+    //---------------//
+    /**
+     * Marshal the provided object to the output stream, using the binary encoding of
+     * XML known as Fast Infoset.
+     * <p>
+     * This is much more compact than XML text and faster to parse back, while all JAXB features
+     * (adapters, IDs and references, unmarshal callbacks) are preserved.
+     *
+     * @param object      the object to marshal
+     * @param os          the output stream, which is not closed by this method
+     * @param jaxbContext proper context
+     * @throws JAXBException      if marshalling goes wrong
+     * @throws XMLStreamException if writing goes wrong
+     */
+    public static void marshalBinary (Object object,
+                                      OutputStream os,
+                                      JAXBContext jaxbContext)
+            throws JAXBException, XMLStreamException
+    {
+        Marshaller m = jaxbContext.createMarshaller();
+        StAXDocumentSerializer writer = new StAXDocumentSerializer(os);
+        m.marshal(object, (XMLStreamWriter) writer);
+        writer.flush();
+    }
+
     //-----------//
     // unmarshal //
     //-----------//
@@ -128,6 +158,27 @@ public abstract class Jaxb
         }
     }
 
+    //-----------------//
+    // unmarshalBinary //
+    //-----------------//
+    /**
+     * Unmarshal an object from the input stream, as written by
+     * {@link #marshalBinary(Object, OutputStream, JAXBContext)}.
+     *
+     * @param is          the input stream, which is not closed by this method
+     * @param jaxbContext proper context
+     * @return the unmarshalled object
+     * @throws JAXBException if unmarshalling goes wrong
+     */
+    public static Object unmarshalBinary (InputStream is,
+                                          JAXBContext jaxbContext)
+            throws JAXBException
+    {
+        Unmarshaller um = jaxbContext.createUnmarshaller();
+
+        return um.unmarshal(new StAXDocumentParser(is));
+    }
+
     //~ Inner Classes ------------------------------------------------------------------------------
     //----------------------//
     // AtomicIntegerAdapter //
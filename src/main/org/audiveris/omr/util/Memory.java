@@ -21,6 +21,11 @@
 // </editor-fold>
 package org.audiveris.omr.util;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+
 /**
  * Class {@code Memory} is a collection of static methods to ease the interaction with
  * the memory characteristics.
@@ -82,6 +87,19 @@ public abstract class Memory
         return String.format("%,d", occupied());
     }
 
+    //-----//
+    // max //
+    //-----//
+    /**
+     * Get the maximum amount of memory the JVM will attempt to use.
+     *
+     * @return the maximum heap size
+     */
+    public static long max ()
+    {
+        return rt.maxMemory();
+    }
+
     //----------//
     // occupied //
     //----------//
@@ -128,6 +146,36 @@ public abstract class Memory
         System.out.println("Total Memory=" + total());
     }
 
+    //----------//
+    // retained //
+    //----------//
+    /**
+     * Get the size of heap memory still in use right after the latest garbage collection,
+     * which (unlike {@link #occupied()}) does not count garbage not yet collected.
+     * <p>
+     * If this information is not available, occupied memory is reported instead.
+     *
+     * @return an estimate of live heap memory
+     */
+    public static long retained ()
+    {
+        long retained = 0;
+        boolean available = false;
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                final MemoryUsage usage = pool.getCollectionUsage();
+
+                if (usage != null) {
+                    retained += usage.getUsed();
+                    available = true;
+                }
+            }
+        }
+
+        return available ? retained : occupied();
+    }
+
     //-------//
     // total //
     //-------//
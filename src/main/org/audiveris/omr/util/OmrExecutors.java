@@ -30,6 +30,8 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -82,6 +84,9 @@ public class OmrExecutors
     /** To prevent parallel creation of pools when closing. */
     private static volatile boolean creationAllowed = true;
 
+    /** Tasks to run once all pools are closed. */
+    private static final List<Runnable> shutdownTasks = new CopyOnWriteArrayList<Runnable>();
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Not meant to be instantiated.
@@ -91,6 +96,20 @@ public class OmrExecutors
     }
 
     //~ Methods ------------------------------------------------------------------------------------
+    //-----------------//
+    // addShutdownTask //
+    //-----------------//
+    /**
+     * Register a task to be run by {@link #shutdown()}, once all pools are closed.
+     * This is meant for the release of resources used by pool threads, such as native engines.
+     *
+     * @param task the task to run at shutdown
+     */
+    public static void addShutdownTask (Runnable task)
+    {
+        shutdownTasks.add(task);
+    }
+
     //----------------------//
     // getCachedLowExecutor //
     //----------------------//
@@ -143,6 +162,24 @@ public class OmrExecutors
         return cpuCount;
     }
 
+    //--------------//
+    // isHighThread //
+    //--------------//
+    /**
+     * Report whether the current thread belongs to the pool of high priority threads.
+     * <p>
+     * Code run by a task of this pool must not wait on further tasks submitted to the same pool,
+     * since all pool threads could then get blocked.
+     *
+     * @return true if current thread is a high pool thread
+     */
+    public static boolean isHighThread ()
+    {
+        final Thread thread = Thread.currentThread();
+
+        return (thread instanceof PoolThread) && (((PoolThread) thread).pool == highs);
+    }
+
     //---------//
     // restart //
     //---------//
@@ -181,6 +218,14 @@ public class OmrExecutors
             }
         }
 
+        for (Runnable task : shutdownTasks) {
+            try {
+                task.run();
+            } catch (Exception ex) {
+                logger.warn("Error in shutdown task {}", ex.toString(), ex);
+            }
+        }
+
         logger.debug("OmrExecutors closed");
 
         return result;
@@ -322,7 +367,7 @@ public class OmrExecutors
         @Override
         protected ExecutorService createPool ()
         {
-            return Executors.newCachedThreadPool(new Factory(getName(), Thread.MIN_PRIORITY, 0));
+            return Executors.newCachedThreadPool(new Factory(this, Thread.MIN_PRIORITY, 0));
         }
     }
 
@@ -364,6 +409,8 @@ public class OmrExecutors
 
         private final ThreadGroup group;
 
+        private final Pool pool;
+
         private final String threadPrefix;
 
         private final int threadPriority;
@@ -373,13 +420,14 @@ public class OmrExecutors
         private final AtomicInteger threadNumber = new AtomicInteger(0);
 
         //~ Constructors ---------------------------------------------------------------------------
-        Factory (String threadPrefix,
+        Factory (Pool pool,
                  int threadPriority,
                  long stackSize)
         {
             SecurityManager s = System.getSecurityManager();
             group = (s != null) ? s.getThreadGroup() : Thread.currentThread().getThreadGroup();
-            this.threadPrefix = threadPrefix;
+            this.pool = pool;
+            this.threadPrefix = pool.getName();
             this.threadPriority = threadPriority;
             this.stackSize = stackSize;
         }
@@ -388,7 +436,7 @@ public class OmrExecutors
         @Override
         public Thread newThread (Runnable r)
         {
-            Thread t = new Thread(group, r, getOneThreadName(), stackSize);
+            Thread t = new PoolThread(pool, group, r, getOneThreadName(), stackSize);
 
             if (t.isDaemon()) {
                 t.setDaemon(false);
@@ -427,7 +475,7 @@ public class OmrExecutors
         {
             return Executors.newFixedThreadPool(
                     defaultParallelism.getTarget() ? (cpuCount + 1) : 1,
-                    new Factory(getName(), Thread.NORM_PRIORITY, 0));
+                    new Factory(this, Thread.NORM_PRIORITY, 0));
         }
     }
 
@@ -451,7 +499,30 @@ public class OmrExecutors
         {
             return Executors.newFixedThreadPool(
                     defaultParallelism.getTarget() ? (cpuCount + 1) : 1,
-                    new Factory(getName(), Thread.MIN_PRIORITY, 0));
+                    new Factory(this, Thread.MIN_PRIORITY, 0));
+        }
+    }
+
+    //------------//
+    // PoolThread //
+    //------------//
+    /** Thread which remembers its containing pool. */
+    private static class PoolThread
+            extends Thread
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        private final Pool pool;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        PoolThread (Pool pool,
+                    ThreadGroup group,
+                    Runnable target,
+                    String name,
+                    long stackSize)
+        {
+            super(group, target, name, stackSize);
+            this.pool = pool;
         }
     }
 }
@@ -5,19 +5,28 @@
  */
 package org.audiveris.omr.glyph;
 
+import ij.process.ByteProcessor;
+
 import org.audiveris.omr.glyph.GlyphFactory;
+import org.audiveris.omr.run.Orientation;
 import static org.audiveris.omr.run.Orientation.HORIZONTAL;
 import org.audiveris.omr.run.Run;
 import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
 
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import static org.junit.Assert.*;
 
 import java.awt.Dimension;
 import java.awt.Point;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
 
 /**
  *
@@ -68,7 +77,118 @@ public class GlyphFactoryTest
 
         RunTable runTable = createHorizontalInstance();
         Point offset = null;
-        GlyphFactory.buildGlyphs(runTable, offset);
+        List<Glyph> glyphs = GlyphFactory.buildGlyphs(runTable, offset);
+        assertEquals(3, glyphs.size());
+        assertEquals(2, glyphs.get(0).getWeight()); // Label 1
+        assertEquals(1, glyphs.get(2).getWeight()); // Label 5
+    }
+
+    /**
+     * Check glyphs built from a random table against a pixel-based labeling.
+     */
+    @Test
+    public void testRandomGlyphs ()
+    {
+        System.out.println("randomGlyphs");
+
+        for (Orientation orientation : Orientation.values()) {
+            ByteProcessor buffer = createRandomBuffer(120, 90, 1);
+            RunTable runTable = new RunTableFactory(orientation).createTable(buffer);
+            int[][] labels = new int[buffer.getWidth()][buffer.getHeight()];
+            int[] sizes = labelPixels(buffer, labels);
+            List<Glyph> glyphs = GlyphFactory.buildGlyphs(runTable, new Point(10, 20));
+            assertEquals(sizes.length - 1, glyphs.size());
+
+            for (Glyph glyph : glyphs) {
+                RunTable table = glyph.getRunTable();
+                int label = 0;
+
+                for (int y = 0; y < glyph.getHeight(); y++) {
+                    for (int x = 0; x < glyph.getWidth(); x++) {
+                        if (table.get(x, y) == 0) {
+                            int l = labels[glyph.getLeft() - 10 + x][glyph.getTop() - 20 + y];
+
+                            if (label == 0) {
+                                label = l;
+                            }
+
+                            assertEquals(label, l);
+                        }
+                    }
+                }
+
+                assertEquals(sizes[label], glyph.getWeight());
+            }
+        }
+    }
+
+    //--------------------//
+    // createRandomBuffer //
+    //--------------------//
+    private ByteProcessor createRandomBuffer (int width,
+                                              int height,
+                                              long seed)
+    {
+        Random random = new Random(seed);
+        ByteProcessor buffer = new ByteProcessor(width, height);
+
+        for (int i = 0; i < buffer.getPixelCount(); i++) {
+            buffer.set(i, (random.nextInt(100) < 45) ? 0 : 255);
+        }
+
+        return buffer;
+    }
+
+    //-------------//
+    // labelPixels //
+    //-------------//
+    /**
+     * Label foreground pixels by 4-connectivity flood fill.
+     *
+     * @return size of each label, label 0 being unused
+     */
+    private int[] labelPixels (ByteProcessor buffer,
+                               int[][] labels)
+    {
+        int width = buffer.getWidth();
+        int height = buffer.getHeight();
+        int[] sizes = new int[(width * height) + 1];
+        int count = 0;
+        Deque<Point> stack = new ArrayDeque<Point>();
+
+        for (int x0 = 0; x0 < width; x0++) {
+            for (int y0 = 0; y0 < height; y0++) {
+                if ((buffer.get(x0, y0) != 0) || (labels[x0][y0] != 0)) {
+                    continue;
+                }
+
+                count++;
+                labels[x0][y0] = count;
+                stack.push(new Point(x0, y0));
+
+                while (!stack.isEmpty()) {
+                    Point p = stack.pop();
+                    sizes[count]++;
+
+                    int[][] neighbors = {
+                        {p.x - 1, p.y}, {p.x + 1, p.y}, {p.x, p.y - 1}, {p.x, p.y + 1}
+                    };
+
+                    for (int[] n : neighbors) {
+                        if ((n[0] >= 0) && (n[0] < width) && (n[1] >= 0) && (n[1] < height)
+                            && (buffer.get(n[0], n[1]) == 0) && (labels[n[0]][n[1]] == 0)) {
+                            labels[n[0]][n[1]] = count;
+                            stack.push(new Point(n[0], n[1]));
+                        }
+                    }
+                }
+            }
+        }
+
+        int[] result = new int[count + 1];
+        System.arraycopy(sizes, 0, result, 0, count + 1);
+
+        return result;
     }
 
     //--------------------------//
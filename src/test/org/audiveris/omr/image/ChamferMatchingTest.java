@@ -32,6 +32,7 @@ import org.audiveris.omr.image.Template;
 import org.audiveris.omr.image.TemplateFactory;
 import org.audiveris.omr.math.TableUtil;
 
+import static org.junit.Assert.*;
 import org.junit.Test;
 
 import java.util.Collections;
@@ -124,6 +125,64 @@ public class ChamferMatchingTest
         printBest(locs);
     }
 
+    /**
+     * Test of evaluate method with a maximum distance, of class Template.
+     */
+    @Test
+    public void testEvaluateMaxDistance ()
+    {
+        System.out.println("evaluateMaxDistance");
+
+        Template template = TemplateFactory.getInstance().getCatalog(14)
+                .getTemplate(Shape.NOTEHEAD_BLACK);
+        ByteProcessor image = createImage(imageRows);
+        DistanceTable distances = new ChamferDistance.Short().computeToFore(image);
+        final double[] maxDistances = new double[]{0, 0.5, 1.0, 1.75, 3.0, 10};
+
+        // Locations include templates partly or fully out of image
+        for (int x = -template.getWidth(); x <= image.getWidth(); x++) {
+            for (int y = -template.getHeight(); y <= image.getHeight(); y++) {
+                final double full = template.evaluate(x, y, null, distances);
+
+                for (double maxDistance : maxDistances) {
+                    final double dist = template.evaluate(x, y, null, distances, maxDistance);
+
+                    if (Double.isNaN(full) || (full <= maxDistance)) {
+                        assertEquals(full, dist, 0);
+                    } else {
+                        assertTrue(dist > maxDistance);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of matchAll method with a maximum distance, of class DistanceMatching.
+     */
+    @Test
+    public void testMatchAllMaxDistance ()
+    {
+        System.out.println("matchAllMaxDistance");
+
+        Template template = TemplateFactory.getInstance().getCatalog(14)
+                .getTemplate(Shape.NOTEHEAD_BLACK);
+        ByteProcessor image = createTiledImage(imageRows, 2, 2);
+        DistanceTable distances = new ChamferDistance.Short().computeToFore(image);
+        DistanceMatching instance = new DistanceMatching(distances);
+        List<PixelDistance> all = instance.matchAll(template, Double.MAX_VALUE);
+        List<PixelDistance> good = instance.matchAll(template, 1.75);
+        int expected = 0;
+
+        for (PixelDistance loc : all) {
+            if (loc.d <= 1.75) {
+                expected++;
+            }
+        }
+
+        assertEquals(expected, good.size());
+    }
+
     private ByteProcessor createImage (String[] rows)
     {
         final int width = rows[0].length();
@@ -140,6 +199,24 @@ public class ChamferMatchingTest
         return img;
     }
 
+    private ByteProcessor createTiledImage (String[] rows,
+                                            int xTiles,
+                                            int yTiles)
+    {
+        final ByteProcessor tile = createImage(rows);
+        final int width = tile.getWidth();
+        final int height = tile.getHeight();
+        final ByteProcessor img = new ByteProcessor(width * xTiles, height * yTiles);
+
+        for (int iy = 0; iy < yTiles; iy++) {
+            for (int ix = 0; ix < xTiles; ix++) {
+                img.insert(tile, ix * width, iy * height);
+            }
+        }
+
+        return img;
+    }
+
     private void printBest (List<PixelDistance> locs)
     {
         System.out.println();
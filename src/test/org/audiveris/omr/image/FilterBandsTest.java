@@ -0,0 +1,128 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                 F i l t e r B a n d s T e s t                                  //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Class {@code FilterBandsTest} checks that band-wise binarization gives the same
+ * result as whole image binarization.
+ *
+ * @author Hervé Bitteur
+ */
+public class FilterBandsTest
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final int WIDTH = 120;
+
+    private static final int HEIGHT = 301;
+
+    /** Bands, including some thinner than the adaptive window. */
+    private static final int[] LIMITS = new int[]{0, 7, 90, 100, 230, HEIGHT};
+
+    //~ Methods ------------------------------------------------------------------------------------
+    @Test
+    public void testExtractRows ()
+    {
+        ByteProcessor source = createSource();
+        ByteProcessor rows = FilterBands.extractRows(source, 40, 60);
+        assertEquals(WIDTH, rows.getWidth());
+        assertEquals(20, rows.getHeight());
+
+        for (int y = 0; y < 20; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(source.get(x, 40 + y), rows.get(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testRandomFilterBands ()
+    {
+        ByteProcessor source = createSource();
+        AdaptiveFilter whole = new RandomFilter(source, 0.7, 0.9);
+        AdaptiveFilter banded = new RandomFilter(source, 0.7, 0.9);
+        assertArrayEquals(filterWhole(whole), filterBands(banded));
+    }
+
+    @Test
+    public void testVerticalFilterBands ()
+    {
+        ByteProcessor source = createSource();
+        AdaptiveFilter whole = new VerticalFilter(source, 0.7, 0.9);
+        AdaptiveFilter banded = new VerticalFilter(source, 0.7, 0.9);
+        byte[] expected = filterWhole(whole);
+        assertArrayEquals(expected, filterBands(banded));
+
+        // Bands processed out of order
+        ByteProcessor target = new ByteProcessor(WIDTH, HEIGHT);
+
+        for (int i = LIMITS.length - 2; i >= 0; i--) {
+            new VerticalFilter(source, 0.7, 0.9).filterBand(target, LIMITS[i], LIMITS[i + 1]);
+        }
+
+        assertArrayEquals(expected, (byte[]) target.getPixels());
+    }
+
+    private ByteProcessor createSource ()
+    {
+        // Gray background with noise and a few dark strokes
+        Random random = new Random(17);
+        byte[] pixels = new byte[WIDTH * HEIGHT];
+
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (byte) (150 + random.nextInt(100));
+        }
+
+        for (int y = 10; y < HEIGHT; y += 23) {
+            Arrays.fill(pixels, y * WIDTH, (y * WIDTH) + WIDTH - 5, (byte) random.nextInt(60));
+        }
+
+        return new ByteProcessor(WIDTH, HEIGHT, pixels, null);
+    }
+
+    private byte[] filterBands (AdaptiveFilter filter)
+    {
+        ByteProcessor target = new ByteProcessor(WIDTH, HEIGHT);
+
+        for (int i = 0; i < (LIMITS.length - 1); i++) {
+            filter.filterBand(target, LIMITS[i], LIMITS[i + 1]);
+        }
+
+        return (byte[]) target.getPixels();
+    }
+
+    private byte[] filterWhole (AdaptiveFilter filter)
+    {
+        ByteProcessor target = new ByteProcessor(WIDTH, HEIGHT);
+        filter.filterBand(target, 0, HEIGHT);
+
+        return (byte[]) target.getPixels();
+    }
+}
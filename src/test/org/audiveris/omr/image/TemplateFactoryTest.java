@@ -0,0 +1,119 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                             T e m p l a t e F a c t o r y T e s t                              //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import org.audiveris.omr.glyph.Shape;
+import org.audiveris.omr.glyph.ShapeSet;
+import org.audiveris.omr.image.Anchored.Anchor;
+import org.audiveris.omr.image.TemplateFactory.Catalog;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Class {@code TemplateFactoryTest} checks the catalog store format.
+ *
+ * @author Hervé Bitteur
+ */
+public class TemplateFactoryTest
+{
+    //~ Constructors -------------------------------------------------------------------------------
+    public TemplateFactoryTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Test that a catalog read back evaluates exactly as the original one.
+     */
+    @Test
+    public void testWriteRead ()
+            throws IOException
+    {
+        System.out.println("writeRead");
+
+        final int interline = 17;
+        final Catalog catalog = new Catalog(interline);
+        final Catalog copy = Catalog.read(toStream(catalog), interline);
+        assertNotNull(copy);
+
+        final DistanceTable distances = new DistanceTable.Integer(60, 60, 3);
+
+        for (int x = 0; x < 60; x++) {
+            for (int y = 0; y < 60; y++) {
+                distances.setValue(x, y, ((x * 7) + (y * 13)) % 11);
+            }
+        }
+
+        for (Shape shape : ShapeSet.TemplateNotes) {
+            final Template t1 = catalog.getTemplate(shape);
+            final Template t2 = copy.getTemplate(shape);
+            assertEquals(t1.getInterline(), t2.getInterline());
+            assertEquals(t1.getWidth(), t2.getWidth());
+            assertEquals(t1.getHeight(), t2.getHeight());
+            assertEquals(t1.getKeyPoints().size(), t2.getKeyPoints().size());
+            assertEquals(t1.getOffsets(), t2.getOffsets());
+            assertEquals(
+                    catalog.getDescriptor(shape).getWidth(),
+                    copy.getDescriptor(shape).getWidth());
+
+            for (int x = 20; x < 40; x += 3) {
+                for (int y = 20; y < 40; y += 5) {
+                    assertEquals(
+                            t1.evaluate(x, y, Anchor.CENTER, distances),
+                            t2.evaluate(x, y, Anchor.CENTER, distances),
+                            0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that stored data for another interline is ignored.
+     */
+    @Test
+    public void testReadOtherInterline ()
+            throws IOException
+    {
+        System.out.println("readOtherInterline");
+
+        final Catalog catalog = new Catalog(12);
+        assertNull(Catalog.read(toStream(catalog), 13));
+    }
+
+    private static DataInputStream toStream (Catalog catalog)
+            throws IOException
+    {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bos);
+        catalog.write(out);
+        out.flush();
+
+        return new DataInputStream(new ByteArrayInputStream(bos.toByteArray()));
+    }
+}
@@ -0,0 +1,140 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                              S e c t i o n F a c t o r y T e s t                               //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.lag;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.run.Orientation;
+import static org.audiveris.omr.run.Orientation.*;
+import org.audiveris.omr.run.Run;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class {@code SectionFactoryTest} checks that band-wise sections building gives the
+ * same sections, with the same ids, as a sequential sweep.
+ *
+ * @author Hervé Bitteur
+ */
+public class SectionFactoryTest
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final int WIDTH = 210;
+
+    private static final int HEIGHT = 330;
+
+    /** Band counts to try, including bands of a single sequence. */
+    private static final int[] COUNTS = new int[]{2, 3, 7, 40, 330};
+
+    //~ Methods ------------------------------------------------------------------------------------
+    @Test
+    public void testBandsAll ()
+    {
+        checkBands(JunctionAllPolicy.INSTANCE);
+    }
+
+    @Test
+    public void testBandsRatio ()
+    {
+        checkBands(new JunctionRatioPolicy(1.25));
+    }
+
+    @Test
+    public void testBandsShift ()
+    {
+        checkBands(new JunctionShiftPolicy(1));
+    }
+
+    private void checkBands (JunctionPolicy policy)
+    {
+        ByteProcessor buffer = createBuffer();
+
+        for (Orientation orientation : new Orientation[]{HORIZONTAL, VERTICAL}) {
+            RunTable table = new RunTableFactory(orientation).createTable(buffer);
+            List<Section> expected = new SectionFactory(orientation, policy).createSections(
+                    table,
+                    null,
+                    false);
+
+            for (int count : COUNTS) {
+                List<DynamicSection> sections = new SectionFactory(orientation, policy)
+                        .buildBandSections(table, Math.min(count, table.getSize()));
+                assertEquals(orientation + " " + count, expected.size(), sections.size());
+
+                for (int i = 0; i < expected.size(); i++) {
+                    checkSame(expected.get(i), sections.get(i));
+                }
+            }
+        }
+    }
+
+    private void checkSame (Section expected,
+                            Section section)
+    {
+        assertEquals(expected.getId(), section.getId());
+        assertEquals(expected.getFirstPos(), section.getFirstPos());
+        assertEquals(expected.getRunCount(), section.getRunCount());
+
+        List<Run> expRuns = expected.getRuns();
+        List<Run> runs = section.getRuns();
+
+        for (int i = 0; i < expRuns.size(); i++) {
+            assertEquals(expRuns.get(i).getStart(), runs.get(i).getStart());
+            assertEquals(expRuns.get(i).getLength(), runs.get(i).getLength());
+        }
+    }
+
+    private ByteProcessor createBuffer ()
+    {
+        // White background with random blobs, strokes and noise
+        Random random = new Random(31);
+        ByteProcessor buffer = new ByteProcessor(WIDTH, HEIGHT);
+        buffer.invert();
+
+        for (int i = 0; i < 120; i++) {
+            int x0 = random.nextInt(WIDTH);
+            int y0 = random.nextInt(HEIGHT);
+            int w = 1 + random.nextInt(random.nextBoolean() ? 4 : 60);
+            int h = 1 + random.nextInt(random.nextBoolean() ? 4 : 60);
+            int dx = random.nextInt(3) - 1;
+
+            for (int y = y0; y < Math.min(HEIGHT, y0 + h); y++) {
+                int shift = (dx * (y - y0)) / 4;
+
+                for (int x = x0 + shift; x < Math.min(WIDTH, x0 + shift + w); x++) {
+                    if ((x >= 0) && (random.nextInt(10) != 0)) {
+                        buffer.set(x, y, 0);
+                    }
+                }
+            }
+        }
+
+        return buffer;
+    }
+}
@@ -0,0 +1,152 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                     G e o G r i d T e s t                                      //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.math;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class {@code GeoGridTest} checks {@link GeoGrid} lookups against a plain linear
+ * scan.
+ *
+ * @author Hervé Bitteur
+ */
+public class GeoGridTest
+{
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code GeoGridTest} object.
+     */
+    public GeoGridTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Check that candidates include all intersected boxes, in registration order.
+     */
+    @Test
+    public void testCandidates ()
+    {
+        System.out.println("\n+++ candidates");
+
+        final Random random = new Random(123);
+        final List<Rectangle> boxes = randomBoxes(random, 2000, 3000);
+        final GeoGrid<Rectangle> grid = new GeoGrid<Rectangle>(64, 64);
+
+        for (Rectangle box : boxes) {
+            grid.insert(box, box);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            Rectangle rect = new Rectangle(
+                    random.nextInt(3000),
+                    random.nextInt(3000),
+                    random.nextInt(400),
+                    random.nextInt(400));
+            assertEquals(scan(boxes, rect), filter(grid.candidates(rect), rect));
+        }
+    }
+
+    /**
+     * Check points, negative coordinates, updates and removals.
+     */
+    @Test
+    public void testUpdates ()
+    {
+        System.out.println("\n+++ updates");
+
+        final GeoGrid<String> grid = new GeoGrid<String>(10, 4);
+        grid.insert("a", new Rectangle(-15, -15, 10, 10));
+        grid.insert("b", new Rectangle(100, 100, 5, 5));
+        grid.insert("c", null);
+        grid.insert("d", new Rectangle(0, 0, 200, 200)); // Wide
+
+        assertEquals(2, grid.candidates(new Point(-10, -10)).size()); // a, c
+        assertEquals(3, grid.candidates(new Point(102, 102)).size()); // b, c, d
+
+        // Move "a" next to "b", it keeps its rank
+        grid.insert("a", new Rectangle(101, 101, 2, 2));
+        assertEquals(
+                Arrays.asList("a", "b", "c", "d"),
+                grid.candidates(new Point(102, 102)));
+        assertEquals(1, grid.candidates(new Point(-10, -10)).size()); // c
+
+        assertTrue(grid.remove("b"));
+        assertFalse(grid.remove("b"));
+        assertEquals(3, grid.size());
+        assertEquals(3, grid.candidates(new Point(102, 102)).size()); // a, c, d
+    }
+
+    private static List<Rectangle> filter (List<Rectangle> candidates,
+                                           Rectangle rect)
+    {
+        final List<Rectangle> found = new ArrayList<Rectangle>();
+
+        for (Rectangle box : candidates) {
+            if (box.intersects(rect)) {
+                found.add(box);
+            }
+        }
+
+        return found;
+    }
+
+    private static List<Rectangle> randomBoxes (Random random,
+                                                int count,
+                                                int side)
+    {
+        final List<Rectangle> boxes = new ArrayList<Rectangle>();
+
+        for (int i = 0; i < count; i++) {
+            boxes.add(
+                    new Rectangle(
+                            random.nextInt(side),
+                            random.nextInt(side),
+                            1 + random.nextInt(80),
+                            1 + random.nextInt(80)));
+        }
+
+        return boxes;
+    }
+
+    private static List<Rectangle> scan (List<Rectangle> boxes,
+                                         Rectangle rect)
+    {
+        final List<Rectangle> found = new ArrayList<Rectangle>();
+
+        for (Rectangle box : boxes) {
+            if (box.intersects(rect)) {
+                found.add(box);
+            }
+        }
+
+        return found;
+    }
+}
@@ -0,0 +1,119 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                              R u n T a b l e F o r m a t T e s t                               //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.run;
+
+import static org.audiveris.omr.run.Orientation.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Class {@code RunTableFormatTest} tests the binary format of RunTable.
+ *
+ * @author Hervé Bitteur
+ */
+public class RunTableFormatTest
+{
+    //~ Methods ------------------------------------------------------------------------------------
+    @Test
+    public void testRoundTrip ()
+            throws IOException
+    {
+        for (Orientation orientation : Orientation.values()) {
+            RunTable table = createInstance(orientation);
+            RunTable newTable = writeAndRead(table);
+            assertEquals(table.dumpOf(), newTable.dumpOf());
+            assertEquals(table, newTable);
+        }
+    }
+
+    @Test
+    public void testLazyAccess ()
+            throws IOException
+    {
+        RunTable table = createInstance(VERTICAL);
+        RunTable newTable = writeAndRead(table);
+
+        // Access and modify a few sequences before the others get decoded
+        assertTrue(newTable.isSequenceEmpty(2));
+        assertTrue(newTable.getRunAt(0, 6).isIdentical(new Run(5, 3)));
+        newTable.removeRun(3, new Run(4, 1));
+        table.removeRun(3, new Run(4, 1));
+        newTable.addRun(2, new Run(7, 2));
+        table.addRun(2, new Run(7, 2));
+
+        Iterator<Run> it = newTable.iterator(4);
+        assertTrue(it.next().isIdentical(new Run(2, 2)));
+
+        assertEquals(table.getTotalRunCount(), newTable.getTotalRunCount());
+        assertEquals(table, newTable);
+    }
+
+    @Test
+    public void testEmptyTable ()
+            throws IOException
+    {
+        RunTable table = new RunTable(HORIZONTAL, 7, 3);
+        RunTable newTable = writeAndRead(table);
+        assertEquals(0, newTable.getTotalRunCount());
+        assertEquals(table, newTable);
+    }
+
+    private RunTable createInstance (Orientation orientation)
+    {
+        RunTable instance = new RunTable(orientation, 10, 10);
+
+        instance.addRun(0, new Run(1, 2));
+        instance.addRun(0, new Run(5, 3));
+
+        instance.addRun(1, new Run(0, 1));
+        instance.addRun(1, new Run(4, 2));
+
+        // Leave sequence empty at index 2
+        //
+        instance.addRun(3, new Run(0, 2));
+        instance.addRun(3, new Run(4, 1));
+        instance.addRun(3, new Run(8, 2));
+
+        instance.addRun(4, new Run(2, 2));
+        instance.addRun(4, new Run(6, 4));
+
+        instance.addRun(9, new Run(0, 10));
+
+        return instance;
+    }
+
+    private RunTable writeAndRead (RunTable table)
+            throws IOException
+    {
+        Path path = Files.createTempFile("runtable", RunTableFormat.EXTENSION);
+        path.toFile().deleteOnExit(); // File may remain mapped until then
+
+        RunTableFormat.write(table, path);
+
+        return RunTableFormat.read(path);
+    }
+}
@@ -24,6 +24,11 @@ package org.audiveris.omr.run;
 import ij.process.ByteProcessor;
 
 import org.audiveris.omr.image.GlobalFilter;
+import org.audiveris.omr.image.PixelFilter;
+import org.audiveris.omr.image.VerticalFilter;
+import org.audiveris.omr.math.PointsCollector;
+import org.audiveris.omr.moments.ARTMoments;
+import org.audiveris.omr.moments.GeometricMoments;
 import org.audiveris.omr.run.Orientation;
 import static org.audiveris.omr.run.Orientation.*;
 import org.audiveris.omr.run.Run;
@@ -36,6 +41,7 @@ import org.junit.Test;
 
 import java.awt.Dimension;
 import java.awt.Point;
+import java.util.Random;
 
 /**
  *
@@ -90,6 +96,38 @@ public class RunTableTest
         }
     }
 
+    /**
+     * Test of createTable method on a PixelFilter, of class RunTableFactory.
+     * Runs built directly from the filter must be the same as runs built from the filtered image.
+     */
+    @Test
+    public void testCreateTable_PixelFilter ()
+    {
+        System.out.println("\n+++ createTable on PixelFilter");
+
+        Random random = new Random(3);
+        ByteProcessor gray = new ByteProcessor(80, 150);
+
+        for (int i = 0; i < gray.getPixelCount(); i++) {
+            gray.set(i, (random.nextInt(4) == 0) ? random.nextInt(100) : (120 + random.nextInt(130)));
+        }
+
+        for (Orientation orientation : Orientation.values()) {
+            RunTableFactory factory = new RunTableFactory(orientation);
+            PixelFilter global = new GlobalFilter(gray, 127);
+            assertEquals(
+                    factory.createTable(global.filteredImage()),
+                    factory.createTable(new GlobalFilter(gray, 127)));
+        }
+
+        // Sliding window filter, read column by column
+        RunTableFactory factory = new RunTableFactory(VERTICAL);
+        PixelFilter sliding = new VerticalFilter(gray, 0.7, 0.9);
+        assertEquals(
+                factory.createTable(sliding.filteredImage()),
+                factory.createTable(new VerticalFilter(gray, 0.7, 0.9)));
+    }
+
     /**
      * Test of dumpOf method, of class RunTable.
      */
@@ -326,6 +364,30 @@ public class RunTableTest
         assertEquals(5, instance.getTotalRunCount());
     }
 
+    /**
+     * Test of computeGeometricMoments and computeArtMoments methods, of class RunTable.
+     * Points buffers are reused from one call to the other, so check that results are not
+     * altered, and equal to the results of a fresh points collector.
+     */
+    @Test
+    public void testMoments ()
+    {
+        System.out.println("\n+++ moments");
+
+        RunTable small = createHorizontalInstance();
+        RunTable large = createDiskInstance(100);
+        double[] geo = small.computeGeometricMoments(0, 0, 10).getValues().clone();
+        ARTMoments art = small.computeArtMoments(0, 0);
+
+        // Interleave with another table, which populates the same buffers
+        large.computeGeometricMoments(3, 4, 10);
+        large.computeArtMoments(3, 4);
+
+        assertArrayEquals(geo, small.computeGeometricMoments(0, 0, 10).getValues(), 0.0);
+        assertEquals(0.0, art.distanceTo(small.computeArtMoments(0, 0)), 0.0);
+        assertArrayEquals(geo, freshGeometricMoments(small, 10).getValues(), 0.0);
+    }
+
     /**
      * Test of purge method, of class RunTable.
      */
@@ -482,6 +544,25 @@ public class RunTableTest
         assertEquals(5, trimmed.getHeight());
     }
 
+    //--------------------//
+    // createDiskInstance //
+    //--------------------//
+    private RunTable createDiskInstance (int radius)
+    {
+        RunTable instance = new RunTable(HORIZONTAL, 2 * radius, 2 * radius);
+
+        for (int y = 0; y < (2 * radius); y++) {
+            int dy = y - radius;
+            int dx = (int) Math.sqrt((radius * radius) - (dy * dy));
+
+            if (dx > 0) {
+                instance.addRun(y, new Run(radius - dx, 2 * dx));
+            }
+        }
+
+        return instance;
+    }
+
     //--------------------------//
     // createHorizontalInstance //
     //--------------------------//
@@ -506,6 +587,22 @@ public class RunTableTest
         return instance;
     }
 
+    //-----------------------//
+    // freshGeometricMoments //
+    //-----------------------//
+    private GeometricMoments freshGeometricMoments (RunTable table,
+                                                    int interline)
+    {
+        PointsCollector collector = new PointsCollector(null, table.getWeight());
+        table.cumulate(collector, new Point(0, 0));
+
+        return new GeometricMoments(
+                collector.getXValues(),
+                collector.getYValues(),
+                collector.getSize(),
+                interline);
+    }
+
     //-------------------------------//
     // createLargeHorizontalInstance //
     //-------------------------------//
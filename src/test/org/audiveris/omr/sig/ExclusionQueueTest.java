@@ -0,0 +1,246 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                              E x c l u s i o n Q u e u e T e s t                               //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sig;
+
+import org.audiveris.omr.glyph.Glyph;
+import org.audiveris.omr.glyph.Shape;
+import org.audiveris.omr.sig.inter.AbstractInter;
+import org.audiveris.omr.sig.inter.Inter;
+import org.audiveris.omr.sig.relation.BasicExclusion;
+import org.audiveris.omr.sig.relation.Exclusion.Cause;
+import org.audiveris.omr.sig.relation.Relation;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Class {@code ExclusionQueueTest} checks that {@link ExclusionQueue} selects exclusions
+ * exactly as an exhaustive scan would do.
+ *
+ * @author Hervé Bitteur
+ */
+public class ExclusionQueueTest
+{
+    //~ Constructors -------------------------------------------------------------------------------
+    public ExclusionQueueTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Check order on distinct and equal values.
+     */
+    @Test
+    public void testOrder ()
+    {
+        System.out.println("order");
+
+        final Inter a = new TestInter(0.5);
+        final Inter b = new TestInter(0.8);
+        final Inter c = new TestInter(0.8);
+        final Inter d = new TestInter(0.2);
+        final Inter e = new TestInter(0.0);
+        final Inter f = new TestInter(0.0);
+
+        final Relation ad = new BasicExclusion(Cause.OVERLAP);
+        final Relation bd = new BasicExclusion(Cause.OVERLAP);
+        final Relation cd = new BasicExclusion(Cause.OVERLAP);
+        final Relation ef = new BasicExclusion(Cause.OVERLAP);
+
+        final ExclusionQueue queue = new ExclusionQueue();
+        queue.add(ef, e, f);
+        queue.add(ad, a, d);
+        queue.add(cd, c, d);
+        queue.add(bd, b, d);
+        assertEquals(4, queue.size());
+
+        assertSame(cd, queue.poll()); // 0.8, first inserted
+        assertSame(bd, queue.poll()); // 0.8
+        assertSame(ad, queue.poll()); // 0.5
+        assertNull(queue.poll()); // No positive value left
+    }
+
+    /**
+     * Check updates and removals.
+     */
+    @Test
+    public void testUpdateRemove ()
+    {
+        System.out.println("updateRemove");
+
+        final Inter a = new TestInter(0.5);
+        final Inter b = new TestInter(0.6);
+        final Inter c = new TestInter(0.7);
+        final Inter d = new TestInter(0.1);
+
+        final Relation ad = new BasicExclusion(Cause.OVERLAP);
+        final Relation bd = new BasicExclusion(Cause.OVERLAP);
+        final Relation cd = new BasicExclusion(Cause.OVERLAP);
+
+        final ExclusionQueue queue = new ExclusionQueue();
+        queue.add(ad, a, d);
+        queue.add(bd, b, d);
+        queue.add(cd, c, d);
+
+        a.setContextualGrade(0.9);
+        queue.update(a);
+        queue.remove(c);
+        assertEquals(2, queue.size());
+
+        b.setContextualGrade(0.3); // Not notified, to be caught by poll()
+        assertSame(ad, queue.poll());
+        assertSame(bd, queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    /**
+     * Compare reductions driven by an exhaustive scan and by the queue on a crowded
+     * synthetic configuration.
+     */
+    @Test
+    public void testVersusScan ()
+    {
+        System.out.println("versusScan");
+
+        final int inters = 150;
+        final int exclusions = 600;
+
+        final List<Integer> scanned = reduce(false, inters, exclusions);
+        final List<Integer> queued = reduce(true, inters, exclusions);
+        assertFalse(scanned.isEmpty());
+        assertEquals(scanned, queued);
+    }
+
+    //--------//
+    // reduce //
+    //--------//
+    /**
+     * Reduce a random configuration, mimicking SIGraph.reduceExclusions(): the weaker end
+     * of selected exclusion is removed, and the grade of its two following inters is lowered.
+     *
+     * @param useQueue   true for queue, false for exhaustive scan
+     * @param count      number of inters
+     * @param exclusions number of exclusions
+     * @return the sequence of removed inters ids
+     */
+    private List<Integer> reduce (boolean useQueue,
+                                  int count,
+                                  int exclusions)
+    {
+        final Random random = new Random(123);
+        final List<Inter> inters = new ArrayList<Inter>();
+        final Map<Inter, Integer> ids = new HashMap<Inter, Integer>();
+
+        for (int i = 0; i < count; i++) {
+            // Few distinct grades, to exercise equal values
+            final Inter inter = new TestInter(random.nextInt(50) / 50.0);
+            inters.add(inter);
+            ids.put(inter, i);
+        }
+
+        final List<Relation> rels = new ArrayList<Relation>();
+        final Map<Relation, Inter[]> ends = new HashMap<Relation, Inter[]>();
+        final ExclusionQueue queue = new ExclusionQueue();
+
+        for (int i = 0; i < exclusions; i++) {
+            final Inter source = inters.get(random.nextInt(count));
+            final Inter target = inters.get(random.nextInt(count));
+
+            if (source != target) {
+                final Relation rel = new BasicExclusion(Cause.OVERLAP);
+                rels.add(rel);
+                ends.put(rel, new Inter[]{source, target});
+                queue.add(rel, source, target);
+            }
+        }
+
+        final List<Integer> removed = new ArrayList<Integer>();
+        final boolean[] deleted = new boolean[count];
+
+        while (true) {
+            Relation bestRel = null;
+
+            if (useQueue) {
+                bestRel = queue.poll();
+            } else {
+                double bestCP = 0;
+
+                for (Relation rel : rels) {
+                    final Inter[] pair = ends.get(rel);
+
+                    if (!deleted[ids.get(pair[0])] && !deleted[ids.get(pair[1])]) {
+                        final double cp = Math.max(
+                                pair[0].getBestGrade(),
+                                pair[1].getBestGrade());
+
+                        if (bestCP < cp) {
+                            bestCP = cp;
+                            bestRel = rel;
+                        }
+                    }
+                }
+
+                rels.remove(bestRel);
+            }
+
+            if (bestRel == null) {
+                return removed;
+            }
+
+            final Inter[] pair = ends.get(bestRel);
+            final Inter weaker = (pair[0].getBestGrade() < pair[1].getBestGrade()) ? pair[0]
+                    : pair[1];
+            final int id = ids.get(weaker);
+            removed.add(id);
+            deleted[id] = true;
+            queue.remove(weaker);
+
+            for (int i = 1; i <= 2; i++) {
+                final Inter next = inters.get((id + i) % count);
+                next.setContextualGrade(0.9 * next.getBestGrade());
+                queue.update(next);
+            }
+        }
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // TestInter //
+    //-----------//
+    private static class TestInter
+            extends AbstractInter
+    {
+        //~ Constructors ---------------------------------------------------------------------------
+
+        public TestInter (double grade)
+        {
+            super((Glyph) null, (Rectangle) null, Shape.NOTEHEAD_BLACK, grade);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                    S i g I n d e x T e s t                                     //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sig;
+
+import org.audiveris.omr.glyph.Glyph;
+import org.audiveris.omr.glyph.Shape;
+import org.audiveris.omr.sheet.Staff;
+import org.audiveris.omr.sig.inter.AbstractInter;
+import org.audiveris.omr.sig.inter.Inter;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class {@code SigIndexTest} checks that {@link SigIndex} reports candidates in sig order.
+ *
+ * @author Hervé Bitteur
+ */
+public class SigIndexTest
+{
+    //~ Constructors -------------------------------------------------------------------------------
+    public SigIndexTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Check lookups by class and by shape.
+     */
+    @Test
+    public void testClassAndShape ()
+    {
+        System.out.println("classAndShape");
+
+        final TestInter a = new TestInter(Shape.NOTEHEAD_BLACK);
+        final TestInter b = new OtherInter(Shape.WHOLE_NOTE);
+        final TestInter c = new TestInter(Shape.NOTEHEAD_BLACK);
+
+        final SigIndex index = new SigIndex();
+        index.add(a);
+        index.add(b);
+        index.add(c);
+
+        assertEquals(Arrays.asList(a, b, c), index.ofClass(TestInter.class));
+        assertEquals(Arrays.asList(b), index.ofClass(OtherInter.class));
+        assertEquals(Arrays.asList(a, b, c), index.ofClass(Inter.class));
+        assertEquals(Arrays.asList(a, c), index.ofShape(Shape.NOTEHEAD_BLACK));
+        assertEquals(
+                Arrays.asList(a, b, c),
+                index.ofShapes(Arrays.asList(Shape.WHOLE_NOTE, Shape.NOTEHEAD_BLACK)));
+
+        // Shape modification
+        a.morph(Shape.WHOLE_NOTE);
+        index.shapeChanged(a, Shape.NOTEHEAD_BLACK);
+        assertEquals(Arrays.asList(c), index.ofShape(Shape.NOTEHEAD_BLACK));
+        assertEquals(Arrays.asList(a, b), index.ofShape(Shape.WHOLE_NOTE));
+
+        // Removal
+        index.remove(b);
+        assertEquals(Arrays.asList(a), index.ofShape(Shape.WHOLE_NOTE));
+        assertTrue(index.ofClass(OtherInter.class).isEmpty());
+    }
+
+    /**
+     * Check lookups by staff, including floating inters.
+     */
+    @Test
+    public void testStaff ()
+    {
+        System.out.println("staff");
+
+        final Staff s1 = new Staff();
+        final Staff s2 = new Staff();
+
+        final TestInter a = new TestInter(Shape.NOTEHEAD_BLACK);
+        a.setStaff(s1);
+
+        final TestInter b = new TestInter(Shape.NOTEHEAD_BLACK);
+
+        final TestInter c = new TestInter(Shape.NOTEHEAD_BLACK);
+        c.setStaff(s2);
+
+        final TestInter d = new LazyInter(Shape.NOTEHEAD_BLACK);
+        d.setStaff(s2);
+
+        final SigIndex index = new SigIndex();
+        index.add(a);
+        index.add(b);
+        index.add(c);
+        index.add(d);
+
+        // b (no staff yet) and d (lazy staff) are floating
+        assertEquals(Arrays.asList(a, b, d), index.ofStaff(s1));
+        assertEquals(Arrays.asList(b, c, d), index.ofStaff(s2));
+
+        // Staff assignment
+        b.setStaff(s2);
+        index.staffChanged(b, null);
+        assertEquals(Arrays.asList(a, d), index.ofStaff(s1));
+        assertEquals(Arrays.asList(b, c, d), index.ofStaff(s2));
+
+        // Removal
+        index.remove(a);
+        index.remove(d);
+        assertEquals(Collections.emptyList(), index.ofStaff(s1));
+        assertEquals(Arrays.asList(b, c), index.ofStaff(s2));
+    }
+
+    /**
+     * Compare staff lookups via index with a linear scan, on a population of inters.
+     */
+    @Test
+    public void testVersusScan ()
+    {
+        System.out.println("versusScan");
+
+        final int staffCount = 6;
+        final Staff[] staves = new Staff[staffCount];
+
+        for (int i = 0; i < staffCount; i++) {
+            staves[i] = new Staff();
+        }
+
+        final SigIndex index = new SigIndex();
+        final List<Inter> all = new ArrayList<Inter>();
+
+        for (int i = 0; i < 600; i++) {
+            final TestInter inter = (i % 3 == 0) ? new OtherInter(Shape.WHOLE_NOTE)
+                    : new TestInter(Shape.NOTEHEAD_BLACK);
+            inter.setStaff(staves[i % staffCount]);
+            index.add(inter);
+            all.add(inter);
+        }
+
+        for (Staff staff : staves) {
+            final List<Inter> scanned = new ArrayList<Inter>();
+
+            for (Inter inter : all) {
+                if (inter.getStaff() == staff) {
+                    scanned.add(inter);
+                }
+            }
+
+            assertEquals(scanned, index.ofStaff(staff));
+        }
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // TestInter //
+    //-----------//
+    private static class TestInter
+            extends AbstractInter
+    {
+        //~ Constructors ---------------------------------------------------------------------------
+
+        public TestInter (Shape shape)
+        {
+            super((Glyph) null, (Rectangle) null, shape, 0.5);
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        public void morph (Shape shape)
+        {
+            this.shape = shape;
+        }
+    }
+
+    //-----------//
+    // LazyInter //
+    //-----------//
+    private static class LazyInter
+            extends TestInter
+    {
+        //~ Constructors ---------------------------------------------------------------------------
+
+        public LazyInter (Shape shape)
+        {
+            super(shape);
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        @Override
+        public Staff getStaff ()
+        {
+            return staff;
+        }
+    }
+
+    //------------//
+    // OtherInter //
+    //------------//
+    private static class OtherInter
+            extends TestInter
+    {
+        //~ Constructors ---------------------------------------------------------------------------
+
+        public OtherInter (Shape shape)
+        {
+            super(shape);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                   I d S t r i p e s T e s t                                    //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class {@code IdStripesTest} checks ids drawn through {@link IdStripes}.
+ *
+ * @author Hervé Bitteur
+ */
+public class IdStripesTest
+{
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Ids of a stripe must not depend on the interleaving of draws.
+     */
+    @Test
+    public void testInterleaving ()
+    {
+        System.out.println("interleaving");
+
+        // Stripe 0 drawn before stripe 1
+        final AtomicInteger gen1 = new AtomicInteger(10);
+        final IdStripes stripes1 = new IdStripes(gen1, 2);
+        final int[] a1 = draw(stripes1, 0, gen1, 3);
+        final int[] b1 = draw(stripes1, 1, gen1, 2);
+        stripes1.close();
+
+        // Stripe 1 drawn before stripe 0
+        final AtomicInteger gen2 = new AtomicInteger(10);
+        final IdStripes stripes2 = new IdStripes(gen2, 2);
+        final int[] b2 = draw(stripes2, 1, gen2, 2);
+        final int[] a2 = draw(stripes2, 0, gen2, 3);
+        stripes2.close();
+
+        assertArrayEquals(new int[]{11, 14, 17}, a1);
+        assertArrayEquals(new int[]{12, 15}, b1);
+        assertArrayEquals(a1, a2);
+        assertArrayEquals(b1, b2);
+        assertEquals(17, gen1.get());
+        assertEquals(17, gen2.get());
+
+        // Back to plain generator
+        assertEquals(18, IdStripes.nextId(gen1));
+    }
+
+    /**
+     * An unbound thread must get ids distinct from stripe ids.
+     */
+    @Test
+    public void testUnbound ()
+    {
+        System.out.println("unbound");
+
+        final AtomicInteger gen = new AtomicInteger(0);
+        final IdStripes stripes = new IdStripes(gen, 2);
+        final int[] a = draw(stripes, 0, gen, 2);
+        final int u1 = IdStripes.nextId(gen);
+        final int u2 = IdStripes.nextId(gen);
+        stripes.close();
+
+        assertArrayEquals(new int[]{1, 4}, a);
+        assertEquals(3, u1);
+        assertEquals(6, u2);
+        assertEquals(6, gen.get());
+    }
+
+    //------//
+    // draw //
+    //------//
+    private int[] draw (IdStripes stripes,
+                        int stripe,
+                        AtomicInteger gen,
+                        int count)
+    {
+        final int[] ids = new int[count];
+        stripes.bind(stripe);
+
+        try {
+            for (int i = 0; i < count; i++) {
+                ids[i] = IdStripes.nextId(gen);
+            }
+        } finally {
+            stripes.unbind();
+        }
+
+        return ids;
+    }
+}
@@ -0,0 +1,149 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                        J a x b T e s t                                         //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2017. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlID;
+import javax.xml.bind.annotation.XmlIDREF;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+/**
+ * Class {@code JaxbTest} checks that binary marshalling round-trips to the same data
+ * as XML marshalling.
+ *
+ * @author Hervé Bitteur
+ */
+public class JaxbTest
+{
+    //~ Constructors -------------------------------------------------------------------------------
+    public JaxbTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    @Test
+    public void testBinaryRoundTrip ()
+            throws Exception
+    {
+        System.out.println("binaryRoundTrip");
+
+        final JAXBContext context = JAXBContext.newInstance(Root.class);
+        final Root root = createRoot(500);
+        final String xml = toXml(root, context);
+
+        // Binary marshalling
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Jaxb.marshalBinary(root, bos, context);
+
+        final byte[] bytes = bos.toByteArray();
+        System.out.println("xml: " + xml.length() + " binary: " + bytes.length);
+        assertTrue(bytes.length < xml.length());
+
+        // Binary unmarshalling
+        Root copy = (Root) Jaxb.unmarshalBinary(new ByteArrayInputStream(bytes), context);
+        assertEquals(root.items.size(), copy.items.size());
+        assertSame(copy.items.get(0), copy.items.get(1).partner);
+        assertEquals(xml, toXml(copy, context));
+    }
+
+    private Root createRoot (int count)
+    {
+        Root root = new Root();
+
+        for (int i = 0; i < count; i++) {
+            Item item = new Item();
+            item.id = "i" + i;
+            item.name = "Item é #" + i;
+            item.location = new Point(i, 2 * i);
+            item.bounds = new Rectangle(i, i + 1, 10, 20);
+
+            if (i > 0) {
+                item.partner = root.items.get(i - 1);
+            }
+
+            root.items.add(item);
+        }
+
+        return root;
+    }
+
+    private String toXml (Root root,
+                          JAXBContext context)
+            throws Exception
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Jaxb.marshal(root, bos, context);
+
+        return bos.toString("UTF-8");
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    @XmlAccessorType(XmlAccessType.NONE)
+    public static class Item
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        @XmlID
+        @XmlAttribute(name = "id")
+        String id;
+
+        @XmlAttribute(name = "name")
+        String name;
+
+        @XmlElement(name = "location")
+        @XmlJavaTypeAdapter(Jaxb.PointAdapter.class)
+        Point location;
+
+        @XmlElement(name = "bounds")
+        @XmlJavaTypeAdapter(Jaxb.RectangleAdapter.class)
+        Rectangle bounds;
+
+        @XmlIDREF
+        @XmlAttribute(name = "partner")
+        Item partner;
+    }
+
+    @XmlRootElement(name = "root")
+    @XmlAccessorType(XmlAccessType.NONE)
+    public static class Root
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        @XmlElement(name = "item")
+        List<Item> items = new ArrayList<Item>();
+    }
+}